@@ -0,0 +1,108 @@
+package ttt_backend.benchmarks;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ttt_backend.application.GameApplication;
+import ttt_backend.infrastucture.apis.GameAPI;
+import ttt_backend.infrastucture.databases.ConcurrentGameRepository;
+import ttt_backend.infrastucture.databases.IndexedJsonUserRepository;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips to a {@link GameAPI} deployed in the benchmark process,
+ * through the Vert.x HTTP client: registering a user, creating a game,
+ * and a batch registering two users, creating a game and joining it.
+ * The requests are sent from a context of the client, not from the thread
+ * of the benchmark, which is not a Vert.x thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dttt.log.requests.level=WARNING")
+public class GameApiBenchmark {
+    private static final Buffer REGISTER = Buffer.buffer("{\"userName\":\"player\"}");
+    private static final Buffer EMPTY = Buffer.buffer();
+    private static final Buffer BATCH = Buffer.buffer("[{\"op\":\"registerUser\",\"userName\":\"a\"},"
+            + "{\"op\":\"registerUser\",\"userName\":\"b\"},{\"op\":\"createGame\"},"
+            + "{\"op\":\"joinGame\",\"userId\":\"$0\",\"gameId\":\"$2\",\"symbol\":\"cross\"},"
+            + "{\"op\":\"joinGame\",\"userId\":\"$1\",\"gameId\":\"$2\",\"symbol\":\"circle\"}]");
+
+    private Vertx vertx;
+    private Path users;
+    private IndexedJsonUserRepository userRepository;
+    private ConcurrentGameRepository gameRepository;
+    private HttpClient client;
+    private Context clientContext;
+    private int port;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            this.port = socket.getLocalPort();
+        }
+        this.users = Files.createTempFile("ttt-users", ".json");
+        this.userRepository = new IndexedJsonUserRepository(this.users, 200);
+        this.gameRepository = new ConcurrentGameRepository();
+        final var application = new GameApplication(this.userRepository, this.gameRepository);
+        this.vertx = Vertx.vertx();
+        this.vertx.deployVerticle(new GameAPI(application, this.port)).toCompletionStage().toCompletableFuture().join();
+        this.client = this.vertx.createHttpClient();
+        this.clientContext = this.vertx.getOrCreateContext();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.vertx.close().toCompletionStage().toCompletableFuture().join();
+        this.userRepository.close();
+        this.gameRepository.close();
+        Files.deleteIfExists(this.users);
+    }
+
+    @Benchmark
+    public Buffer registerUser() {
+        return post("/api/registerUser", REGISTER);
+    }
+
+    @Benchmark
+    public Buffer createGame() {
+        return post("/api/createGame", EMPTY);
+    }
+
+    @Benchmark
+    public Buffer batch() {
+        return post("/api/batch", BATCH);
+    }
+
+    private Buffer post(String uri, Buffer body) {
+        final CompletableFuture<Buffer> reply = new CompletableFuture<>();
+        this.clientContext.runOnContext(v -> this.client.request(HttpMethod.POST, this.port, "localhost", uri)
+                .compose(request -> request.send(body))
+                .compose(HttpClientResponse::body)
+                .onSuccess(reply::complete)
+                .onFailure(reply::completeExceptionally));
+        return reply.join();
+    }
+}
@@ -0,0 +1,229 @@
+package ttt_backend.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full game playouts (join, start and the 9 moves of a tie), comparing the
+ * bitboard {@link Game} with the former enum-grid implementation, kept
+ * here as {@link ArrayGridGame}; a win in 5 moves, covering the winning
+ * branch of the state check, and the setup of a game alone, to be
+ * subtracted from the playouts to get the cost of the moves.
+ * The same 60 moves without a winner are also played on a 15 x 15 and on a
+ * 64 x 64 board, five in a row: the check after a move looks only at the
+ * lines through the cell taken, so the cost of a move does not grow with
+ * the board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    /* x, y of the moves of a tie game, cross first */
+    private static final int[][] TIE = {
+            {0, 0}, {1, 0}, {2, 0}, {1, 1}, {0, 1}, {2, 1}, {1, 2}, {0, 2}, {2, 2}
+    };
+    /* x, y of the moves of a game won by cross on the first column */
+    private static final int[][] CROSS_WIN = {
+            {0, 0}, {1, 0}, {0, 1}, {1, 1}, {0, 2}
+    };
+
+    private static final BoardSize GOMOKU = new BoardSize(15, 15, 5);
+    private static final BoardSize LARGEST = new BoardSize(BoardSize.MAX_SIDE, BoardSize.MAX_SIDE, 5);
+    /* x, y of 60 random moves ending no game on a 15 x 15 board, five in a row */
+    private static final int[][] NO_FIVE = noFive(60);
+
+    private final User cross = new User("user-1", "cross");
+    private final User circle = new User("user-2", "circle");
+
+    @Benchmark
+    public boolean bitboardPlayout() throws Exception {
+        return play(TIE).isTie();
+    }
+
+    @Benchmark
+    public boolean bitboardWin() throws Exception {
+        return play(CROSS_WIN).getWinner().isPresent();
+    }
+
+    @Benchmark
+    public Game bitboardSetup() throws Exception {
+        return play(new int[0][]);
+    }
+
+    @Benchmark
+    public Game gomokuPlayout() throws Exception {
+        return play(GOMOKU, NO_FIVE);
+    }
+
+    @Benchmark
+    public Game gomokuSetup() throws Exception {
+        return play(GOMOKU, new int[0][]);
+    }
+
+    @Benchmark
+    public Game largestBoardPlayout() throws Exception {
+        return play(LARGEST, NO_FIVE);
+    }
+
+    @Benchmark
+    public Game largestBoardSetup() throws Exception {
+        return play(LARGEST, new int[0][]);
+    }
+
+    @Benchmark
+    public boolean arrayGridPlayout() {
+        final ArrayGridGame game = new ArrayGridGame();
+        game.join(this.cross, Game.GameSymbolType.CROSS);
+        game.join(this.circle, Game.GameSymbolType.CIRCLE);
+        game.start();
+        for (int i = 0; i < TIE.length; i++) {
+            final boolean crossTurn = i % 2 == 0;
+            game.move(crossTurn ? this.cross : this.circle,
+                    crossTurn ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE, TIE[i][0], TIE[i][1]);
+        }
+        return game.finished;
+    }
+
+    private Game play(int[][] moves) throws Exception {
+        return play(BoardSize.CLASSIC, moves);
+    }
+
+    private Game play(BoardSize board, int[][] moves) throws Exception {
+        final Game game = new Game("game-1", board);
+        game.joinGame(this.cross, Game.GameSymbolType.CROSS);
+        game.joinGame(this.circle, Game.GameSymbolType.CIRCLE);
+        game.start();
+        for (int i = 0; i < moves.length; i++) {
+            final boolean crossTurn = i % 2 == 0;
+            game.makeAmove(crossTurn ? this.cross : this.circle,
+                    crossTurn ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE, moves[i][0], moves[i][1]);
+        }
+        return game;
+    }
+
+    private static int[][] noFive(int count) {
+        final User cross = new User("user-1", "cross");
+        final User circle = new User("user-2", "circle");
+        for (long seed = 0; ; seed++) {
+            try {
+                final Random random = new Random(seed);
+                final Game game = new Game("game-1", GOMOKU);
+                game.joinGame(cross, Game.GameSymbolType.CROSS);
+                game.joinGame(circle, Game.GameSymbolType.CIRCLE);
+                game.start();
+                final int[][] moves = new int[count][];
+                for (int i = 0; i < count && !game.isGameEnd(); i++) {
+                    int x;
+                    int y;
+                    do {
+                        x = random.nextInt(15);
+                        y = random.nextInt(15);
+                    } while (game.getCell(x, y) != Game.GameSymbolType.EMPTY);
+                    final boolean crossTurn = i % 2 == 0;
+                    game.makeAmove(crossTurn ? cross : circle,
+                            crossTurn ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE, x, y);
+                    moves[i] = new int[] {x, y};
+                }
+                if (!game.isGameEnd()) {
+                    return moves;
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /*
+     * The board as it was before the bitboard: enum grid, map of players,
+     * Optional winner and a full rescan of the grid after each move.
+     */
+    static final class ArrayGridGame {
+        private final Game.GameSymbolType[][] grid = new Game.GameSymbolType[3][3];
+        private final HashMap<Game.GameSymbolType, Game.Player> players = new HashMap<>();
+        private Optional<Game.Player> winner = Optional.empty();
+        private Game.GameSymbolType currentTurn;
+        private int numFreeCellsLeft;
+        private boolean finished;
+
+        ArrayGridGame() {
+            for (int y = 0; y < 3; y++) {
+                for (int x = 0; x < 3; x++) {
+                    this.grid[y][x] = Game.GameSymbolType.EMPTY;
+                }
+            }
+        }
+
+        void join(User user, Game.GameSymbolType symbol) {
+            this.players.put(symbol, new Game.Player(user, symbol));
+        }
+
+        void start() {
+            this.numFreeCellsLeft = 9;
+            this.currentTurn = Game.GameSymbolType.CROSS;
+        }
+
+        void move(User user, Game.GameSymbolType symbol, int x, int y) {
+            if (symbol.equals(this.currentTurn) && this.players.get(symbol).user().equals(user)
+                    && this.grid[y][x].equals(Game.GameSymbolType.EMPTY)) {
+                this.grid[y][x] = symbol;
+                this.numFreeCellsLeft--;
+                this.currentTurn = symbol.equals(Game.GameSymbolType.CIRCLE)
+                        ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE;
+                checkState();
+            }
+        }
+
+        private void checkState() {
+            for (int y = 0; y < 3; y++) {
+                if (!this.grid[y][0].equals(Game.GameSymbolType.EMPTY)
+                        && this.grid[y][0].equals(this.grid[y][1]) && this.grid[y][1].equals(this.grid[y][2])) {
+                    win(this.grid[y][0]);
+                    return;
+                }
+            }
+            for (int x = 0; x < 3; x++) {
+                if (!this.grid[0][x].equals(Game.GameSymbolType.EMPTY)
+                        && this.grid[0][x].equals(this.grid[1][x]) && this.grid[1][x].equals(this.grid[2][x])) {
+                    win(this.grid[0][x]);
+                    return;
+                }
+            }
+            if (!this.grid[0][0].equals(Game.GameSymbolType.EMPTY)
+                    && this.grid[0][0].equals(this.grid[1][1]) && this.grid[1][1].equals(this.grid[2][2])) {
+                win(this.grid[0][0]);
+                return;
+            }
+            if (!this.grid[2][0].equals(Game.GameSymbolType.EMPTY)
+                    && this.grid[2][0].equals(this.grid[1][1]) && this.grid[1][1].equals(this.grid[0][2])) {
+                win(this.grid[2][0]);
+                return;
+            }
+            if (this.numFreeCellsLeft == 0) {
+                this.finished = true;
+            }
+        }
+
+        private void win(Game.GameSymbolType symbol) {
+            this.winner = Optional.of(this.players.get(symbol));
+            this.finished = true;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ttt_backend.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.ports.GameRepository;
+import ttt_backend.infrastucture.databases.ConcurrentGameRepository;
+import ttt_backend.infrastucture.databases.MapGameRepository;
+import ttt_backend.infrastucture.databases.PackedGameRepository;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and saves of games from 8 threads at once, on a repository
+ * holding 10k games: the plain map ({@link MapGameRepository}), the
+ * evicting repository ({@link ConcurrentGameRepository}) and the packed
+ * one ({@link PackedGameRepository}), materializing the games read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class GameRepositoryBenchmark {
+    private static final int GAMES = 10_000;
+
+    @Param({"map", "concurrent", "packed"})
+    public String store;
+
+    private GameRepository repository;
+    private Game[] games;
+
+    @Setup
+    public void setUp() {
+        this.repository = switch (this.store) {
+            case "map" -> new MapGameRepository();
+            case "packed" -> new PackedGameRepository();
+            default -> new ConcurrentGameRepository();
+        };
+        this.games = new Game[GAMES];
+        for (int i = 0; i < GAMES; i++) {
+            this.games[i] = this.repository.save(new Game("game-" + i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (this.repository instanceof ConcurrentGameRepository concurrent) {
+            concurrent.close();
+        }
+    }
+
+    @Benchmark
+    public Optional<Game> getGameById() {
+        return this.repository.getGameById(this.games[ThreadLocalRandom.current().nextInt(GAMES)].getId());
+    }
+
+    @Benchmark
+    public Game save() {
+        return this.repository.save(this.games[ThreadLocalRandom.current().nextInt(GAMES)]);
+    }
+}
@@ -0,0 +1,66 @@
+package ttt_backend.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ttt_backend.domain.ports.IdAllocator;
+import ttt_backend.infrastucture.databases.BlockIdAllocator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Ids allocated from 4 threads at once: the in-memory counter, and the
+ * {@link BlockIdAllocator} leasing blocks of 100 and 10000 ids, the leases
+ * being made durable with an fsync each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class IdAllocatorBenchmark {
+    @Param({"memory", "100", "10000"})
+    public String allocator;
+
+    private Path directory;
+    private IdAllocator ids;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("ttt-ids-bench");
+        this.ids = this.allocator.equals("memory") ? IdAllocator.inMemory(1)
+                : new BlockIdAllocator(this.directory.resolve("ids.hwm"), Integer.parseInt(this.allocator), 0, 1, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (this.ids instanceof BlockIdAllocator block) {
+            block.close();
+        }
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long nextId() {
+        return this.ids.nextId();
+    }
+}
@@ -0,0 +1,433 @@
+package ttt_backend.benchmarks;
+
+import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+import io.vertx.core.http.WebSocketClientOptions;
+import io.vertx.core.json.JsonObject;
+import ttt_backend.application.GameApplication;
+import ttt_backend.infrastucture.apis.GameAPI;
+import ttt_backend.infrastucture.databases.ConcurrentGameRepository;
+import ttt_backend.infrastucture.databases.IndexedJsonUserRepository;
+import ttt_backend.infrastucture.metrics.LatencyHistogram;
+
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Load generator simulating pairs of players over HTTP and websockets: each
+ * pair registers its two users, creates a game, joins it, subscribes to its
+ * events on {@code /api/events} and plays it to the end (a tie), each player
+ * moving once it has seen the move of the other one on its socket.
+ * <p>
+ * In closed loop ({@code load.rate} not set) {@code load.pairs} pairs play
+ * at once, each starting a new game as soon as its game ends: the load
+ * adapts to the server, so the latencies only measure the server when it
+ * is not saturated. In open loop the games start at a fixed rate of
+ * {@code load.rate} games per second whatever the server does, and the
+ * latencies of the first request and of the whole game are measured from
+ * the time the game should have started, so the queueing of the games that
+ * could not start on time is not hidden (coordinated omission). At most
+ * {@code load.maxInFlight} games (default 10000) are played at once, the
+ * others are dropped and counted as errors.
+ * <p>
+ * The report gives the throughput, the latency percentiles and the errors
+ * of each operation, and the delay from each move to its {@code new-move}
+ * event on the sockets of both players.
+ * <p>
+ * The target is {@code load.host}:{@code load.port} (default port 8080), or
+ * a backend deployed in the generator process, with temporary stores, if
+ * {@code load.host} is not set. The load lasts {@code load.duration} seconds
+ * (default 30) after {@code load.warmup} seconds (default 5) not reported;
+ * a game not ended after {@code load.timeout} seconds (default 30) fails.
+ * <p>
+ * Run with: {@code mvn -Pjmh compile exec:java -Dexec.mainClass=ttt_backend.benchmarks.LoadGenerator
+ * [-Dload.pairs=50 | -Dload.rate=100]}
+ */
+public final class LoadGenerator {
+    /* x, y of the moves of a tie game, cross first */
+    private static final int[][] TIE = {
+            {0, 0}, {1, 0}, {2, 0}, {1, 1}, {0, 1}, {2, 1}, {1, 2}, {0, 2}, {2, 2}
+    };
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 1.0};
+
+    /* the operations measured */
+    private enum Operation {
+        REGISTER_USER("registerUser"),
+        CREATE_GAME("createGame"),
+        JOIN_GAME("joinGame"),
+        SUBSCRIBE("subscribe"),
+        MAKE_A_MOVE("makeAMove"),
+        MOVE_TO_EVENT("move->event"),
+        GAME("game");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    /* the measures, replaced at the end of the warmup */
+    private static final class Stats {
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        private final long[] errors = new long[Operation.values().length];
+        private final long start = System.nanoTime();
+        private long requests;
+
+        Stats() {
+            for (int i = 0; i < this.latencies.length; i++) {
+                this.latencies[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    private final Vertx vertx;
+    private final Context context;
+    private final HttpClient http;
+    private final WebSocketClient webSockets;
+    private final String host;
+    private final int port;
+    private final long timeoutMs;
+    private final int maxInFlight;
+    private final CompletableFuture<Void> drained = new CompletableFuture<>();
+    private Stats stats = new Stats();
+    private int inFlight;
+    private boolean stopped;
+
+    private LoadGenerator(Vertx vertx, String host, int port, long timeoutMs, int maxInFlight) {
+        this.vertx = vertx;
+        this.context = vertx.getOrCreateContext();
+        this.http = vertx.createHttpClient(new HttpClientOptions().setKeepAlive(true),
+                new PoolOptions().setHttp1MaxSize(Math.min(maxInFlight, 1000)).setMaxWaitQueueSize(-1));
+        this.webSockets = vertx.createWebSocketClient(new WebSocketClientOptions().setMaxConnections(2 * maxInFlight));
+        this.host = host;
+        this.port = port;
+        this.timeoutMs = timeoutMs;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int pairs = Integer.getInteger("load.pairs", 50);
+        final double rate = Double.parseDouble(System.getProperty("load.rate", "0"));
+        final long duration = TimeUnit.SECONDS.toNanos(Long.getLong("load.duration", 30));
+        final long warmup = TimeUnit.SECONDS.toNanos(Long.getLong("load.warmup", 5));
+        final long timeoutMs = TimeUnit.SECONDS.toMillis(Long.getLong("load.timeout", 30));
+        final int maxInFlight = Integer.getInteger("load.maxInFlight", 10_000);
+
+        Vertx server = null;
+        IndexedJsonUserRepository userRepository = null;
+        ConcurrentGameRepository gameRepository = null;
+        Path users = null;
+        String host = System.getProperty("load.host");
+        int port = Integer.getInteger("load.port", 8080);
+        if (host == null) {
+            host = "localhost";
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            users = Files.createTempFile("ttt-users", ".json");
+            userRepository = new IndexedJsonUserRepository(users, 100);
+            gameRepository = new ConcurrentGameRepository();
+            final var application = new GameApplication(userRepository, gameRepository);
+            final int serverPort = port;
+            server = Vertx.vertx();
+            server.deployVerticle(() -> new GameAPI(application, serverPort),
+                            new DeploymentOptions().setInstances(Runtime.getRuntime().availableProcessors()))
+                    .toCompletionStage().toCompletableFuture().join();
+        }
+
+        final Vertx client = Vertx.vertx();
+        final var generator = new LoadGenerator(client, host, port, timeoutMs, maxInFlight);
+        System.out.println(rate > 0
+                ? String.format("Open loop, %.1f games/s, on %s:%d", rate, host, port)
+                : String.format("Closed loop, %d pairs of players, on %s:%d", pairs, host, port));
+        final long start = System.nanoTime();
+        generator.context.runOnContext(v -> {
+            if (rate > 0) {
+                generator.openLoop(start, (long) (TimeUnit.SECONDS.toNanos(1) / rate), start + warmup + duration);
+            } else {
+                generator.closedLoop(pairs, start + warmup + duration);
+            }
+            client.setTimer(Math.max(1, TimeUnit.NANOSECONDS.toMillis(warmup)),
+                    id -> generator.stats = new Stats());
+        });
+        generator.drained.join();
+        generator.report();
+
+        client.close().toCompletionStage().toCompletableFuture().join();
+        if (server != null) {
+            server.close().toCompletionStage().toCompletableFuture().join();
+            userRepository.close();
+            gameRepository.close();
+            Files.deleteIfExists(users);
+        }
+    }
+
+    /*
+     * Start the games at their intended times, on a 1 ms tick, all the games
+     * due being started at once when the tick is late
+     */
+    private void openLoop(long start, long periodNanos, long end) {
+        final long[] next = {start};
+        this.vertx.setPeriodic(1, id -> {
+            final long now = System.nanoTime();
+            while (next[0] <= now && next[0] < end) {
+                if (this.inFlight < this.maxInFlight) {
+                    play(next[0]);
+                } else {
+                    this.stats.errors[Operation.GAME.ordinal()]++;
+                }
+                next[0] += periodNanos;
+            }
+            if (now >= end) {
+                this.vertx.cancelTimer(id);
+                stop();
+            }
+        });
+    }
+
+    private void closedLoop(int pairs, long end) {
+        for (int i = 0; i < pairs; i++) {
+            playUntil(end);
+        }
+        this.vertx.setTimer(Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())), id -> stop());
+    }
+
+    private void playUntil(long end) {
+        if (System.nanoTime() < end) {
+            play(System.nanoTime()).onComplete(res -> playUntil(end));
+        }
+    }
+
+    private void stop() {
+        this.stopped = true;
+        if (this.inFlight == 0) {
+            this.drained.complete(null);
+        }
+    }
+
+    /*
+     * Play a game, measured from its intended start
+     */
+    private Future<Void> play(long intended) {
+        this.inFlight++;
+        final var game = new Game();
+        final Promise<Void> done = Promise.promise();
+        final long timer = this.vertx.setTimer(this.timeoutMs,
+                id -> done.tryFail(new TimeoutException("game not ended in " + this.timeoutMs + " ms")));
+
+        Future.all(registerUser("cross", intended), registerUser("circle", intended))
+                .compose(registered -> {
+                    game.cross = registered.resultAt(0);
+                    game.circle = registered.resultAt(1);
+                    return createGame();
+                })
+                .compose(gameId -> {
+                    game.id = gameId;
+                    return Future.all(joinGame(game.cross, gameId, "cross"), joinGame(game.circle, gameId, "circle"));
+                })
+                .compose(joined -> subscribe(game))
+                .compose(started -> move(game, 0))
+                .compose(moved -> game.ended.future())
+                .onComplete(res -> {
+                    if (res.succeeded()) {
+                        done.tryComplete();
+                    } else {
+                        done.tryFail(res.cause());
+                    }
+                });
+
+        return done.future().andThen(res -> {
+            this.vertx.cancelTimer(timer);
+            game.close();
+            if (res.succeeded()) {
+                this.stats.latencies[Operation.GAME.ordinal()].record(System.nanoTime() - intended);
+            } else {
+                this.stats.errors[Operation.GAME.ordinal()]++;
+            }
+            this.inFlight--;
+            if (this.stopped && this.inFlight == 0) {
+                this.drained.complete(null);
+            }
+        });
+    }
+
+    private Future<String> registerUser(String userName, long start) {
+        return measure(Operation.REGISTER_USER, start,
+                post("/api/registerUser", new JsonObject().put("userName", userName)))
+                .map(reply -> reply.getString("userId"));
+    }
+
+    private Future<String> createGame() {
+        return measure(Operation.CREATE_GAME, System.nanoTime(), post("/api/createGame", new JsonObject()))
+                .map(reply -> reply.getString("gameId"));
+    }
+
+    private Future<JsonObject> joinGame(String userId, String gameId, String symbol) {
+        return measure(Operation.JOIN_GAME, System.nanoTime(), post("/api/joinGame",
+                new JsonObject().put("userId", userId).put("gameId", gameId).put("symbol", symbol))
+                .compose(LoadGenerator::accepted));
+    }
+
+    /*
+     * Open the sockets of both players, the game starting
+     * once both are subscribed
+     */
+    private Future<Void> subscribe(Game game) {
+        final long start = System.nanoTime();
+        final var open = new JsonObject().put("gameId", game.id).encode();
+        final Future<WebSocket> cross = this.webSockets.connect(this.port, this.host, "/api/events")
+                .andThen(res -> game.crossSocket = res.result());
+        final Future<WebSocket> circle = this.webSockets.connect(this.port, this.host, "/api/events")
+                .andThen(res -> game.circleSocket = res.result());
+        return measure(Operation.SUBSCRIBE, start, Future.all(cross, circle).compose(sockets -> {
+            listen(game, game.crossSocket, "cross");
+            listen(game, game.circleSocket, "circle");
+            return Future.all(game.crossSocket.writeTextMessage(open), game.circleSocket.writeTextMessage(open));
+        }).compose(sent -> game.started.future()));
+    }
+
+    private void listen(Game game, WebSocket socket, String symbol) {
+        socket.textMessageHandler(text -> {
+            final var event = new JsonObject(text);
+            switch (event.getString("event")) {
+                case "game-started" -> game.started.tryComplete();
+                case "new-move" -> {
+                    final int cell = event.getInteger("y") * 3 + event.getInteger("x");
+                    this.stats.latencies[Operation.MOVE_TO_EVENT.ordinal()].record(System.nanoTime() - game.sentAt[cell]);
+                    if (!symbol.equals(event.getString("symbol"))) {
+                        game.seen.get(cell).tryComplete();
+                    }
+                }
+                case "game-ended" -> {
+                    if (++game.endedSockets == 2) {
+                        game.ended.tryComplete();
+                    }
+                }
+                default -> {}
+            }
+        });
+    }
+
+    /*
+     * Make the i-th move, then the next one once the other
+     * player has seen this one on its socket
+     */
+    private Future<Void> move(Game game, int i) {
+        if (i == TIE.length) {
+            return Future.succeededFuture();
+        }
+        final boolean crossTurn = i % 2 == 0;
+        final int x = TIE[i][0];
+        final int y = TIE[i][1];
+        final int cell = y * 3 + x;
+        game.sentAt[cell] = System.nanoTime();
+        return measure(Operation.MAKE_A_MOVE, game.sentAt[cell], post("/api/makeAMove", new JsonObject()
+                .put("userId", crossTurn ? game.cross : game.circle)
+                .put("gameId", game.id)
+                .put("symbol", crossTurn ? "cross" : "circle")
+                .put("x", x)
+                .put("y", y))
+                .compose(LoadGenerator::accepted))
+                .compose(reply -> game.seen.get(cell).future())
+                .compose(seen -> move(game, i + 1));
+    }
+
+    private Future<JsonObject> post(String uri, JsonObject body) {
+        return this.http.request(HttpMethod.POST, this.port, this.host, uri)
+                .compose(request -> request.send(body.toBuffer()))
+                .compose(response -> {
+                    if (response.statusCode() != 200) {
+                        return Future.failedFuture("status " + response.statusCode() + " on " + uri);
+                    }
+                    return response.body();
+                })
+                .map(reply -> {
+                    this.stats.requests++;
+                    return reply.toJsonObject();
+                });
+    }
+
+    private static Future<JsonObject> accepted(JsonObject reply) {
+        return "accepted".equals(reply.getString("result"))
+                ? Future.succeededFuture(reply) : Future.failedFuture("denied: " + reply.encode());
+    }
+
+    private <T> Future<T> measure(Operation operation, long start, Future<T> future) {
+        return future.andThen(res -> {
+            if (res.succeeded()) {
+                this.stats.latencies[operation.ordinal()].record(System.nanoTime() - start);
+            } else {
+                this.stats.errors[operation.ordinal()]++;
+            }
+        });
+    }
+
+    private void report() {
+        final Stats measured = this.stats;
+        final double seconds = (System.nanoTime() - measured.start) / 1e9;
+        final LatencyHistogram.Snapshot games = measured.latencies[Operation.GAME.ordinal()].snapshot();
+        System.out.printf("%n%.1f s measured: %.1f games/s, %.1f requests/s%n",
+                seconds, games.count() / seconds, measured.requests / seconds);
+        System.out.printf("%-14s %9s %8s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (final Operation operation : Operation.values()) {
+            final LatencyHistogram.Snapshot snapshot = measured.latencies[operation.ordinal()].snapshot();
+            final long errors = measured.errors[operation.ordinal()];
+            final StringBuilder line = new StringBuilder(String.format("%-14s %9d %8d",
+                    operation.label, snapshot.count(), errors));
+            for (final double quantile : QUANTILES) {
+                line.append(String.format(" %9.2f", snapshot.percentile(quantile) / 1e6));
+            }
+            if (snapshot.count() + errors > 0) {
+                line.append(String.format("  (%.2f%% errors)", 100.0 * errors / (snapshot.count() + errors)));
+            }
+            System.out.println(line);
+        }
+    }
+
+    /* a game played by a pair of players */
+    private static final class Game {
+        private String id;
+        private String cross;
+        private String circle;
+        private WebSocket crossSocket;
+        private WebSocket circleSocket;
+        private final Promise<Void> started = Promise.promise();
+        private final Promise<Void> ended = Promise.promise();
+        private int endedSockets;
+        /* the time each cell has been played, and whether the other player has seen it */
+        private final long[] sentAt = new long[9];
+        private final List<Promise<Void>> seen = new ArrayList<>(9);
+
+        Game() {
+            for (int i = 0; i < 9; i++) {
+                this.seen.add(Promise.promise());
+            }
+        }
+
+        void close() {
+            if (this.crossSocket != null) {
+                this.crossSocket.close();
+            }
+            if (this.circleSocket != null) {
+                this.circleSocket.close();
+            }
+        }
+    }
+}
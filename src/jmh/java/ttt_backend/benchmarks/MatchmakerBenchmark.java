@@ -0,0 +1,74 @@
+package ttt_backend.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ttt_backend.application.Matchmaker;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.User;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enqueues into the {@link Matchmaker} from 7 threads at once, the event
+ * loops, while the pairing loop drains the queue by batches of 4096 tickets
+ * from an eighth thread. Each enqueuing thread cycles through its own 100k
+ * users; an enqueue of a user still waiting is refused, and counted too.
+ * One enqueue in 8 is for a 15 x 15 board, the others for tic-tac-toe.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchmakerBenchmark {
+    private static final int USERS_PER_THREAD = 100_000;
+    private static final BoardSize GOMOKU = new BoardSize(15, 15, 5);
+
+    private final Matchmaker matchmaker = new Matchmaker();
+    private final AtomicInteger threads = new AtomicInteger();
+
+    /* the users of an enqueuing thread */
+    @State(Scope.Thread)
+    public static class Players {
+        private User[] users;
+        private int next;
+
+        @Setup
+        public void setUp(MatchmakerBenchmark benchmark) {
+            final int thread = benchmark.threads.getAndIncrement();
+            this.users = new User[USERS_PER_THREAD];
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                this.users[i] = new User("user-" + thread + "-" + i, "player");
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("matchmaking")
+    @GroupThreads(7)
+    public boolean enqueue(Players players) {
+        final int i = players.next;
+        players.next = i + 1 == USERS_PER_THREAD ? 0 : i + 1;
+        return this.matchmaker.enqueue(players.users[i], (i & 7) == 0 ? GOMOKU : BoardSize.CLASSIC);
+    }
+
+    @Benchmark
+    @Group("matchmaking")
+    @GroupThreads(1)
+    public List<Matchmaker.Pair> pair() {
+        return this.matchmaker.pair(4096, System.nanoTime() - TimeUnit.MINUTES.toNanos(1), ticket -> {});
+    }
+}
@@ -0,0 +1,67 @@
+package ttt_backend.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ttt_backend.infrastucture.apis.RateLimiter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Takes permits of the {@link RateLimiter} of the moves from 8 threads at
+ * once, the event loops: in {@code spread} each thread cycles through its
+ * own 100k users, as many players would; in {@code hotKey} all the threads
+ * take the permits of the same user, the worst case of the compare-and-set
+ * of a bucket. Most permits of the hot key are refused, which is measured too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class RateLimiterBenchmark {
+    private static final int USERS_PER_THREAD = 100_000;
+
+    private final RateLimiter limiter = new RateLimiter(10, Duration.ofSeconds(1), 20);
+    private final AtomicInteger threads = new AtomicInteger();
+
+    /* the users of a thread */
+    @State(Scope.Thread)
+    public static class Players {
+        private String[] users;
+        private int next;
+
+        @Setup
+        public void setUp(RateLimiterBenchmark benchmark) {
+            final int thread = benchmark.threads.getAndIncrement();
+            this.users = new String[USERS_PER_THREAD];
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                this.users[i] = "user-" + thread + "-" + i;
+            }
+        }
+    }
+
+    @Benchmark
+    public long spread(Players players) {
+        final int i = players.next;
+        players.next = i + 1 == USERS_PER_THREAD ? 0 : i + 1;
+        return this.limiter.acquire(players.users[i]);
+    }
+
+    @Benchmark
+    public long hotKey() {
+        return this.limiter.acquire("user-1");
+    }
+}
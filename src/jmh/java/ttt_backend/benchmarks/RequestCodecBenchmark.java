@@ -0,0 +1,73 @@
+package ttt_backend.benchmarks;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ttt_backend.application.Command;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+import ttt_backend.infrastucture.apis.ReplyWriter;
+import ttt_backend.infrastucture.apis.RequestCodec;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a request and encoding of its reply, comparing the streaming
+ * {@link RequestCodec} and {@link ReplyWriter} with the former handling
+ * through a {@link JsonObject} tree.
+ * Run with {@code -prof gc} to compare the bytes allocated per request
+ * ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestCodecBenchmark {
+    private final Buffer moveRequest = Buffer.buffer(
+            "{\"userId\":\"user-1\",\"gameId\":\"game-1\",\"symbol\":\"cross\",\"x\":\"1\",\"y\":\"2\"}");
+    private final Buffer registerRequest = Buffer.buffer("{\"userName\":\"alice\"}");
+    private final ReplyWriter replies = new ReplyWriter();
+
+    @Benchmark
+    public Buffer makeMoveStreaming() {
+        final Command.MakeMove move = RequestCodec.readMakeMove(this.moveRequest);
+        return this.replies.result(move.x() + move.y() == 3 && move.symbol() == Game.GameSymbolType.CROSS);
+    }
+
+    @Benchmark
+    public String makeMoveJsonObject() {
+        final JsonObject moveInfo = this.moveRequest.toJsonObject();
+        final var userId = moveInfo.getString("userId");
+        final var gameId = moveInfo.getString("gameId");
+        final var symbol = moveInfo.getString("symbol");
+        final int x = Integer.parseInt(moveInfo.getString("x"));
+        final int y = Integer.parseInt(moveInfo.getString("y"));
+        final var gameSym = symbol.equals("cross") ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE;
+        final boolean accepted = userId != null && gameId != null && x + y == 3 && gameSym == Game.GameSymbolType.CROSS;
+        return new JsonObject().put("result", accepted ? "accepted" : "denied").toString();
+    }
+
+    @Benchmark
+    public Buffer registerUserStreaming() {
+        final Command.RegisterUser register = RequestCodec.readRegisterUser(this.registerRequest);
+        return this.replies.user(new User("user-1", register.userName()));
+    }
+
+    @Benchmark
+    public String registerUserJsonObject() {
+        final JsonObject userInfo = this.registerRequest.toJsonObject();
+        final var userName = userInfo.getString("userName");
+        final var user = new User("user-1", userName);
+        return new JsonObject().put("userId", user.id()).put("userName", userName).toString();
+    }
+}
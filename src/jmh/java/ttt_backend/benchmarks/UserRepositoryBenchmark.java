@@ -0,0 +1,103 @@
+package ttt_backend.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ttt_backend.domain.models.User;
+import ttt_backend.domain.ports.UserRepository;
+import ttt_backend.infrastucture.databases.IndexedJsonUserRepository;
+import ttt_backend.infrastucture.databases.JsonUserRepository;
+import ttt_backend.infrastucture.databases.LogUserRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Saving a user and looking a user up, in the users' stores filled with
+ * 1k, 100k and 1M users: the plain JSON file ({@link JsonUserRepository}),
+ * the indexed JSON file ({@link IndexedJsonUserRepository}) and the log
+ * ({@link LogUserRepository}).
+ * The store is rebuilt before each iteration, so the users saved by an
+ * iteration do not slow down the next one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class UserRepositoryBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    @Param({"json", "indexed", "log"})
+    public String store;
+
+    private Path directory;
+    private UserRepository repository;
+    private int saved;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("ttt-users-bench");
+        final Path json = this.directory.resolve("users.json");
+        try (BufferedWriter out = Files.newBufferedWriter(json)) {
+            out.write('[');
+            for (int i = 0; i < this.users; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write("{\"id\":\"user-" + i + "\",\"username\":\"player-" + i + "\"}");
+            }
+            out.write(']');
+        }
+        this.repository = switch (this.store) {
+            case "json" -> new JsonUserRepository(json);
+            case "indexed" -> new IndexedJsonUserRepository(json, 200);
+            case "log" -> {
+                final var log = new LogUserRepository(this.directory.resolve("log"), 64L * 1024 * 1024);
+                log.importFrom(json);
+                yield log;
+            }
+            default -> throw new IllegalArgumentException(this.store);
+        };
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        if (this.repository instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Optional<User> getUserById() {
+        return this.repository.getUserById("user-" + ThreadLocalRandom.current().nextInt(this.users));
+    }
+
+    @Benchmark
+    public User save() {
+        this.saved++;
+        return this.repository.save(new User("bench-" + this.saved, "bench"));
+    }
+}
@@ -1,22 +1,210 @@
 package ttt_backend;
 
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import ttt_backend.application.GameApplication;
+import ttt_backend.domain.ports.GameRepository;
+import ttt_backend.domain.ports.IdAllocator;
+import ttt_backend.domain.ports.UserRepository;
+import ttt_backend.infrastucture.apis.AdmissionControl;
 import ttt_backend.infrastucture.apis.GameAPI;
-import ttt_backend.infrastucture.databases.MapGameRepository;
+import ttt_backend.infrastucture.apis.MatchmakingVerticle;
+import ttt_backend.infrastucture.apis.RateLimiter;
+import ttt_backend.infrastucture.databases.BlockIdAllocator;
+import ttt_backend.infrastucture.databases.ConcurrentGameRepository;
+import ttt_backend.infrastucture.databases.IndexedJsonUserRepository;
+import ttt_backend.infrastucture.databases.LogGameRepository;
+import ttt_backend.infrastucture.databases.LogUserRepository;
+import ttt_backend.infrastucture.databases.PackedGameRepository;
 import ttt_backend.infrastucture.databases.JsonUserRepository;
+import ttt_backend.infrastucture.execution.DirectGameExecutor;
+import ttt_backend.infrastucture.execution.PartitionedGameExecutor;
+import ttt_backend.infrastucture.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.stream.Stream;
 
 public class TTTBackend {
     private static final int BACKEND_PORT = 8080;
+    private static final Path USERS_JSON = Paths.get("users.json");
+    private static final Path IDS_DIRECTORY = Paths.get("ids");
 
     /**
-     * Main method to launch the backend.
+     * Main method to launch the backend, configured by the {@code ttt.*} system properties
+     * read below: {@code ttt.instances} API instances (default: one per core) share the
+     * application, running the commands of a game under its lock or, with
+     * {@code ttt.execution=partitioned}, on the owner of the game.
      *
      * @param args
      */
     public static void main(String[] args) {
         final var vertx = Vertx.vertx();
-        final var application = new GameApplication(new JsonUserRepository(), new MapGameRepository());
-        vertx.deployVerticle(new GameAPI(application, BACKEND_PORT));
+        final int instances = Integer.getInteger("ttt.instances", Runtime.getRuntime().availableProcessors());
+        final var userRepository = createUserRepository();
+        final var metrics = new MetricsRegistry();
+        final var admission = createAdmissionControl();
+        final boolean partitioned = System.getProperty("ttt.execution", "locking").equals("partitioned");
+        final var gameRepository = createGameRepository(metrics, !partitioned);
+        final var userIds = createIdAllocator("users.hwm", maxStoredUserId(userRepository));
+        final var gameIds = createIdAllocator("games.hwm", gameRepository instanceof LogGameRepository log
+                ? maxId(log.ids().stream(), "game-") : 0);
+
+        if (partitioned) {
+            final var application = new GameApplication(userRepository, gameRepository, userIds, gameIds, false);
+            deployMatchmaking(vertx, application, metrics);
+            PartitionedGameExecutor.deploy(vertx, instances)
+                    .compose(executor -> vertx.deployVerticle(
+                            () -> new GameAPI(application, executor, metrics, admission, BACKEND_PORT),
+                            new DeploymentOptions().setInstances(instances)));
+        } else {
+            final var application = new GameApplication(userRepository, gameRepository, userIds, gameIds, true);
+            deployMatchmaking(vertx, application, metrics);
+            vertx.deployVerticle(() -> new GameAPI(application, new DirectGameExecutor(), metrics, admission,
+                            BACKEND_PORT),
+                    new DeploymentOptions().setInstances(instances));
+        }
+    }
+
+    /* players wait for an opponent at most ttt.matchmaking.maxWaitSeconds seconds (default 60) */
+    private static void deployMatchmaking(Vertx vertx, GameApplication application, MetricsRegistry metrics) {
+        vertx.deployVerticle(new MatchmakingVerticle(application, metrics,
+                Duration.ofSeconds(Long.getLong("ttt.matchmaking.maxWaitSeconds", 60))));
+    }
+
+    /*
+     * Over a rate limit a request gets a 429 (0 lifts a limit): ttt.admission.movesPerSecond
+     * moves per user (default 10, bursts of ttt.admission.moveBurst, 20), and
+     * ttt.admission.registrationsPerMinute registrations per client address (default 60,
+     * bursts of ttt.admission.registrationBurst, 20). Over the concurrency limit of its event
+     * loop a request gets a 503: the limit starts at ttt.admission.maxConcurrency (default 1024,
+     * 0 for none) and shrinks while the loop lags more than ttt.admission.lagTargetMs (50) or
+     * the requests take longer than ttt.admission.latencyTargetMs (250) on average.
+     */
+    private static AdmissionControl createAdmissionControl() {
+        return new AdmissionControl(
+                new RateLimiter(Long.getLong("ttt.admission.movesPerSecond", 10), Duration.ofSeconds(1),
+                        Integer.getInteger("ttt.admission.moveBurst", 20)),
+                new RateLimiter(Long.getLong("ttt.admission.registrationsPerMinute", 60), Duration.ofMinutes(1),
+                        Integer.getInteger("ttt.admission.registrationBurst", 20)),
+                Integer.getInteger("ttt.admission.maxConcurrency", 1024),
+                Duration.ofMillis(Long.getLong("ttt.admission.lagTargetMs", 50)),
+                Duration.ofMillis(Long.getLong("ttt.admission.latencyTargetMs", 250)));
+    }
+
+    /*
+     * ttt.games selects the games' repository: memory (default) evicts the games idle for
+     * ttt.games.idleTtlMinutes minutes (default 30) and keeps at most ttt.games.max games
+     * (default 100000); log makes them durable in games-log, acknowledging a command only
+     * once durable with ttt.games.sync=true; packed keeps them all in primitive slabs.
+     */
+    private static GameRepository createGameRepository(MetricsRegistry metrics, boolean lockGames) {
+        if (System.getProperty("ttt.games", "memory").equals("log")) {
+            final var repository = new LogGameRepository(Paths.get("games-log"), Duration.ofMinutes(1), 64L << 20,
+                    Boolean.getBoolean("ttt.games.sync"), lockGames);
+            Runtime.getRuntime().addShutdownHook(new Thread(repository::close));
+            metrics.gauge("ttt_games_active", "Games not finished yet", repository::activeGames);
+            metrics.gauge("ttt_games_stored", "Games stored, finished or not", repository::size);
+            return repository;
+        }
+        if (System.getProperty("ttt.games", "memory").equals("packed")) {
+            final var repository = new PackedGameRepository();
+            metrics.gauge("ttt_games_active", "Games not finished yet", repository::activeGames);
+            metrics.gauge("ttt_games_stored", "Games stored, finished or not", repository::size);
+            metrics.gauge("ttt_games_views", "Games materialized and still in use", repository::views);
+            metrics.gauge("ttt_games_bytes_per_game", "Bytes of the packed store per game", repository::bytesPerGame);
+            return repository;
+        }
+        final var repository = new ConcurrentGameRepository(
+                Duration.ofMinutes(Long.getLong("ttt.games.idleTtlMinutes", 30)),
+                Duration.ofMinutes(1),
+                Integer.getInteger("ttt.games.max", 100_000));
+        Runtime.getRuntime().addShutdownHook(new Thread(repository::close));
+        metrics.gauge("ttt_games_active", "Games not finished yet", repository::activeGames);
+        metrics.gauge("ttt_games_stored", "Games stored, finished or not", repository::size);
+        metrics.gauge("ttt_games_evicted_finished", "Games evicted once finished, so far",
+                () -> repository.getEvictions().finished());
+        metrics.gauge("ttt_games_evicted_idle", "Games evicted as idle, so far",
+                () -> repository.getEvictions().idle());
+        metrics.gauge("ttt_games_evicted_capacity", "Least recently used games evicted at capacity, so far",
+                () -> repository.getEvictions().capacity());
+        metrics.gauge("ttt_games_evicted_playing", "Games evicted at capacity while being played, so far",
+                () -> repository.getEvictions().playing());
+        return repository;
+    }
+
+    /*
+     * Ids are leased by blocks of ttt.ids.block (default 1000) from a high-water mark in the ids
+     * directory; processes not sharing it must be given different shards, ttt.ids.shard
+     * (default 0) of ttt.ids.shards (default 1).
+     */
+    private static IdAllocator createIdAllocator(String file, long maxStoredId) {
+        final var allocator = new BlockIdAllocator(IDS_DIRECTORY.resolve(file), Integer.getInteger("ttt.ids.block", 1000),
+                Integer.getInteger("ttt.ids.shard", 0), Integer.getInteger("ttt.ids.shards", 1), maxStoredId);
+        Runtime.getRuntime().addShutdownHook(new Thread(allocator::close));
+        return allocator;
+    }
+
+    /* the highest id of the users stored, in the log if in use, and in users.json, to start above it */
+    private static long maxStoredUserId(UserRepository repository) {
+        final long logged = repository instanceof LogUserRepository log ? maxId(log.ids().stream(), "user-") : 0;
+        if (!Files.exists(USERS_JSON)) {
+            return logged;
+        }
+        try {
+            /* an empty users.json holds no user, as for JsonRepository */
+            final String content = Files.readString(USERS_JSON);
+            if (content.isBlank()) {
+                return logged;
+            }
+            return Math.max(logged, maxId(new JsonArray(content).stream()
+                    .map(user -> ((JsonObject) user).getString("id")), "user-"));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long maxId(Stream<String> ids, String prefix) {
+        return ids.filter(id -> id != null && id.startsWith(prefix))
+                .mapToLong(id -> {
+                    try {
+                        return Long.parseLong(id.substring(prefix.length()));
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                })
+                .max()
+                .orElse(0);
+    }
+
+    /*
+     * ttt.users selects the users' repository: json (default), indexed or log; the log
+     * imports the users of users.json the first time it is used.
+     */
+    private static UserRepository createUserRepository() {
+        final String mode = System.getProperty("ttt.users", "json");
+        if (mode.equals("indexed")) {
+            final var repository = new IndexedJsonUserRepository();
+            Runtime.getRuntime().addShutdownHook(new Thread(repository::close));
+            return repository;
+        }
+        if (mode.equals("log")) {
+            final var repository = new LogUserRepository();
+            if (repository.isEmpty() && Files.exists(USERS_JSON)) {
+                try {
+                    repository.importFrom(USERS_JSON);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(repository::close));
+            return repository;
+        }
+        return new JsonUserRepository();
     }
 }
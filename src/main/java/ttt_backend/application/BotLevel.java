@@ -0,0 +1,71 @@
+package ttt_backend.application;
+
+import ttt_backend.domain.models.User;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The levels of the bots, each playing as its own user: a bot plays the
+ * best move of the {@link MoveTable}, except for a share of its moves,
+ * where it blunders on purpose, playing one of the worse moves.
+ */
+public enum BotLevel {
+    EASY(0.6),
+    MEDIUM(0.3),
+    HARD(0.1),
+    PERFECT(0);
+
+    private static final String ID_PREFIX = "bot-";
+
+    private final double blunders;
+    private final User user;
+
+    BotLevel(double blunders) {
+        this.blunders = blunders;
+        final String name = name().toLowerCase(Locale.ROOT);
+        this.user = new User(ID_PREFIX + name, "bot (" + name + ")");
+    }
+
+    /**
+     * @return the share of the moves where the bot plays a worse move than the best
+     */
+    public double blunders() {
+        return this.blunders;
+    }
+
+    /**
+     * @return the user playing as the bot
+     */
+    public User user() {
+        return this.user;
+    }
+
+    /**
+     * @param user a user
+     * @return the level of the bot, if the user is a bot
+     */
+    public static Optional<BotLevel> of(User user) {
+        if (!user.id().startsWith(ID_PREFIX)) {
+            return Optional.empty();
+        }
+        for (final BotLevel level : values()) {
+            if (level.user.id().equals(user.id())) {
+                return Optional.of(level);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param name the name of a level, in any case
+     * @return the level
+     * @throws IllegalArgumentException if there is no such level
+     */
+    public static BotLevel named(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Missing level");
+        }
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
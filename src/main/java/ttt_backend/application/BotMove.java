@@ -0,0 +1,13 @@
+package ttt_backend.application;
+
+import ttt_backend.domain.models.Game;
+
+/**
+ * A move made by a bot.
+ *
+ * @param symbol the symbol of the bot
+ * @param x the x of the move, as in the moves of the users
+ * @param y the y of the move, as in the moves of the users
+ * @param result the outcome of the move
+ */
+public record BotMove(Game.GameSymbolType symbol, int x, int y, MoveResult result) {}
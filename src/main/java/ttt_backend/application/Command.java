@@ -0,0 +1,20 @@
+package ttt_backend.application;
+
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+
+/**
+ * A command of the application.
+ * The ids of the users and games can refer to the user registered or the game
+ * created by an earlier command of the same batch, as {@code "$<index>"}.
+ */
+public sealed interface Command {
+
+    record RegisterUser(String userName) implements Command {}
+
+    record CreateGame(BoardSize board) implements Command {}
+
+    record JoinGame(String userId, String gameId, Game.GameSymbolType symbol) implements Command {}
+
+    record MakeMove(String userId, String gameId, Game.GameSymbolType symbol, int x, int y) implements Command {}
+}
@@ -0,0 +1,236 @@
+package ttt_backend.application;
+
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+import ttt_backend.domain.ports.GameRepository;
+import ttt_backend.domain.ports.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A batch of commands, run in order as a unit of work: all the users and
+ * games the batch refers to are read with a single read per repository
+ * ({@link #load()}), the commands are run on them one by one ({@link #run(int)}),
+ * then the users registered and the games changed are saved with a single
+ * write per repository ({@link #commit()}).
+ * <p>
+ * A failed command does not stop the batch. The commands changing a game
+ * can be run by the serializer of the game ({@link #gameIdOf(int)}), one
+ * command at a time: {@link #execute(GameSerializer)} runs the whole batch
+ * so, saving each game changed by its serializer too when the serializer
+ * owns the games, as they are then changed without locks.
+ */
+public final class CommandBatch {
+    private static final String REFERENCE = "$";
+
+    private final GameApplication application;
+    private final UserRepository userRepository;
+    private final GameRepository gameRepository;
+    private final List<Command> commands;
+    private final CommandResult[] results;
+    private final Map<String, User> users = new HashMap<>();
+    private final Map<String, Game> games = new HashMap<>();
+    private final List<User> registeredUsers = new ArrayList<>();
+    private final Set<Game> changedGames = new LinkedHashSet<>();
+
+    CommandBatch(GameApplication application, UserRepository userRepository, GameRepository gameRepository,
+                 List<Command> commands) {
+        this.application = application;
+        this.userRepository = userRepository;
+        this.gameRepository = gameRepository;
+        this.commands = List.copyOf(commands);
+        this.results = new CommandResult[commands.size()];
+    }
+
+    public List<Command> commands() {
+        return this.commands;
+    }
+
+    /**
+     * Load the batch, run its commands in order, those changing a game by the
+     * serializer, then commit it.
+     *
+     * @param serializer the serializer of the operations on each game
+     * @return a stage completed with the results of the commands, in order
+     */
+    public CompletionStage<List<CommandResult>> execute(GameSerializer serializer) {
+        CompletionStage<?> steps = load();
+        for (int i = 0; i < this.commands.size(); i++) {
+            final int index = i;
+            steps = steps.thenCompose(v -> {
+                final String gameId = gameIdOf(index);
+                return gameId == null ? run(index) : serializer.execute(gameId, () -> run(index));
+            });
+        }
+        return steps.thenCompose(v -> serializer.ownsGames() ? commit(serializer) : commit());
+    }
+
+    /**
+     * Read the users and games the commands refer to.
+     *
+     * @return a stage completed when the batch is loaded
+     */
+    public CompletionStage<Void> load() {
+        final Set<String> userIds = new HashSet<>();
+        final Set<String> gameIds = new HashSet<>();
+        for (final Command command : this.commands) {
+            if (command instanceof Command.JoinGame join) {
+                addId(userIds, join.userId());
+                addId(gameIds, join.gameId());
+            } else if (command instanceof Command.MakeMove move) {
+                addId(userIds, move.userId());
+                addId(gameIds, move.gameId());
+            }
+        }
+        return GameApplication.staged(() -> this.userRepository.getUsersByIdAsync(userIds)
+                .thenCombine(this.gameRepository.getGamesByIdAsync(gameIds), (users, games) -> {
+                    this.users.putAll(users);
+                    this.games.putAll(games);
+                    return null;
+                }));
+    }
+
+    /**
+     * @param index the index of the command
+     * @return the id of the game changed by the command, or null if it
+     *         does not change an existing game
+     */
+    public String gameIdOf(int index) {
+        final Command command = this.commands.get(index);
+        if (command instanceof Command.JoinGame join) {
+            return resolve(join.gameId());
+        } else if (command instanceof Command.MakeMove move) {
+            return resolve(move.gameId());
+        }
+        return null;
+    }
+
+    /**
+     * Run a command of the loaded batch. The commands must be run in order,
+     * one at a time, and their changes are only saved by {@link #commit()}.
+     *
+     * @param index the index of the command
+     * @return a stage completed with the result of the command
+     */
+    public CompletionStage<CommandResult> run(int index) {
+        CommandResult result;
+        try {
+            result = CommandResult.success(execute(this.commands.get(index)));
+        } catch (CompletionException e) {
+            result = CommandResult.failure(e.getCause());
+        } catch (RuntimeException e) {
+            result = CommandResult.failure(e);
+        }
+        this.results[index] = result;
+        return CompletableFuture.completedFuture(result);
+    }
+
+    /**
+     * Save the users registered and the games changed by the batch.
+     *
+     * @return a stage completed with the results of the commands, in order
+     */
+    public CompletionStage<List<CommandResult>> commit() {
+        return this.userRepository.saveAllAsync(List.copyOf(this.registeredUsers))
+                .thenCombine(this.gameRepository.saveAllAsync(List.copyOf(this.changedGames)),
+                        (users, games) -> Arrays.asList(this.results));
+    }
+
+    /**
+     * Save the users registered with a single write, and each game changed
+     * by the serializer of its operations.
+     *
+     * @param serializer the serializer owning the games
+     * @return a stage completed with the results of the commands, in order
+     */
+    public CompletionStage<List<CommandResult>> commit(GameSerializer serializer) {
+        final List<CompletableFuture<Game>> saves = new ArrayList<>();
+        for (final Game game : this.changedGames) {
+            saves.add(serializer.execute(game.getId(), () -> this.gameRepository.saveAsync(game)).toCompletableFuture());
+        }
+        return this.userRepository.saveAllAsync(List.copyOf(this.registeredUsers))
+                .thenCombine(CompletableFuture.allOf(saves.toArray(CompletableFuture[]::new)),
+                        (users, games) -> Arrays.asList(this.results));
+    }
+
+    private Object execute(Command command) {
+        if (command instanceof Command.RegisterUser register) {
+            final User user = this.application.newUser(register.userName());
+            this.users.put(user.id(), user);
+            this.registeredUsers.add(user);
+            return user;
+        } else if (command instanceof Command.CreateGame create) {
+            final Game game = this.application.newGame(create.board());
+            this.games.put(game.getId(), game);
+            this.changedGames.add(game);
+            return game;
+        } else if (command instanceof Command.JoinGame join) {
+            final Game game = game(join.gameId());
+            this.application.join(user(join.userId()), game, join.symbol());
+            this.changedGames.add(game);
+            return null;
+        } else {
+            final Command.MakeMove move = (Command.MakeMove) command;
+            final Game game = game(move.gameId());
+            final MoveResult result = this.application.move(user(move.userId()), game, move.symbol(), move.x(), move.y());
+            this.changedGames.add(game);
+            return result;
+        }
+    }
+
+    private User user(String id) {
+        final User user = this.users.get(resolve(id));
+        if (user == null) {
+            throw new NoSuchElementException("No user " + id);
+        }
+        return user;
+    }
+
+    private Game game(String id) {
+        final Game game = this.games.get(resolve(id));
+        if (game == null) {
+            throw new NoSuchElementException("No game " + id);
+        }
+        return game;
+    }
+
+    /*
+     * Resolve a reference to the user or game of an earlier command,
+     * left as is if the command failed
+     */
+    private String resolve(String id) {
+        if (id == null || !id.startsWith(REFERENCE)) {
+            return id;
+        }
+        final int index;
+        try {
+            index = Integer.parseInt(id.substring(REFERENCE.length()));
+        } catch (NumberFormatException e) {
+            return id;
+        }
+        final CommandResult result = index >= 0 && index < this.results.length ? this.results[index] : null;
+        if (result != null && result.value() instanceof User user) {
+            return user.id();
+        } else if (result != null && result.value() instanceof Game game) {
+            return game.getId();
+        }
+        return id;
+    }
+
+    private static void addId(Set<String> ids, String id) {
+        if (id != null && !id.startsWith(REFERENCE)) {
+            ids.add(id);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ttt_backend.application;
+
+/**
+ * The outcome of a command of a batch: the registered {@link ttt_backend.domain.models.User},
+ * the created {@link ttt_backend.domain.models.Game}, no value for a join and the
+ * {@link MoveResult} of a move, or the failure of the command.
+ */
+public record CommandResult(Object value, Throwable failure) {
+
+    public static CommandResult success(Object value) {
+        return new CommandResult(value, null);
+    }
+
+    public static CommandResult failure(Throwable failure) {
+        return new CommandResult(null, failure);
+    }
+
+    public boolean succeeded() {
+        return this.failure == null;
+    }
+}
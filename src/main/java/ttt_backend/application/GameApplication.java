@@ -2,24 +2,53 @@ package ttt_backend.application;
 
 import ttt_backend.domain.models.*;
 import ttt_backend.domain.ports.GameRepository;
+import ttt_backend.domain.ports.IdAllocator;
 import ttt_backend.domain.ports.UserRepository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 /**
  * This class represents the application of the architecture.
+ * Its operations are asynchronous, never throw, and are safe under concurrent access.
  */
 public class GameApplication {
     private final UserRepository userRepository;
     private final GameRepository gameRepository;
-    private int userId;
-    private int gameId;
+    private final IdAllocator userIds;
+    private final IdAllocator gameIds;
+    private final boolean lockGames;
+    /* the moves of the bots, from a table of all the positions, solved at creation */
+    private final MoveTable moves = MoveTable.build();
+    private final Matchmaker matchmaker = new Matchmaker();
 
     public GameApplication(UserRepository userRepository, GameRepository gameRepository) {
+        this(userRepository, gameRepository, true);
+    }
+
+    public GameApplication(UserRepository userRepository, GameRepository gameRepository, boolean lockGames) {
+        this(userRepository, gameRepository, IdAllocator.inMemory(1), IdAllocator.inMemory(1), lockGames);
+    }
+
+    /**
+     * @param userRepository the users' repository
+     * @param gameRepository the games' repository
+     * @param userIds the allocator of the ids of the users
+     * @param gameIds the allocator of the ids of the games
+     * @param lockGames false if the caller never runs two operations on the same game concurrently
+     */
+    public GameApplication(UserRepository userRepository, GameRepository gameRepository,
+                           IdAllocator userIds, IdAllocator gameIds, boolean lockGames) {
         this.userRepository = userRepository;
         this.gameRepository = gameRepository;
-        this.userId = 1;
-        this.gameId = 1;
+        this.userIds = userIds;
+        this.gameIds = gameIds;
+        this.lockGames = lockGames;
     }
 
     /**
@@ -28,17 +57,27 @@ public class GameApplication {
      * @param username the username of the user
      * @return the registered user
      */
-    public User registerUser(String username) {
-        return this.userRepository.save(new User("user-" + this.userId++, username));
+    public CompletionStage<User> registerUser(String username) {
+        return staged(() -> this.userRepository.saveAsync(newUser(username)));
+    }
+
+    /**
+     * Create a new game, on the board of tic-tac-toe.
+     *
+     * @return the new game created
+     */
+    public CompletionStage<Game> createNewGame() {
+        return createNewGame(BoardSize.CLASSIC);
     }
 
     /**
      * Create a new game.
      *
+     * @param board the size of the board and the number in a row winning the game
      * @return the new game created
      */
-    public Game createNewGame() {
-        return this.gameRepository.save(new Game("game-" + this.gameId++));
+    public CompletionStage<Game> createNewGame(BoardSize board) {
+        return staged(() -> this.gameRepository.saveAsync(newGame(board)));
     }
 
     /**
@@ -47,20 +86,60 @@ public class GameApplication {
      * @param gameId the id of the game
      * @return true if the game can start, false otherwise
      */
-    public boolean isGameReadyToStart(String gameId){
-        final Optional<Game> game = this.gameRepository.getGameById(gameId);
-        return game.map(Game::bothPlayersJoined).orElse(false);
+    public CompletionStage<Boolean> isGameReadyToStart(String gameId) {
+        return staged(() -> this.gameRepository.getGameByIdAsync(gameId)
+                .thenApply(game -> game.map(Game::bothPlayersJoined).orElse(false)));
     }
 
     /**
      * Start the game.
      *
      * @param gameId the ID of the game to start
-     * @throws CannotStartGameException if the game cannot be started
+     * @return a stage failed with {@link CannotStartGameException} if the game cannot be started
+     */
+    public CompletionStage<Void> startGame(String gameId) {
+        return staged(() -> this.gameRepository.getGameByIdAsync(gameId).thenCompose(found -> {
+            final Game game = found.orElseThrow();
+            onGame(game, () -> {
+                try {
+                    game.start();
+                    return null;
+                } catch (CannotStartGameException e) {
+                    throw new CompletionException(e);
+                }
+            });
+            return this.gameRepository.saveAsync(game);
+        }).thenAccept(game -> {}));
+    }
+
+    /**
+     * Start the game if both players joined and it has not been started yet,
+     * checking and starting it atomically.
+     *
+     * @param gameId the ID of the game to start
+     * @return the board of the game if it has been started by this call, empty otherwise
      */
-    public void startGame(String gameId) throws CannotStartGameException {
-        final Game game = this.gameRepository.getGameById(gameId).orElseThrow();
-        game.start();
+    public CompletionStage<Optional<BoardSize>> startGameIfReady(String gameId) {
+        return staged(() -> this.gameRepository.getGameByIdAsync(gameId).thenCompose(found -> {
+            if (found.isEmpty()) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            final Game game = found.get();
+            final boolean started = onGame(game, () -> {
+                if (game.getState() != Game.GameState.WAITING_PLAYER || !game.bothPlayersJoined()) {
+                    return false;
+                }
+                try {
+                    game.start();
+                    return true;
+                } catch (CannotStartGameException e) {
+                    return false;
+                }
+            });
+            return started
+                    ? this.gameRepository.saveAsync(game).thenApply(saved -> Optional.of(saved.getBoardSize()))
+                    : CompletableFuture.completedFuture(Optional.empty());
+        }));
     }
 
     /**
@@ -69,13 +148,14 @@ public class GameApplication {
      * @param userId the user ID
      * @param gameId the game ID
      * @param symbol the symbol of the user
-     * @throws InvalidJoinException if the user cannot join the game
+     * @return a stage failed with {@link InvalidJoinException} if the user cannot join the game
      */
-    public void joinGame(String userId, String gameId, Game.GameSymbolType symbol) throws InvalidJoinException {
-        final User user = this.userRepository.getUserById(userId).orElseThrow();
-        final Game game = this.gameRepository.getGameById(gameId).orElseThrow();
-        game.joinGame(user, symbol);
-        this.gameRepository.save(game);
+    public CompletionStage<Void> joinGame(String userId, String gameId, Game.GameSymbolType symbol) {
+        return staged(() -> this.userRepository.getUserByIdAsync(userId)
+                .thenCombine(this.gameRepository.getGameByIdAsync(gameId), (Optional<User> u, Optional<Game> g) ->
+                        join(u.orElseThrow(), g.orElseThrow(), symbol))
+                .thenCompose(this.gameRepository::saveAsync)
+                .thenAccept(game -> {}));
     }
 
     /**
@@ -86,13 +166,209 @@ public class GameApplication {
      * @param symbol the symbol of the user
      * @param x the row of the symbol
      * @param y the column of the symbol
-     * @return the new state of the game
-     * @throws InvalidMoveException if the move is not valid
-     */
-    public Game makeMove(String userId, String gameId, Game.GameSymbolType symbol, int x, int y) throws InvalidMoveException {
-        final User user = this.userRepository.getUserById(userId).orElseThrow();
-        final Game game = this.gameRepository.getGameById(gameId).orElseThrow();
-        game.makeAmove(user, symbol, x, y);
-        return this.gameRepository.save(game);
+     * @return the outcome of the move, or a stage failed with
+     *         {@link InvalidMoveException} if the move is not valid
+     */
+    public CompletionStage<MoveResult> makeMove(String userId, String gameId, Game.GameSymbolType symbol, int x, int y) {
+        return staged(() -> this.userRepository.getUserByIdAsync(userId)
+                .thenCombine(this.gameRepository.getGameByIdAsync(gameId), (Optional<User> u, Optional<Game> g) ->
+                        move(u.orElseThrow(), g.orElseThrow(), symbol, x, y))
+                .thenCompose(result -> this.gameRepository.saveAsync(result.game()).thenApply(game -> result)));
+    }
+
+    /**
+     * Let a bot join a game, taking the symbol left, circle if both are free.
+     * The bots play only on the board of tic-tac-toe.
+     *
+     * @param gameId the game ID
+     * @param level the level of the bot
+     * @return the symbol of the bot, or a stage failed with
+     *         {@link InvalidJoinException} if the bot cannot join the game
+     */
+    public CompletionStage<Game.GameSymbolType> joinBot(String gameId, BotLevel level) {
+        return staged(() -> this.gameRepository.getGameByIdAsync(gameId).thenCompose(found -> {
+            final Game game = found.orElseThrow();
+            final Game.GameSymbolType symbol = onGame(game, () -> {
+                if (!game.getBoardSize().isClassic()) {
+                    throw new CompletionException(new InvalidJoinException());
+                }
+                final var free = game.getUser(Game.GameSymbolType.CIRCLE).isEmpty()
+                        ? Game.GameSymbolType.CIRCLE : Game.GameSymbolType.CROSS;
+                join(level.user(), game, free);
+                return free;
+            });
+            return this.gameRepository.saveAsync(game).thenApply(saved -> symbol);
+        }));
+    }
+
+    /**
+     * Let the bot in turn, if any, make its move.
+     *
+     * @param gameId the game ID
+     * @return the move of the bot, or empty if the turn is not up to a bot
+     */
+    public CompletionStage<Optional<BotMove>> playBot(String gameId) {
+        return staged(() -> this.gameRepository.getGameByIdAsync(gameId).thenCompose(found -> {
+            if (found.isEmpty()) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            final Game game = found.get();
+            final Optional<BotMove> played = onGame(game, () -> {
+                final Optional<Game.GameSymbolType> turn = game.getCurrentTurn();
+                final Optional<BotLevel> bot = turn.flatMap(game::getUser).flatMap(BotLevel::of);
+                if (bot.isEmpty()) {
+                    return Optional.empty();
+                }
+                final var symbol = turn.get();
+                final var other = symbol == Game.GameSymbolType.CROSS
+                        ? Game.GameSymbolType.CIRCLE : Game.GameSymbolType.CROSS;
+                final int cell = this.moves.choose((int) game.getCells(symbol, 0), (int) game.getCells(other, 0), bot.get(),
+                        ThreadLocalRandom.current());
+                final int x = cell % 3;
+                final int y = cell / 3;
+                return Optional.of(new BotMove(symbol, x, y, move(bot.get().user(), game, symbol, x, y)));
+            });
+            return played.isEmpty()
+                    ? CompletableFuture.completedFuture(played)
+                    : this.gameRepository.saveAsync(game).thenApply(saved -> played);
+        }));
+    }
+
+    /**
+     * Put a user in the queue of the matchmaking, waiting for an opponent on a board.
+     *
+     * @param userId the user ID
+     * @param board the size of the board and the number in a row winning the game
+     * @return false if there is no such user or the user is already waiting
+     */
+    public CompletionStage<Boolean> findMatch(String userId, BoardSize board) {
+        return staged(() -> this.userRepository.getUserByIdAsync(userId)
+                .thenApply(user -> user.isPresent() && this.matchmaker.enqueue(user.get(), board)));
+    }
+
+    /**
+     * Take a user out of the queue of the matchmaking.
+     *
+     * @param userId the user ID
+     * @return false if the user was not waiting, or has just been paired
+     */
+    public boolean cancelMatch(String userId) {
+        return this.matchmaker.cancel(userId);
+    }
+
+    /**
+     * @return the queue of the matchmaking, drained by the pairing loop
+     */
+    public Matchmaker matchmaker() {
+        return this.matchmaker;
+    }
+
+    /**
+     * Start the game of a pair of players found by the matchmaking: create it,
+     * join the players, the first one as cross, and start it; the match is
+     * then kept for both players by the matchmaker.
+     *
+     * @param pair the players
+     * @return the game started
+     */
+    public CompletionStage<Game> startMatch(Matchmaker.Pair pair) {
+        return staged(() -> {
+            final Game game = newGame(pair.cross().board());
+            join(pair.cross().user(), game, Game.GameSymbolType.CROSS);
+            join(pair.circle().user(), game, Game.GameSymbolType.CIRCLE);
+            onGame(game, () -> {
+                try {
+                    game.start();
+                    return null;
+                } catch (CannotStartGameException e) {
+                    throw new CompletionException(e);
+                }
+            });
+            return this.gameRepository.saveAsync(game).thenApply(saved -> {
+                this.matchmaker.matched(pair, saved.getId());
+                return saved;
+            });
+        });
+    }
+
+    /**
+     * Read the state of a game, consistent with the operations changing it.
+     *
+     * @param gameId the game ID
+     * @return the state of the game, or empty if there is no such game
+     */
+    public CompletionStage<Optional<GameView>> getGame(String gameId) {
+        return staged(() -> this.gameRepository.getGameByIdAsync(gameId)
+                .thenApply(found -> found.map(game -> onGame(game, () -> GameView.of(game)))));
+    }
+
+    /**
+     * Prepare a batch of commands, run in order with a single read and a
+     * single write per repository.
+     *
+     * @param commands the commands
+     * @return the batch, to be loaded, run and committed
+     */
+    public CommandBatch newBatch(List<Command> commands) {
+        return new CommandBatch(this, this.userRepository, this.gameRepository, commands);
+    }
+
+    User newUser(String username) {
+        return new User("user-" + this.userIds.nextId(), username);
+    }
+
+    Game newGame(BoardSize board) {
+        return new Game("game-" + this.gameIds.nextId(), board);
+    }
+
+    Game join(User user, Game game, Game.GameSymbolType symbol) {
+        return onGame(game, () -> {
+            try {
+                game.joinGame(user, symbol);
+                return game;
+            } catch (InvalidJoinException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    MoveResult move(User user, Game game, Game.GameSymbolType symbol, int x, int y) {
+        return onGame(game, () -> {
+            try {
+                game.makeAmove(user, symbol, x, y);
+            } catch (InvalidMoveException e) {
+                throw new CompletionException(e);
+            }
+            final boolean botInTurn = game.getCurrentTurn().flatMap(game::getUser).flatMap(BotLevel::of).isPresent();
+            return new MoveResult(game, game.isGameEnd(), game.getWinner(), botInTurn);
+        });
+    }
+
+    /*
+     * Make the stage of an operation, failing it with what is thrown
+     * while making it, as a repository may throw instead of failing
+     * its stage: the callers are always completed.
+     */
+    static <T> CompletionStage<T> staged(Supplier<CompletionStage<T>> stage) {
+        try {
+            return stage.get();
+        } catch (CompletionException e) {
+            return CompletableFuture.failedFuture(e.getCause() == null ? e : e.getCause());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /*
+     * Run an operation on the game, holding its lock if the
+     * operations on the same game are not serialized by the caller.
+     */
+    private <T> T onGame(Game game, Supplier<T> operation) {
+        if (!this.lockGames) {
+            return operation.get();
+        }
+        synchronized (game) {
+            return operation.get();
+        }
     }
 }
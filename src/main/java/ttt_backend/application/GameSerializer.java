@@ -0,0 +1,30 @@
+package ttt_backend.application;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * This interface represents how the operations on the same game are kept
+ * from running concurrently, as needed by a {@link CommandBatch}.
+ */
+public interface GameSerializer {
+
+    /**
+     * Run an operation on a game, once the previous operations on it completed
+     * if the games are owned.
+     *
+     * @param gameId the id of the game
+     * @param operation the operation
+     * @return the result of the operation
+     * @param <T> the type of the result
+     */
+    <T> CompletionStage<T> execute(String gameId, Supplier<CompletionStage<T>> operation);
+
+    /**
+     * @return true if only the operations run by this serializer may touch a game,
+     *         without locking it, so that saving a game is such an operation too
+     */
+    default boolean ownsGames() {
+        return false;
+    }
+}
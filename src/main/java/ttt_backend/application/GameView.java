@@ -0,0 +1,51 @@
+package ttt_backend.application;
+
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+
+import java.util.Optional;
+
+/**
+ * The state of a game at a version, captured atomically with the
+ * operations changing the game, to be read without holding it.
+ *
+ * @param gameId the id of the game
+ * @param version the version of the game
+ * @param board the size of the board and the number in a row winning the game
+ * @param state the state of the game
+ * @param turn the symbol in turn, if playing
+ * @param winner the winner, if the game ended with a winner
+ * @param cross the id of the user playing cross, if joined
+ * @param circle the id of the user playing circle, if joined
+ * @param crossCells the cells taken by cross, as a bitset where the cell (x, y) is the bit y * width + x
+ * @param circleCells the cells taken by circle, as a bitset where the cell (x, y) is the bit y * width + x
+ */
+public record GameView(String gameId, long version, BoardSize board, Game.GameState state,
+                       Optional<Game.GameSymbolType> turn, Optional<Game.GameSymbolType> winner,
+                       Optional<String> cross, Optional<String> circle, long[] crossCells, long[] circleCells) {
+
+    static GameView of(Game game) {
+        final long[] crossCells = new long[game.getCellWords()];
+        final long[] circleCells = new long[game.getCellWords()];
+        for (int word = 0; word < crossCells.length; word++) {
+            crossCells[word] = game.getCells(Game.GameSymbolType.CROSS, word);
+            circleCells[word] = game.getCells(Game.GameSymbolType.CIRCLE, word);
+        }
+        return new GameView(game.getId(), game.getVersion(), game.getBoardSize(), game.getState(),
+                game.getCurrentTurn(), game.getWinner(),
+                game.getUser(Game.GameSymbolType.CROSS).map(User::id),
+                game.getUser(Game.GameSymbolType.CIRCLE).map(User::id),
+                crossCells, circleCells);
+    }
+
+    /**
+     * @return the symbol in the cell (x, y), or EMPTY
+     */
+    public Game.GameSymbolType cell(int x, int y) {
+        final int cell = y * this.board.width() + x;
+        final long bit = 1L << cell;
+        return (this.crossCells[cell >>> 6] & bit) != 0 ? Game.GameSymbolType.CROSS
+                : (this.circleCells[cell >>> 6] & bit) != 0 ? Game.GameSymbolType.CIRCLE : Game.GameSymbolType.EMPTY;
+    }
+}
@@ -0,0 +1,202 @@
+package ttt_backend.application;
+
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * The players waiting for an opponent, each on a board of a size.
+ * <p>
+ * The players are enqueued from any thread into a lock-free queue, and a
+ * single pairing loop drains it by batches, pairing the players waiting for
+ * the same board in the order they came. The ticket of each player waiting
+ * is also kept by user id in a concurrent map, so that a player waits at
+ * most once: a cancelled ticket is only removed from the map, and skipped
+ * by the loop when drained. The loop claims the two tickets of a pair by
+ * removing them from the map, so a ticket cancelled concurrently is either
+ * cancelled or paired, never both.
+ * <p>
+ * The player drained without an opponent for its board yet waits for the
+ * next ones in a map only used by the pairing loop.
+ * <p>
+ * The match found for a player is kept by user id, so that the player can
+ * fetch it whether or not the notification reached it: until the player
+ * waits again, or for as long as a ticket waits at most.
+ */
+public final class Matchmaker {
+
+    /**
+     * A player waiting for an opponent.
+     *
+     * @param user the player
+     * @param board the board the player wants to play on
+     * @param enqueuedNanos when the player was enqueued, in {@link System#nanoTime()}
+     */
+    public record Ticket(User user, BoardSize board, long enqueuedNanos) {}
+
+    /**
+     * Two players paired, the one who waited longer playing cross.
+     *
+     * @param cross the ticket of the player playing cross
+     * @param circle the ticket of the player playing circle
+     */
+    public record Pair(Ticket cross, Ticket circle) {}
+
+    /**
+     * The game found for a player, already started.
+     *
+     * @param gameId the id of the game
+     * @param board the board of the game
+     * @param symbol the symbol of the player
+     * @param opponent the opponent
+     * @param foundNanos when the game was started, in {@link System#nanoTime()}
+     */
+    public record Match(String gameId, BoardSize board, Game.GameSymbolType symbol, User opponent, long foundNanos) {}
+
+    private final Queue<Ticket> queue = new ConcurrentLinkedQueue<>();
+    private final Map<String, Ticket> waiting = new ConcurrentHashMap<>();
+    /* the ticket drained waiting for an opponent, for each board: only used by the pairing loop */
+    private final Map<BoardSize, Ticket> unpaired = new HashMap<>();
+    private final Map<String, Match> found = new ConcurrentHashMap<>();
+
+    /**
+     * Put a player in the queue.
+     *
+     * @param user the player
+     * @param board the board the player wants to play on
+     * @return false if the player is already waiting
+     */
+    public boolean enqueue(User user, BoardSize board) {
+        final Ticket ticket = new Ticket(user, board, System.nanoTime());
+        if (this.waiting.putIfAbsent(user.id(), ticket) != null) {
+            return false;
+        }
+        this.found.remove(user.id());
+        this.queue.offer(ticket);
+        return true;
+    }
+
+    /**
+     * Take a player out of the queue.
+     *
+     * @param userId the id of the player
+     * @return false if the player was not waiting, or has just been paired
+     */
+    public boolean cancel(String userId) {
+        return this.waiting.remove(userId) != null;
+    }
+
+    /**
+     * Keep the game started for a pair, for both players.
+     *
+     * @param pair the players
+     * @param gameId the id of their game
+     */
+    public void matched(Pair pair, String gameId) {
+        final long now = System.nanoTime();
+        final User cross = pair.cross().user();
+        final User circle = pair.circle().user();
+        this.found.put(cross.id(), new Match(gameId, pair.cross().board(), Game.GameSymbolType.CROSS, circle, now));
+        this.found.put(circle.id(), new Match(gameId, pair.circle().board(), Game.GameSymbolType.CIRCLE, cross, now));
+    }
+
+    /**
+     * @param userId the id of the player
+     * @return the last match found for the player, if still kept
+     */
+    public Optional<Match> match(String userId) {
+        return Optional.ofNullable(this.found.get(userId));
+    }
+
+    /**
+     * @param userId the id of the player
+     * @return true if the player is waiting for an opponent
+     */
+    public boolean isWaiting(String userId) {
+        return this.waiting.containsKey(userId);
+    }
+
+    /**
+     * @return the number of players waiting
+     */
+    public int waiting() {
+        return this.waiting.size();
+    }
+
+    /**
+     * @return true if tickets are left in the queue, to be drained
+     */
+    public boolean queued() {
+        return !this.queue.isEmpty();
+    }
+
+    /**
+     * Pair the players waiting for the same board, draining at most a batch
+     * of tickets from the queue; the tickets enqueued before a time expire,
+     * as do the matches found before it.
+     * Only called by the pairing loop, one call at a time.
+     *
+     * @param maxTickets the most tickets drained
+     * @param expiredBefore the time before which the tickets expire, in {@link System#nanoTime()}
+     * @param expired receives the tickets expired
+     * @return the pairs, in the order the players came
+     */
+    public List<Pair> pair(int maxTickets, long expiredBefore, Consumer<Ticket> expired) {
+        this.found.values().removeIf(match -> match.foundNanos() - expiredBefore < 0);
+        for (final Iterator<Ticket> i = this.unpaired.values().iterator(); i.hasNext(); ) {
+            final Ticket ticket = i.next();
+            if (!isWaiting(ticket)) {
+                i.remove();
+            } else if (ticket.enqueuedNanos() - expiredBefore < 0 && expire(ticket, expired)) {
+                i.remove();
+            }
+        }
+
+        final List<Pair> pairs = new ArrayList<>();
+        Ticket ticket;
+        for (int drained = 0; drained < maxTickets && (ticket = this.queue.poll()) != null; drained++) {
+            if (!isWaiting(ticket)) {
+                continue;
+            }
+            if (ticket.enqueuedNanos() - expiredBefore < 0) {
+                expire(ticket, expired);
+                continue;
+            }
+            final Ticket other = this.unpaired.remove(ticket.board());
+            if (other == null || !this.waiting.remove(other.user().id(), other)) {
+                this.unpaired.put(ticket.board(), ticket);
+            } else if (!this.waiting.remove(ticket.user().id(), ticket)) {
+                /* cancelled meanwhile: the other one waits again, unless it came back with a new ticket */
+                if (this.waiting.putIfAbsent(other.user().id(), other) == null) {
+                    this.unpaired.put(other.board(), other);
+                }
+            } else {
+                pairs.add(new Pair(other, ticket));
+            }
+        }
+        return pairs;
+    }
+
+    private boolean isWaiting(Ticket ticket) {
+        return this.waiting.get(ticket.user().id()) == ticket;
+    }
+
+    private boolean expire(Ticket ticket, Consumer<Ticket> expired) {
+        if (!this.waiting.remove(ticket.user().id(), ticket)) {
+            return false;
+        }
+        expired.accept(ticket);
+        return true;
+    }
+}
@@ -0,0 +1,23 @@
+package ttt_backend.application;
+
+import ttt_backend.domain.models.Game;
+
+import java.util.Optional;
+
+/**
+ * The outcome of a move, captured atomically with the move itself.
+ *
+ * @param game the game
+ * @param gameEnded true if the move ended the game
+ * @param winner the winner, if the move ended the game with a winner
+ * @param botInTurn true if the next move is up to a bot
+ */
+public record MoveResult(Game game, boolean gameEnded, Optional<Game.GameSymbolType> winner, boolean botInTurn) {
+
+    /**
+     * @return true if the move ended the game in a tie
+     */
+    public boolean isTie() {
+        return this.gameEnded && this.winner.isEmpty();
+    }
+}
@@ -0,0 +1,224 @@
+package ttt_backend.application;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The value of each move of each position reachable in a game, solved once,
+ * when the table is built, by a negamax search from the empty board.
+ * <p>
+ * A position is the pair of the cells of the player to move and of the cells
+ * of the other player, as 9-bit masks. Positions equal up to a rotation or a
+ * reflection of the board share an entry, stored in their canonical form:
+ * the smallest of the 8 symmetric forms. The entries are kept in an
+ * open-addressing table of the canonical positions, each with the values
+ * of its 9 cells: 1 plus the cells left free for a win (winning sooner is
+ * better), 0 for a tie, the opposite of the value of the position after the
+ * move otherwise.
+ * <p>
+ * Choosing a move costs the 16 lookups of the symmetric forms of the
+ * position, one probe of the table and a pass on its 9 cells; the table is
+ * never changed once built, so it is read without locking.
+ */
+public final class MoveTable {
+    private static final int CELLS = 9;
+    private static final int CAPACITY = 2048;
+    private static final byte TAKEN = Byte.MIN_VALUE;
+
+    /* the 3 rows, the 3 columns and the 2 diagonals */
+    private static final int[] LINES = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100
+    };
+
+    /* the cell (x, y), the bit y * 3 + x, taken to the cell of each of the 8 symmetries */
+    private static final int[][] SYMMETRIES = new int[8][CELLS];
+    /* the masks of the cells, taken to their image by each of the 8 symmetries */
+    private static final int[][] TRANSFORMS = new int[8][1 << CELLS];
+
+    static {
+        for (int cell = 0; cell < CELLS; cell++) {
+            final int x = cell % 3;
+            final int y = cell / 3;
+            final int[][] images = {
+                    {x, y}, {2 - y, x}, {2 - x, 2 - y}, {y, 2 - x},
+                    {2 - x, y}, {x, 2 - y}, {y, x}, {2 - y, 2 - x}
+            };
+            for (int s = 0; s < 8; s++) {
+                SYMMETRIES[s][cell] = images[s][1] * 3 + images[s][0];
+            }
+        }
+        for (int s = 0; s < 8; s++) {
+            for (int mask = 0; mask < 1 << CELLS; mask++) {
+                int image = 0;
+                for (int cell = 0; cell < CELLS; cell++) {
+                    if ((mask & (1 << cell)) != 0) {
+                        image |= 1 << SYMMETRIES[s][cell];
+                    }
+                }
+                TRANSFORMS[s][mask] = image;
+            }
+        }
+    }
+
+    /* the canonical positions, as own << 9 | other, plus 1 (0 is a free entry) */
+    private final int[] keys = new int[CAPACITY];
+    /* the values of the 9 cells of each canonical position, TAKEN for the cells taken */
+    private final byte[] values = new byte[CAPACITY * CELLS];
+    private int positions;
+
+    private MoveTable() {}
+
+    /**
+     * Solve all the positions reachable from the empty board.
+     *
+     * @return the table
+     */
+    public static MoveTable build() {
+        final MoveTable table = new MoveTable();
+        table.solve(0, 0);
+        return table;
+    }
+
+    /**
+     * @return the number of positions stored, up to symmetries
+     */
+    public int positions() {
+        return this.positions;
+    }
+
+    /**
+     * Choose a move: one of the best moves, at random; or, for a share
+     * of the moves given by the level, one of the worse moves, at random.
+     *
+     * @param own the cells of the player to move
+     * @param other the cells of the other player
+     * @param level the level of the player
+     * @param random the source of the random choices
+     * @return the cell of the move, y * 3 + x
+     * @throws IllegalStateException if the game is over or the position cannot be reached
+     */
+    public int choose(int own, int other, BotLevel level, RandomGenerator random) {
+        final int symmetry = canonicalSymmetry(own, other);
+        final int entry = find(key(TRANSFORMS[symmetry][own], TRANSFORMS[symmetry][other]));
+        if (entry < 0) {
+            throw new IllegalStateException("Not a position of a game in progress");
+        }
+        final int base = entry * CELLS;
+        int best = Integer.MIN_VALUE;
+        int worse = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            final int value = this.values[base + SYMMETRIES[symmetry][cell]];
+            if (value != TAKEN && value > best) {
+                best = value;
+            }
+        }
+        for (int cell = 0; cell < CELLS; cell++) {
+            final int value = this.values[base + SYMMETRIES[symmetry][cell]];
+            if (value != TAKEN && value < best) {
+                worse++;
+            }
+        }
+        final boolean blunder = worse > 0 && level.blunders() > 0 && random.nextDouble() < level.blunders();
+        int chosen = -1;
+        int seen = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            final int value = this.values[base + SYMMETRIES[symmetry][cell]];
+            if (value != TAKEN && (blunder ? value < best : value == best) && random.nextInt(++seen) == 0) {
+                chosen = cell;
+            }
+        }
+        return chosen;
+    }
+
+    /* the best value for the player to move, storing the position and the ones after it */
+    private int solve(int own, int other) {
+        final int symmetry = canonicalSymmetry(own, other);
+        final int key = key(TRANSFORMS[symmetry][own], TRANSFORMS[symmetry][other]);
+        final int found = find(key);
+        if (found >= 0) {
+            return best(found);
+        }
+        final byte[] cells = new byte[CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            final int bit = 1 << cell;
+            final int value;
+            if (((own | other) & bit) != 0) {
+                value = TAKEN;
+            } else if (hasLine(own | bit)) {
+                value = 1 + CELLS - Integer.bitCount(own | other | bit);
+            } else if (Integer.bitCount(own | other | bit) == CELLS) {
+                value = 0;
+            } else {
+                value = -solve(other, own | bit);
+            }
+            cells[SYMMETRIES[symmetry][cell]] = (byte) value;
+        }
+        final int entry = insert(key);
+        System.arraycopy(cells, 0, this.values, entry * CELLS, CELLS);
+        return best(entry);
+    }
+
+    private int best(int entry) {
+        int best = Integer.MIN_VALUE;
+        for (int cell = 0; cell < CELLS; cell++) {
+            final int value = this.values[entry * CELLS + cell];
+            if (value != TAKEN && value > best) {
+                best = value;
+            }
+        }
+        return best;
+    }
+
+    /* the symmetry taking the position to its canonical form */
+    private static int canonicalSymmetry(int own, int other) {
+        int symmetry = 0;
+        int smallest = Integer.MAX_VALUE;
+        for (int s = 0; s < 8; s++) {
+            final int key = key(TRANSFORMS[s][own], TRANSFORMS[s][other]);
+            if (key < smallest) {
+                smallest = key;
+                symmetry = s;
+            }
+        }
+        return symmetry;
+    }
+
+    private int find(int key) {
+        for (int i = hash(key); ; i = (i + 1) & (CAPACITY - 1)) {
+            if (this.keys[i] == 0) {
+                return -1;
+            }
+            if (this.keys[i] == key + 1) {
+                return i;
+            }
+        }
+    }
+
+    private int insert(int key) {
+        int i = hash(key);
+        while (this.keys[i] != 0) {
+            i = (i + 1) & (CAPACITY - 1);
+        }
+        this.keys[i] = key + 1;
+        this.positions++;
+        return i;
+    }
+
+    private static int key(int own, int other) {
+        return own << CELLS | other;
+    }
+
+    private static int hash(int key) {
+        return (key * 0x9E3779B9 >>> 16) & (CAPACITY - 1);
+    }
+
+    private static boolean hasLine(int cells) {
+        for (final int line : LINES) {
+            if ((cells & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,21 @@
+package ttt_backend.domain.events;
+
+import ttt_backend.domain.models.Game;
+
+/**
+ *
+ * The game ended: the winner is {@code EMPTY} in case of tie
+ *
+ */
+public record GameEnded(String gameId, Game.GameSymbolType winner) implements GameEvent {
+
+	/**
+	 *
+	 * Check if the game ended in a tie
+	 *
+	 * @return
+	 */
+	public boolean isTie() {
+		return winner == Game.GameSymbolType.EMPTY;
+	}
+}
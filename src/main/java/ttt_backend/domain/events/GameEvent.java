@@ -0,0 +1,17 @@
+package ttt_backend.domain.events;
+
+/**
+ *
+ * An event concerning a TTT game
+ *
+ */
+public sealed interface GameEvent permits GameStarted, NewMove, GameEnded {
+
+	/**
+	 *
+	 * The id of the game
+	 *
+	 * @return
+	 */
+	String gameId();
+}
@@ -0,0 +1,11 @@
+package ttt_backend.domain.events;
+
+import ttt_backend.domain.models.BoardSize;
+
+/**
+ *
+ * Both players joined the game and it can be played,
+ * on a board of the given size
+ *
+ */
+public record GameStarted(String gameId, BoardSize board) implements GameEvent {}
@@ -0,0 +1,10 @@
+package ttt_backend.domain.events;
+
+import ttt_backend.domain.models.Game;
+
+/**
+ *
+ * A player put its symbol in the cell (x, y)
+ *
+ */
+public record NewMove(String gameId, int x, int y, Game.GameSymbolType symbol) implements GameEvent {}
@@ -0,0 +1,51 @@
+package ttt_backend.domain.models;
+
+/**
+ *
+ * The size of the board of a game, width x height cells,
+ * and the number of symbols in a row winning the game
+ *
+ */
+public record BoardSize(int width, int height, int winLength) {
+
+	/* the largest width and height of a board */
+	public static final int MAX_SIDE = 64;
+
+	/* the board of tic-tac-toe: 3 x 3, 3 in a row */
+	public static final BoardSize CLASSIC = new BoardSize(3, 3, 3);
+
+	/**
+	 *
+	 * A board has sides from 1 to MAX_SIDE cells, and
+	 * a win length that fits in its longest side
+	 *
+	 * @throws IllegalArgumentException
+	 */
+	public BoardSize {
+		if (width < 1 || width > MAX_SIDE || height < 1 || height > MAX_SIDE
+			|| winLength < 1 || winLength > Math.max(width, height)) {
+			throw new IllegalArgumentException("Invalid board: " + width + " x " + height + ", "
+				+ winLength + " in a row");
+		}
+	}
+
+	/**
+	 *
+	 * The number of cells of the board
+	 *
+	 * @return
+	 */
+	public int cells() {
+		return width * height;
+	}
+
+	/**
+	 *
+	 * Check if the board is the one of tic-tac-toe
+	 *
+	 * @return
+	 */
+	public boolean isClassic() {
+		return equals(CLASSIC);
+	}
+}
@@ -1,12 +1,11 @@
 package ttt_backend.domain.models;
 
-import java.util.HashMap;
 import java.util.Optional;
 
 /**
- * 
+ *
  * A TTT game, involving 2 players
- * 
+ *
  */
 public class Game {
 
@@ -16,14 +15,39 @@ public class Game {
 	/* data structure representing a player, i.e. a user bound to a symbol */
 	public record Player(User user, GameSymbolType symbol) {}
 	/* the two players */
-	private HashMap<GameSymbolType, Player> players;
+	private Player crossPlayer;
+	private Player circlePlayer;
 
 	public enum GameSymbolType { CROSS, CIRCLE, EMPTY};
 
-	/* grid */
-	private GameSymbolType[][] grid;
+	/* the size of the board and the number in a row winning the game */
+	private final BoardSize board;
+
+	/*
+	 * grid: the cells of each player as a bitset in 64-bit words,
+	 * the cell (x, y) being the bit y * width + x
+	 */
+	private final long[] crossCells;
+	private final long[] circleCells;
 	private int numFreeCellsLeft;
 
+	/*
+	 * the lines through each cell of the board of tic-tac-toe, as masks,
+	 * checked instead of counting the cells in a row on this board
+	 */
+	private static final long[][] CLASSIC_LINES = {
+		{ 0b000_000_111, 0b001_001_001, 0b100_010_001 },
+		{ 0b000_000_111, 0b010_010_010 },
+		{ 0b000_000_111, 0b100_100_100, 0b001_010_100 },
+		{ 0b000_111_000, 0b001_001_001 },
+		{ 0b000_111_000, 0b010_010_010, 0b100_010_001, 0b001_010_100 },
+		{ 0b000_111_000, 0b100_100_100 },
+		{ 0b111_000_000, 0b001_001_001, 0b001_010_100 },
+		{ 0b111_000_000, 0b010_010_010 },
+		{ 0b111_000_000, 0b100_100_100, 0b100_010_001 }
+	};
+	private final boolean classic;
+
 	public enum GameState { WAITING_PLAYER, PLAYING, FINISHED }
 
 	/* state of the game */
@@ -31,66 +55,179 @@ public class Game {
 
 	/* current turn */
 	private GameSymbolType currentTurn;
-	
+
 	/* the winner (if present) of this game */
-	private Optional<Player> winner;
-		
+	private Player winner;
+
+	/* number of changes of the game: the joins, the start and the moves */
+	private long version;
+
 	/**
-	 * 
-	 * A game has its own id
-	 * 
+	 *
+	 * A game has its own id, and is played on the board of tic-tac-toe
+	 *
 	 * @param id
 	 */
 	public Game(String id) {
+		this(id, BoardSize.CLASSIC);
+	}
+
+	/**
+	 *
+	 * A game has its own id, and is played on a board of the given size
+	 *
+	 * @param id
+	 * @param board
+	 */
+	public Game(String id, BoardSize board) {
 		this.id = id;
-		grid = new GameSymbolType[3][3];
-		for (int y = 0; y < 3; y++) {
-			for (int x = 0; x < 3; x++) {
-				grid[y][x] = GameSymbolType.EMPTY;
+		this.board = board;
+		classic = board.isClassic();
+		crossCells = new long[(board.cells() + 63) >>> 6];
+		circleCells = new long[crossCells.length];
+		state = GameState.WAITING_PLAYER;
+	}
+
+	/**
+	 *
+	 * Rebuild a game from its players and the cells they took,
+	 * the turn, the winner and the state following from them
+	 *
+	 * @param id
+	 * @param cross the user playing cross, or null
+	 * @param circle the user playing circle, or null
+	 * @param started
+	 * @param crossCells the cells taken by cross, as a 9-bit mask
+	 * @param circleCells the cells taken by circle, as a 9-bit mask
+	 * @return
+	 */
+	public static Game restore(String id, User cross, User circle, boolean started, int crossCells, int circleCells) {
+		return restore(id, BoardSize.CLASSIC, cross, circle, started,
+			new long[] { crossCells }, new long[] { circleCells });
+	}
+
+	/**
+	 *
+	 * Rebuild a game on a board of any size from its players and the
+	 * cells they took, the turn, the winner and the state following from them
+	 *
+	 * @param id
+	 * @param board
+	 * @param cross the user playing cross, or null
+	 * @param circle the user playing circle, or null
+	 * @param started
+	 * @param crossCells the cells taken by cross, as a bitset in 64-bit words
+	 * @param circleCells the cells taken by circle, as a bitset in 64-bit words
+	 * @return
+	 */
+	public static Game restore(String id, BoardSize board, User cross, User circle, boolean started,
+			long[] crossCells, long[] circleCells) {
+		final Game game = new Game(id, board);
+		if (cross != null) {
+			game.crossPlayer = new Player(cross, GameSymbolType.CROSS);
+		}
+		if (circle != null) {
+			game.circlePlayer = new Player(circle, GameSymbolType.CIRCLE);
+		}
+		int crossCount = 0;
+		int circleCount = 0;
+		if (started) {
+			System.arraycopy(crossCells, 0, game.crossCells, 0, game.crossCells.length);
+			System.arraycopy(circleCells, 0, game.circleCells, 0, game.circleCells.length);
+			for (int word = 0; word < game.crossCells.length; word++) {
+				crossCount += Long.bitCount(game.crossCells[word]);
+				circleCount += Long.bitCount(game.circleCells[word]);
+			}
+			game.numFreeCellsLeft = board.cells() - crossCount - circleCount;
+			game.currentTurn = crossCount > circleCount ? GameSymbolType.CIRCLE : GameSymbolType.CROSS;
+			game.state = GameState.PLAYING;
+			if (game.hasLine(game.crossCells)) {
+				game.winner = game.crossPlayer;
+				game.state = GameState.FINISHED;
+			} else if (game.hasLine(game.circleCells)) {
+				game.winner = game.circlePlayer;
+				game.state = GameState.FINISHED;
+			} else if (game.numFreeCellsLeft == 0) {
+				game.state = GameState.FINISHED;
 			}
 		}
-		players = new HashMap<>();
-		state = GameState.WAITING_PLAYER;
-		winner = Optional.empty();
-	}	
+		game.version = (cross != null ? 1 : 0) + (circle != null ? 1 : 0)
+			+ (started ? 1 + crossCount + circleCount : 0);
+		return game;
+	}
 
 	public String getId() {
 		return id;
 	}
-		
+
+	public BoardSize getBoardSize() {
+		return board;
+	}
+
+	public GameState getState() {
+		return state;
+	}
+
+	/**
+	 *
+	 * Get the version of the game, incremented by each
+	 * join, by the start and by each move
+	 *
+	 * @return
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 *
+	 * Get the symbol in turn, if playing
+	 *
+	 * @return
+	 */
+	public Optional<GameSymbolType> getCurrentTurn() {
+		return state == GameState.PLAYING ? Optional.of(currentTurn) : Optional.empty();
+	}
+
 	/**
 	 * Join the game, using the specified symbol
-	 * 
+	 *
 	 * @param user
 	 * @param symbol
 	 * @throws InvalidJoinException
 	 */
 	public void joinGame(User user, GameSymbolType symbol) throws InvalidJoinException {
-		if (!state.equals(GameState.WAITING_PLAYER) || players.containsKey(symbol)) {
+		if (state != GameState.WAITING_PLAYER || symbol == GameSymbolType.EMPTY || getPlayer(symbol) != null) {
 			throw new InvalidJoinException();
-		}	
-		players.put(symbol, new Player(user, symbol));
+		}
+		if (symbol == GameSymbolType.CROSS) {
+			crossPlayer = new Player(user, symbol);
+		} else {
+			circlePlayer = new Player(user, symbol);
+		}
+		version++;
 	}
 
 	/**
-	 * 
+	 *
 	 * Start the game
-	 * 
+	 *
 	 * @throws CannotStartGameException
 	 */
 	public void start() throws CannotStartGameException {
-		if (players.size() == 2) {
+		if (bothPlayersJoined()) {
 			state = GameState.PLAYING;
-			numFreeCellsLeft = 9;
+			numFreeCellsLeft = board.cells();
 			currentTurn = GameSymbolType.CROSS;
+			version++;
 		} else {
 			throw new CannotStartGameException();
 		}
 	}
-	
+
 	/**
 	 * Make a move
-	 * 
+	 *
 	 * @param player
 	 * @param symbol
 	 * @param x
@@ -98,104 +235,186 @@ public class Game {
 	 * @throws InvalidMoveException
 	 */
 	public void makeAmove(User player, GameSymbolType symbol, int x, int y) throws InvalidMoveException {
-		if (state.equals(GameState.PLAYING) && symbol.equals(currentTurn)) {
-			var p = players.get(symbol);
-			if (p.user().equals(player)) {
-				if (grid[y][x].equals(GameSymbolType.EMPTY)) {
-					grid[y][x] = symbol;
-					currentTurn = adversarial(symbol);
-					checkState();			
-				} else {
-					throw new InvalidMoveException();
-				}
-			} else {
-				throw new InvalidMoveException();				
-			}
-		} else {
-			throw new InvalidMoveException();			
+		if (state != GameState.PLAYING || symbol != currentTurn
+			|| x < 0 || x >= board.width() || y < 0 || y >= board.height()
+			|| !getPlayer(symbol).user().equals(player)) {
+			throw new InvalidMoveException();
 		}
+		final int cell = y * board.width() + x;
+		final long bit = 1L << cell;
+		if (((crossCells[cell >>> 6] | circleCells[cell >>> 6]) & bit) != 0) {
+			throw new InvalidMoveException();
+		}
+		final long[] cells = symbol == GameSymbolType.CROSS ? crossCells : circleCells;
+		cells[cell >>> 6] |= bit;
+		numFreeCellsLeft--;
+		currentTurn = adversarial(symbol);
+		version++;
+		checkState(symbol, x, y);
 	}
 
 	/**
-	 * 
+	 *
 	 * Check if the game is ended
-	 * 
+	 *
 	 * @return
 	 */
 	public boolean isGameEnd() {
-		return state.equals(GameState.FINISHED);
+		return state == GameState.FINISHED;
 	}
-	
+
 	/**
-	 * 
+	 *
 	 * Get the winner of the game
-	 * 
+	 *
 	 * @return
 	 */
 	public Optional<GameSymbolType> getWinner() {
-		if (winner.isPresent()) {
-			return Optional.of(winner.get().symbol());
-		} else {
-			return Optional.empty();
-		}
+		return winner == null ? Optional.empty() : Optional.of(winner.symbol());
 	}
 
 	/**
-	 * 
+	 *
 	 * Check if the game is tie
-	 * 
+	 *
 	 * @return
 	 */
 	public boolean isTie() {
-		return isGameEnd() && winner.isEmpty();
+		return isGameEnd() && winner == null;
+	}
+
+	/**
+	 *
+	 * Get the user playing a symbol, if joined
+	 *
+	 * @param symbol
+	 * @return
+	 */
+	public Optional<User> getUser(GameSymbolType symbol) {
+		final Player player = getPlayer(symbol);
+		return player == null ? Optional.empty() : Optional.of(player.user());
+	}
+
+	/**
+	 *
+	 * Get the symbol in the cell (x, y), EMPTY if free
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public GameSymbolType getCell(int x, int y) {
+		final int cell = y * board.width() + x;
+		final long bit = 1L << cell;
+		return (crossCells[cell >>> 6] & bit) != 0 ? GameSymbolType.CROSS
+			: (circleCells[cell >>> 6] & bit) != 0 ? GameSymbolType.CIRCLE : GameSymbolType.EMPTY;
+	}
+
+	/**
+	 *
+	 * Get the number of 64-bit words of the bitsets of the cells
+	 *
+	 * @return
+	 */
+	public int getCellWords() {
+		return crossCells.length;
+	}
+
+	/**
+	 *
+	 * Get a 64-bit word of the cells taken with a symbol, where
+	 * the cell (x, y) is the bit y * width + x of the bitset;
+	 * on the board of tic-tac-toe, the word 0 holds all 9 cells
+	 *
+	 * @param symbol
+	 * @param word
+	 * @return
+	 */
+	public long getCells(GameSymbolType symbol, int word) {
+		return symbol == GameSymbolType.CROSS ? crossCells[word]
+			: symbol == GameSymbolType.CIRCLE ? circleCells[word] : 0;
 	}
-	
+
 	/**
-	 * 
+	 *
 	 * Check if both players joined the game
-	 * 
+	 *
 	 * @return
 	 */
 	public boolean bothPlayersJoined() {
-		return players.size() == 2;
-	}
-
-	
-	private void checkState() {
-		for (int y = 0; y < 3; y++) {
-			if (!grid[y][0].equals(GameSymbolType.EMPTY) && 
-				grid[y][0].equals(grid[y][1]) && 
-				grid[y][1].equals(grid[y][2])){
-					winner = Optional.of(players.get(grid[y][0]));
-					state = GameState.FINISHED;
-					return;
-			}
+		return crossPlayer != null && circlePlayer != null;
+	}
+
+	/*
+	 * Only the player who just moved can have completed a line,
+	 * and only one through the cell just taken
+	 */
+	private void checkState(GameSymbolType lastMoved, int x, int y) {
+		final long[] cells = lastMoved == GameSymbolType.CROSS ? crossCells : circleCells;
+		if (completesLine(cells, x, y)) {
+			winner = getPlayer(lastMoved);
+			state = GameState.FINISHED;
+		} else if (numFreeCellsLeft == 0) {
+			state = GameState.FINISHED;
 		}
-		for (int x = 0; x < 3; x++) {
-			if (!grid[0][x].equals(GameSymbolType.EMPTY) && 	
-				grid[0][x].equals(grid[1][x]) && 
-				grid[1][x].equals(grid[2][x])){
-					winner = Optional.of(players.get(grid[0][x]));
-					state = GameState.FINISHED;
-					return;
+	}
+
+	/*
+	 * Count the cells in a row through (x, y) along the row, the column and
+	 * the 2 diagonals, stopping at the edges of the board and at winLength:
+	 * O(winLength) whatever the size of the board
+	 */
+	private boolean completesLine(long[] cells, int x, int y) {
+		final int width = board.width();
+		final int cell = y * width + x;
+		if (classic) {
+			for (final long line : CLASSIC_LINES[cell]) {
+				if ((cells[0] & line) == line) {
+					return true;
+				}
 			}
+			return false;
 		}
-		if (!grid[0][0].equals(GameSymbolType.EMPTY) && grid[0][0].equals(grid[1][1]) && grid[1][1].equals(grid[2][2])){
-			winner = Optional.of(players.get(grid[0][0]));
-			state = GameState.FINISHED;
-			return;
-		}
-		if (!grid[2][0].equals(GameSymbolType.EMPTY) && grid[2][0].equals(grid[1][1]) && grid[1][1].equals(grid[0][2])){
-			winner = Optional.of(players.get(grid[2][0]));
-			state = GameState.FINISHED;
-			return;
+		final int needed = board.winLength() - 1;
+		final int left = Math.min(needed, x);
+		final int right = Math.min(needed, width - 1 - x);
+		final int up = Math.min(needed, y);
+		final int down = Math.min(needed, board.height() - 1 - y);
+		return countFrom(cells, cell, -1, left) + countFrom(cells, cell, 1, right) >= needed
+			|| countFrom(cells, cell, -width, up) + countFrom(cells, cell, width, down) >= needed
+			|| countFrom(cells, cell, -width - 1, Math.min(left, up))
+				+ countFrom(cells, cell, width + 1, Math.min(right, down)) >= needed
+			|| countFrom(cells, cell, width - 1, Math.min(left, down))
+				+ countFrom(cells, cell, 1 - width, Math.min(right, up)) >= needed;
+	}
+
+	/* the cells taken in a row from the cell, by steps, at most the given number */
+	private static int countFrom(long[] cells, int cell, int step, int steps) {
+		int count = 0;
+		for (int next = cell + step; count < steps && (cells[next >>> 6] & (1L << next)) != 0; next += step) {
+			count++;
 		}
-		if (this.numFreeCellsLeft == 0) {
-			state = GameState.FINISHED;
+		return count;
+	}
+
+	/* any line of the cells: only when restoring a game, once */
+	private boolean hasLine(long[] cells) {
+		for (int word = 0; word < cells.length; word++) {
+			for (long bits = cells[word]; bits != 0; bits &= bits - 1) {
+				final int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+				if (completesLine(cells, cell % board.width(), cell / board.width())) {
+					return true;
+				}
+			}
 		}
+		return false;
 	}
-	
+
+	private Player getPlayer(GameSymbolType symbol) {
+		return symbol == GameSymbolType.CROSS ? crossPlayer : symbol == GameSymbolType.CIRCLE ? circlePlayer : null;
+	}
+
 	private GameSymbolType adversarial(GameSymbolType sym) {
-		return sym.equals(GameSymbolType.CIRCLE) ? GameSymbolType.CROSS : GameSymbolType.CIRCLE;
+		return sym == GameSymbolType.CIRCLE ? GameSymbolType.CROSS : GameSymbolType.CIRCLE;
 	}
 }
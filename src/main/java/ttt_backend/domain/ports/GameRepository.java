@@ -2,7 +2,13 @@ package ttt_backend.domain.ports;
 
 import ttt_backend.domain.models.Game;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * This interface represents the port for the games' repository.
@@ -24,4 +30,62 @@ public interface GameRepository {
      * @return the game
      */
     Optional<Game> getGameById(String id);
+
+    /**
+     * Save the game in the repository, without blocking the caller.
+     * The default implementation delegates to {@link #save(Game)}:
+     * adapters that block on I/O must override it.
+     *
+     * @param game the game to save
+     * @return a stage completed with the game saved
+     */
+    default CompletionStage<Game> saveAsync(Game game) {
+        return CompletableFuture.completedFuture(save(game));
+    }
+
+    /**
+     * Get game by the id, without blocking the caller.
+     * The default implementation delegates to {@link #getGameById(String)}:
+     * adapters that block on I/O must override it.
+     *
+     * @param id the ID of the game
+     * @return a stage completed with the game
+     */
+    default CompletionStage<Optional<Game>> getGameByIdAsync(String id) {
+        return CompletableFuture.completedFuture(getGameById(id));
+    }
+
+    /**
+     * Save many games in the repository, as a single write where the adapter
+     * supports it. The default implementation saves them one by one.
+     *
+     * @param games the games to save
+     * @return a stage completed when all the games are saved
+     */
+    default CompletionStage<List<Game>> saveAllAsync(List<Game> games) {
+        final CompletableFuture<?>[] saved = games.stream()
+                .map(this::saveAsync)
+                .map(CompletionStage::toCompletableFuture)
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(saved).thenApply(v -> games);
+    }
+
+    /**
+     * Get many games by their ids, as a single read where the adapter
+     * supports it. The default implementation reads them one by one.
+     *
+     * @param ids the ids of the games
+     * @return a stage completed with the games found, by id
+     */
+    default CompletionStage<Map<String, Game>> getGamesByIdAsync(Collection<String> ids) {
+        final Map<String, Game> found = new HashMap<>();
+        CompletableFuture<Void> all = CompletableFuture.completedFuture(null);
+        for (final String id : ids) {
+            all = all.thenCombine(getGameByIdAsync(id), (v, game) -> {
+                game.ifPresent(e -> found.put(e.getId(), e));
+                return null;
+            });
+        }
+        return all.thenApply(v -> found);
+    }
 }
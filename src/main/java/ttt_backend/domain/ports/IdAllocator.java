@@ -0,0 +1,29 @@
+package ttt_backend.domain.ports;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This interface represents the port for the allocation of the ids.
+ * An id is never handed out twice, also across restarts if the adapter
+ * persists its state; the ids are increasing, but not necessarily consecutive.
+ */
+public interface IdAllocator {
+
+    /**
+     * Allocate a new id, safely under concurrent access.
+     *
+     * @return the id
+     */
+    long nextId();
+
+    /**
+     * An allocator counting in memory, for the stores that do not outlive the process.
+     *
+     * @param first the first id
+     * @return the allocator
+     */
+    static IdAllocator inMemory(long first) {
+        final AtomicLong next = new AtomicLong(first);
+        return next::getAndIncrement;
+    }
+}
@@ -2,7 +2,13 @@ package ttt_backend.domain.ports;
 
 import ttt_backend.domain.models.User;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * This interface represents the port for the users' repository.
@@ -24,4 +30,62 @@ public interface UserRepository {
      * @return the user
      */
     Optional<User> getUserById(String id);
+
+    /**
+     * Save the user in the repository, without blocking the caller.
+     * The default implementation delegates to {@link #save(User)}:
+     * adapters that block on I/O must override it.
+     *
+     * @param user the user to save
+     * @return a stage completed with the user saved
+     */
+    default CompletionStage<User> saveAsync(User user) {
+        return CompletableFuture.completedFuture(save(user));
+    }
+
+    /**
+     * Get the user saved, without blocking the caller.
+     * The default implementation delegates to {@link #getUserById(String)}:
+     * adapters that block on I/O must override it.
+     *
+     * @param id the id of the user
+     * @return a stage completed with the user
+     */
+    default CompletionStage<Optional<User>> getUserByIdAsync(String id) {
+        return CompletableFuture.completedFuture(getUserById(id));
+    }
+
+    /**
+     * Save many users in the repository, as a single write where the adapter
+     * supports it. The default implementation saves them one by one.
+     *
+     * @param users the users to save
+     * @return a stage completed when all the users are saved
+     */
+    default CompletionStage<List<User>> saveAllAsync(List<User> users) {
+        final CompletableFuture<?>[] saved = users.stream()
+                .map(this::saveAsync)
+                .map(CompletionStage::toCompletableFuture)
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(saved).thenApply(v -> users);
+    }
+
+    /**
+     * Get many users by their ids, as a single read where the adapter
+     * supports it. The default implementation reads them one by one.
+     *
+     * @param ids the ids of the users
+     * @return a stage completed with the users found, by id
+     */
+    default CompletionStage<Map<String, User>> getUsersByIdAsync(Collection<String> ids) {
+        final Map<String, User> found = new HashMap<>();
+        CompletableFuture<Void> all = CompletableFuture.completedFuture(null);
+        for (final String id : ids) {
+            all = all.thenCombine(getUserByIdAsync(id), (v, user) -> {
+                user.ifPresent(e -> found.put(e.id(), e));
+                return null;
+            });
+        }
+        return all.thenApply(v -> found);
+    }
 }
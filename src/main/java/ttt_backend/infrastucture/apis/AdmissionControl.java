@@ -0,0 +1,38 @@
+package ttt_backend.infrastucture.apis;
+
+import java.time.Duration;
+
+/**
+ * The limits of the admission of the requests to the API, so that an
+ * overloaded server rejects the requests it cannot serve in time at once,
+ * instead of queueing them on its event loops.
+ * The rate limits are shared by all the instances of the API; each instance
+ * limits the requests in progress on its event loop with its own
+ * {@link ConcurrencyLimit}.
+ *
+ * @param moves the rate limit of the moves, by user
+ * @param registrations the rate limit of the registrations, by client address
+ * @param maxConcurrency the most requests in progress at once on an event loop, 0 for no limit
+ * @param lagTarget the lag of an event loop above which its limit shrinks
+ * @param latencyTarget the mean latency of the requests above which the limit of their event loop shrinks
+ */
+public record AdmissionControl(RateLimiter moves, RateLimiter registrations, int maxConcurrency,
+                               Duration lagTarget, Duration latencyTarget) {
+
+    /**
+     * @return the admission of every request
+     */
+    public static AdmissionControl unlimited() {
+        return new AdmissionControl(RateLimiter.unlimited(), RateLimiter.unlimited(), 0,
+                Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+
+    /**
+     * Evict the buckets of the rate limits full again, at most once per period
+     * whatever the number of instances asking for it.
+     */
+    public void evictIdle() {
+        this.moves.evictIdle();
+        this.registrations.evictIdle();
+    }
+}
@@ -0,0 +1,107 @@
+package ttt_backend.infrastucture.apis;
+
+import ttt_backend.infrastucture.metrics.Gauge;
+
+/**
+ * The most requests in progress at once on an event loop, adapted to how
+ * loaded the server is (additive increase, multiplicative decrease): after
+ * each window, the limit shrinks by a tenth if the event loop was late by
+ * more than the lag target, or if the requests completed in the window took
+ * longer than the latency target on average; it grows by its square root
+ * if it was reached in the window, and the server was not overloaded.
+ * The limit stays between {@link #MIN_LIMIT} and the max limit.
+ * <p>
+ * The limit belongs to a verticle instance and is only used on its event
+ * loop, so it takes no lock nor atomic operation; only the gauges, shared
+ * by the instances, are updated without contention.
+ */
+public class ConcurrencyLimit {
+    private static final int MIN_LIMIT = 8;
+    private static final double DECREASE = 0.9;
+
+    private final int maxLimit;
+    private final long lagTargetNanos;
+    private final long latencyTargetNanos;
+    private final Gauge inFlightGauge;
+    private final Gauge limitGauge;
+    private double limit;
+    private int inFlight;
+    /* the window since the last adaptation */
+    private boolean reached;
+    private long completed;
+    private long latencySum;
+
+    /**
+     * @param maxLimit the most requests in progress at once, 0 for no limit
+     * @param lagTargetNanos the lag of the event loop above which the server is overloaded
+     * @param latencyTargetNanos the mean latency of the requests above which the server is overloaded
+     * @param inFlightGauge the gauge of the requests in progress
+     * @param limitGauge the gauge of the limits of the event loops, summed, the unlimited ones counting 0
+     */
+    public ConcurrencyLimit(int maxLimit, long lagTargetNanos, long latencyTargetNanos,
+                            Gauge inFlightGauge, Gauge limitGauge) {
+        this.maxLimit = maxLimit == 0 ? Integer.MAX_VALUE : Math.max(maxLimit, MIN_LIMIT);
+        this.lagTargetNanos = lagTargetNanos;
+        this.latencyTargetNanos = latencyTargetNanos;
+        this.inFlightGauge = inFlightGauge;
+        this.limitGauge = limitGauge;
+        this.limit = this.maxLimit;
+        if (maxLimit != 0) {
+            limitGauge.add(limit());
+        }
+    }
+
+    /**
+     * Admit a request, unless the limit is reached.
+     *
+     * @return true if admitted: {@link #release(long)} must be called once it is done
+     */
+    public boolean tryAcquire() {
+        if (this.inFlight >= limit()) {
+            this.reached = true;
+            return false;
+        }
+        this.inFlight++;
+        this.inFlightGauge.increment();
+        return true;
+    }
+
+    /**
+     * @param latencyNanos how long the request admitted took
+     */
+    public void release(long latencyNanos) {
+        this.inFlight--;
+        this.inFlightGauge.decrement();
+        this.completed++;
+        this.latencySum += latencyNanos;
+    }
+
+    /**
+     * Adapt the limit to the window ended.
+     *
+     * @param lagNanos how late the event loop was at the end of the window
+     */
+    public void adapt(long lagNanos) {
+        if (this.maxLimit == Integer.MAX_VALUE) {
+            return;
+        }
+        final int previous = limit();
+        if (lagNanos > this.lagTargetNanos
+                || this.completed > 0 && this.latencySum / this.completed > this.latencyTargetNanos) {
+            this.limit = Math.max(MIN_LIMIT, this.limit * DECREASE);
+        } else if (this.reached) {
+            this.limit = Math.min(this.maxLimit, this.limit + Math.sqrt(this.limit));
+        }
+        this.limitGauge.add(limit() - previous);
+        this.reached = false;
+        this.completed = 0;
+        this.latencySum = 0;
+    }
+
+    /**
+     * @return the most requests in progress at once, now
+     */
+    public int limit() {
+        return (int) this.limit;
+    }
+}
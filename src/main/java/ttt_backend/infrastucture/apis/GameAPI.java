@@ -1,43 +1,176 @@
 package ttt_backend.infrastucture.apis;
 
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.VerticleBase;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.StaticHandler;
+import ttt_backend.application.BotMove;
+import ttt_backend.application.Command;
+import ttt_backend.application.CommandBatch;
 import ttt_backend.application.GameApplication;
+import ttt_backend.application.GameView;
+import ttt_backend.application.Matchmaker;
+import ttt_backend.application.MoveResult;
+import ttt_backend.domain.events.GameEnded;
+import ttt_backend.domain.events.GameStarted;
+import ttt_backend.domain.events.NewMove;
 import ttt_backend.domain.models.Game;
-
+import ttt_backend.infrastucture.execution.DirectGameExecutor;
+import ttt_backend.infrastucture.execution.GameExecutor;
+import ttt_backend.infrastucture.logging.Log;
+import ttt_backend.infrastucture.metrics.Gauge;
+import ttt_backend.infrastucture.metrics.LatencyHistogram;
+import ttt_backend.infrastucture.metrics.MetricsRegistry;
+import ttt_backend.infrastucture.metrics.Timer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 public class GameAPI extends VerticleBase {
-    private static final Logger logger = Logger.getLogger("[TicTacToe Backend]");
+    private static final Log lifecycle = Log.category("server");
+    private static final Log requests = Log.category("requests", Level.INFO, 100);
+    private static final CharSequence APPLICATION_JSON = HttpHeaders.createOptimized("application/json");
+    private static final CharSequence PROMETHEUS_TEXT = HttpHeaders.createOptimized("text/plain; version=0.0.4");
+    private static final String HTTP_REQUESTS = "ttt_http_requests";
+    private static final String OPERATIONS = "ttt_operations";
+    private static final long LAG_PROBE_PERIOD_MS = 100;
+    private static final long MAX_WAIT_SECONDS = 60;
+    private static final int CACHED_STATES = 10_000;
+    private static final long EVICTION_PERIOD_MS = 1000;
+    private static final long SHED_RETRY_AFTER_SECONDS = 1;
+    private static final String ADMITTED = "ttt.admitted";
     private final GameApplication application;
+    private final GameExecutor executor;
+    private final MetricsRegistry metrics;
+    private final AdmissionControl admission;
     private final int port;
+    private final Timer registerUserOperation;
+    private final Timer createGameOperation;
+    private final Timer joinGameOperation;
+    private final Timer makeMoveOperation;
+    private final Timer startGameOperation;
+    private final Timer batchOperation;
+    private final Timer getGameOperation;
+    private final Timer joinBotOperation;
+    private final Timer botMoveOperation;
+    private final Timer findMatchOperation;
+    private ConcurrencyLimit concurrency;
+    private Gauge throttled;
+    private Gauge shed;
+    private GameEventHub eventHub;
+    private GameWatchers watchers;
+    private ReplyWriter replies;
+    private Map<String, EncodedState> states;
+
+    /* a request holding a place under the concurrency limit, until released */
+    private final class Admitted {
+        private final long start = System.nanoTime();
+        private boolean released;
+
+        private void release() {
+            if (!this.released) {
+                this.released = true;
+                GameAPI.this.concurrency.release(System.nanoTime() - this.start);
+            }
+        }
+    }
+
+    /* the reply of a game at a version, shared by all the reads of the version */
+    private record EncodedState(long version, String etag, Buffer body) {}
 
     public GameAPI(GameApplication application, int port) {
+        this(application, new DirectGameExecutor(), port);
+    }
+
+    public GameAPI(GameApplication application, GameExecutor executor, int port) {
+        this(application, executor, new MetricsRegistry(), port);
+    }
+
+    public GameAPI(GameApplication application, GameExecutor executor, MetricsRegistry metrics, int port) {
+        this(application, executor, metrics, AdmissionControl.unlimited(), port);
+    }
+
+    public GameAPI(GameApplication application, GameExecutor executor, MetricsRegistry metrics,
+                   AdmissionControl admission, int port) {
         this.application = application;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.admission = admission;
         this.port = port;
-        logger.setLevel(Level.INFO);
+        this.registerUserOperation = operationTimer("registerUser");
+        this.createGameOperation = operationTimer("createGame");
+        this.joinGameOperation = operationTimer("joinGame");
+        this.makeMoveOperation = operationTimer("makeMove");
+        this.startGameOperation = operationTimer("startGame");
+        this.batchOperation = operationTimer("batch");
+        this.getGameOperation = operationTimer("getGame");
+        this.joinBotOperation = operationTimer("joinBot");
+        this.botMoveOperation = operationTimer("botMove");
+        this.findMatchOperation = operationTimer("findMatch");
     }
 
     @Override
     public Future<?> start() {
-        logger.log(Level.INFO, "TTT Server initializing...");
-
+        lifecycle.info("TTT Server initializing...");
+
+        GameEventCodec.register(vertx.eventBus());
+        this.eventHub = new GameEventHub(vertx.eventBus(),
+                this.metrics.gauge("ttt_websockets_open", "Websockets open"),
+                this.metrics.gauge("ttt_eventbus_consumers", "Event bus consumers of the game events"));
+        this.watchers = new GameWatchers(vertx,
+                this.metrics.gauge("ttt_game_watchers", "Requests waiting for the next version of a game"));
+        this.replies = new ReplyWriter();
+        this.states = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EncodedState> eldest) {
+                return size() > CACHED_STATES;
+            }
+        };
+        this.concurrency = new ConcurrencyLimit(this.admission.maxConcurrency(),
+                this.admission.lagTarget().toNanos(), this.admission.latencyTarget().toNanos(),
+                this.metrics.gauge("ttt_admission_in_flight", "Requests admitted in progress"),
+                this.metrics.gauge("ttt_admission_limit", "Most requests in progress at once, summed over the event loops"));
+        this.throttled = this.metrics.gauge("ttt_admission_throttled", "Requests rejected by a rate limit so far");
+        this.shed = this.metrics.gauge("ttt_admission_shed", "Requests shed over the concurrency limit so far");
+        this.metrics.gauge("ttt_admission_rate_limited_keys", "Users and addresses holding a rate limit",
+                () -> this.admission.moves().keys() + this.admission.registrations().keys());
+        vertx.setPeriodic(EVICTION_PERIOD_MS, id -> this.admission.evictIdle());
+        final LatencyHistogram lag = this.metrics.histogram("ttt_event_loop_lag_seconds",
+                "Delay of the timers of the event loops");
+        probeEventLoopLag(lag, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LAG_PROBE_PERIOD_MS));
         final HttpServer server = vertx.createHttpServer();
         final Router router = Router.router(vertx);
 
-        router.post("/api/registerUser").handler(this::registerUser);
-        router.post("/api/createGame").handler(this::createNewGame);
-        router.post("/api/joinGame").handler(this::joinGame);
-        router.post("/api/makeAMove").handler(this::makeAMove);
+        router.post("/api/registerUser").handler(timed("/api/registerUser", admitted(this::registerUser)));
+        router.post("/api/createGame").handler(timed("/api/createGame", admitted(this::createNewGame)));
+        router.post("/api/joinGame").handler(timed("/api/joinGame", admitted(this::joinGame)));
+        router.post("/api/makeAMove").handler(timed("/api/makeAMove", admitted(this::makeAMove)));
+        router.post("/api/joinBot").handler(timed("/api/joinBot", admitted(this::joinBot)));
+        router.post("/api/findMatch").handler(timed("/api/findMatch", admitted(this::findMatch)));
+        router.post("/api/cancelMatch").handler(timed("/api/cancelMatch", admitted(this::cancelMatch)));
+        router.post("/api/matchStatus").handler(timed("/api/matchStatus", admitted(this::matchStatus)));
+        router.post("/api/batch").handler(timed("/api/batch", admitted(this::batch)));
+        router.get("/api/games/:gameId").handler(timed("/api/games/:gameId", admitted(this::getGame)));
+        router.get("/api/metrics").handler(this::metrics);
         router.route("/api/events").handler(ctx -> {});
 
         handleEventSubscription(server);
@@ -45,134 +178,331 @@ public class GameAPI extends VerticleBase {
         router.route("/public/*").handler(StaticHandler.create());
 
         return server.requestHandler(router).listen(port)
-                .onSuccess(r -> logger.log(Level.INFO, "TTT Server started on port " + port));
+                .onSuccess(r -> lifecycle.info("TTT Server started on port {}", port));
     }
 
     protected void registerUser(RoutingContext context) {
-        logger.log(Level.INFO, "RegisterUser request");
-
-        context.request().handler(buffer -> {
-           final JsonObject userInfo = buffer.toJsonObject();
-           final var userName = userInfo.getString("userName");
-           final var user = this.application.registerUser(userName);
-
-           final var reply = new JsonObject();
-           reply.put("userId", user.id());
-           reply.put("userName", userName);
-           try {
-               sendReply(context.response(), reply);
-           } catch (Exception e) {
-               sendError(context.response());
-           }
-        });
+        requests.info("RegisterUser request");
+
+        if (throttled(context.response(), this.admission.registrations(), clientAddress(context))) {
+            return;
+        }
+        withBody(context, RequestCodec::readRegisterUser, request ->
+                timed(this.registerUserOperation, () -> this.application.registerUser(request.userName()))
+                        .onSuccess(user -> sendReply(context.response(), this.replies.user(user)))
+                        .onFailure(err -> sendError(context.response())));
     }
 
     protected void createNewGame(RoutingContext context) {
-        logger.log(Level.INFO, "CreateNewGame request - " + context.currentRoute().getPath());
-
-        final var game = this.application.createNewGame();
+        requests.info("CreateNewGame request - {}", context.currentRoute().getPath());
 
-        final var reply = new JsonObject();
-        reply.put("gameId", game.getId());
-        try {
-            sendReply(context.response(), reply);
-        } catch (Exception e) {
-            sendError(context.response());
-        }
+        withBody(context, RequestCodec::readCreateGame, request ->
+                timed(this.createGameOperation, () -> this.application.createNewGame(request.board()))
+                        .onSuccess(game -> sendReply(context.response(), this.replies.game(game)))
+                        .onFailure(err -> sendError(context.response())));
     }
 
     protected void joinGame(RoutingContext context) {
-        logger.log(Level.INFO, "JoinGame request - " + context.currentRoute().getPath());
-
-        context.request().handler(buffer -> {
-            final JsonObject joinInfo = buffer.toJsonObject();
-            final var userId = joinInfo.getString("userId");
-            final var gameId = joinInfo.getString("gameId");
-            final var symbol = joinInfo.getString("symbol");
-            final var gameSym = symbol.equals("cross") ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE;
-
-            final var reply = new JsonObject();
-            try {
-                this.application.joinGame(userId, gameId, gameSym);
-                reply.put("result", "accepted");
-                try {
-                    sendReply(context.response(), reply);
-                    logger.log(Level.INFO, "Join succeeded");
-                } catch (Exception e) {
-                    sendError(context.response());
-                }
-            } catch (Exception ex) {
-                reply.put("result", "denied");
-                try {
-                    sendReply(context.response(), reply);
-                    logger.log(Level.INFO, "Join failed");
-                } catch (Exception ex2) {
-                    sendError(context.response());
+        requests.info("JoinGame request - {}", context.currentRoute().getPath());
+
+        withBody(context, RequestCodec::readJoinGame, request -> {
+            final var gameId = request.gameId();
+            final Future<Void> join = timed(this.joinGameOperation, () -> this.executor.execute(gameId,
+                    () -> this.application.joinGame(request.userId(), gameId, request.symbol())));
+            join.onComplete(res -> {
+                if (res.succeeded()) {
+                    requests.info("Join succeeded");
+                    GameWatchers.publishChange(vertx.eventBus(), gameId);
+                } else {
+                    requests.info("Join failed");
                 }
-            }
+                sendReply(context.response(), this.replies.result(res.succeeded()));
+            });
+        });
+    }
+
+    /*
+     *
+     * Letting a bot join a game as the other player: the game
+     * starts at once if the player already joined, so the player
+     * should subscribe to the events of the game first
+     *
+     */
+    protected void joinBot(RoutingContext context) {
+        requests.info("JoinBot request - {}", context.currentRoute().getPath());
+
+        withBody(context, RequestCodec::readJoinBot, request -> {
+            final var gameId = request.gameId();
+            timed(this.joinBotOperation, () -> this.executor.execute(gameId,
+                    () -> this.application.joinBot(gameId, request.level())))
+                    .onComplete(res -> {
+                        sendReply(context.response(), this.replies.result(res.succeeded()));
+                        if (res.failed()) {
+                            requests.info("Bot join failed");
+                            return;
+                        }
+                        requests.info("Bot joined as {}", res.result());
+                        GameWatchers.publishChange(vertx.eventBus(), gameId);
+                        startGame(gameId);
+                    });
+        });
+    }
+
+    /*
+     *
+     * Putting a user in the queue of the matchmaking: the user is
+     * notified of the game found on the websockets opened with
+     * the id of the user, see MatchmakingVerticle
+     *
+     */
+    protected void findMatch(RoutingContext context) {
+        requests.info("FindMatch request - {}", context.currentRoute().getPath());
+
+        withBody(context, RequestCodec::readFindMatch, request ->
+                timed(this.findMatchOperation, () -> this.application.findMatch(request.userId(), request.board()))
+                        .onSuccess(queued -> sendReply(context.response(), this.replies.result(queued)))
+                        .onFailure(err -> sendError(context.response())));
+    }
+
+    protected void cancelMatch(RoutingContext context) {
+        requests.info("CancelMatch request - {}", context.currentRoute().getPath());
+
+        withBody(context, RequestCodec::readFindMatch, request ->
+                sendReply(context.response(), this.replies.result(this.application.cancelMatch(request.userId()))));
+    }
+
+    /*
+     *
+     * Replying with the last match found for a user, as notified
+     * on the websockets, else whether the user is still waiting
+     *
+     */
+    protected void matchStatus(RoutingContext context) {
+        requests.info("MatchStatus request - {}", context.currentRoute().getPath());
+
+        withBody(context, RequestCodec::readFindMatch, request -> {
+            final Matchmaker matchmaker = this.application.matchmaker();
+            final JsonObject status = matchmaker.match(request.userId())
+                    .map(MatchmakingVerticle::matchFound)
+                    .orElseGet(() -> new JsonObject().put("event",
+                            matchmaker.isWaiting(request.userId()) ? "match-waiting" : "no-match"));
+            sendReply(context.response(), status.toBuffer());
         });
     }
 
     protected void makeAMove(RoutingContext context) {
-        logger.log(Level.INFO, "makeAMove request - " + context.currentRoute().getPath());
-
-        context.request().handler(buffer -> {
-            final JsonObject moveInfo = buffer.toJsonObject();
-            final var userId = moveInfo.getString("userId");
-            final var gameId = moveInfo.getString("gameId");
-            final var symbol = moveInfo.getString("symbol");
-            final int x = Integer.parseInt(moveInfo.getString("x"));
-            final int y = Integer.parseInt(moveInfo.getString("y"));
-            final var gameSym = symbol.equals("cross") ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE;
-            final var reply = new JsonObject();
-
-            try {
-                final var updatedGame = this.application.makeMove(userId, gameId, gameSym, x, y);
-                reply.put("result", "accepted");
-                try {
-                    sendReply(context.response(), reply);
-                    logger.log(Level.INFO, "Join succeeded");
-                } catch (Exception e) {
-                    sendError(context.response());
+        requests.info("makeAMove request - {}", context.currentRoute().getPath());
+
+        withBody(context, RequestCodec::readMakeMove, request -> {
+            if (throttled(context.response(), this.admission.moves(), request.userId())) {
+                return;
+            }
+            final var gameId = request.gameId();
+            final Future<MoveResult> move = timed(this.makeMoveOperation, () -> this.executor.execute(gameId,
+                    () -> this.application.makeMove(
+                            request.userId(), gameId, request.symbol(), request.x(), request.y())));
+            move.onComplete(res -> {
+                sendReply(context.response(), this.replies.result(res.succeeded()));
+                if (res.failed()) {
+                    requests.info("Move failed");
+                    return;
                 }
+                requests.info("Move succeeded");
 
-                final var eb = vertx.eventBus();
+                publishMove(gameId, request.symbol(), request.x(), request.y(), res.result());
+                if (res.result().botInTurn()) {
+                    playBot(gameId);
+                }
+            });
+        });
+    }
 
-                final var evMove = new JsonObject();
-                evMove.put("event", "new-move");
-                evMove.put("x", x);
-                evMove.put("y", y);
-                evMove.put("symbol", symbol);
+    /*
+     *
+     * Running a batch of commands, in order: an array of objects with the
+     * name of the operation in "op" (registerUser, createGame, joinGame,
+     * makeAMove) and the fields of its request; the ids of the users and
+     * games can refer to an earlier command as "$<index>".
+     * The reply is the array of the replies of the commands.
+     *
+     */
+    protected void batch(RoutingContext context) {
+        requests.info("Batch request - {}", context.currentRoute().getPath());
 
-                final var gameAddress = getBusAddressForAGame(gameId);
-                eb.publish(gameAddress, evMove);
+        withBody(context, RequestCodec::readBatch, commands -> {
+            if (throttled(context, commands)) {
+                return;
+            }
+            final CommandBatch batch = this.application.newBatch(commands);
+            timed(this.batchOperation, () -> batch.execute(this.executor))
+                    .onSuccess(results -> {
+                        sendReply(context.response(), this.replies.batch(commands, results));
+                        requests.info("Batch of {} commands done", commands.size());
+
+                        for (int i = 0; i < commands.size(); i++) {
+                            if (commands.get(i) instanceof Command.MakeMove move && results.get(i).succeeded()) {
+                                final var result = (MoveResult) results.get(i).value();
+                                publishMove(result.game().getId(), move.symbol(), move.x(), move.y(), result);
+                                if (result.botInTurn()) {
+                                    playBot(result.game().getId());
+                                }
+                            } else if (commands.get(i) instanceof Command.JoinGame && results.get(i).succeeded()) {
+                                GameWatchers.publishChange(vertx.eventBus(), batch.gameIdOf(i));
+                            }
+                        }
+                    })
+                    .onFailure(err -> sendError(context.response()));
+        });
+    }
+
+    /*
+     *
+     * Reading the state of a game, with its version as ETag:
+     * a request with the ETag of the current version in If-None-Match
+     * gets a 304; with ?wait=<seconds> too (at most 60), the request
+     * waits for the next version, then gets the new state, or a 304
+     * if the game did not change during the wait
+     *
+     */
+    protected void getGame(RoutingContext context) {
+        requests.info("GetGame request - {}", context.currentRoute().getPath());
 
-                if (updatedGame.isGameEnd()) {
-                    final var evEnd = new JsonObject();
-                    evEnd.put("event", "game-ended");
+        final var gameId = context.pathParam("gameId");
+        final var etag = context.request().getHeader(HttpHeaders.IF_NONE_MATCH);
+        final long wait;
+        try {
+            final var param = context.request().getParam("wait");
+            wait = param == null ? 0 : Math.min(Math.max(Long.parseLong(param), 0), MAX_WAIT_SECONDS);
+        } catch (NumberFormatException e) {
+            context.response().setStatusCode(400).end();
+            return;
+        }
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(wait);
+        readGame(context, gameId, etag, etag != null && wait > 0 ? deadline : 0);
+    }
 
-                    if (updatedGame.isTie()) {
-                        evEnd.put("result", "tie");
+    /*
+     *
+     * Replying with the state of the game, unless its ETag matches:
+     * waiting until the deadline, if any, for the next version.
+     * The watch is registered before reading the game,
+     * so that no change after the read can be missed
+     *
+     */
+    private void readGame(RoutingContext context, String gameId, String etag, long deadline) {
+        final HttpServerResponse response = context.response();
+        final long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        final GameWatchers.Watch watch = deadline == 0 || left <= 0 ? null
+                : this.watchers.watch(gameId, left, changed -> {
+                    if (changed) {
+                        readGame(context, gameId, etag, deadline);
                     } else {
-                        final var sym = updatedGame.getWinner().get();
-                        if (sym.equals(Game.GameSymbolType.CROSS)) {
-                            evEnd.put("winner", "cross");
-                        } else {
-                            evEnd.put("winner", "circle");
+                        notModified(response, etag);
+                    }
+                });
+        if (watch != null) {
+            response.closeHandler(v -> watch.cancel());
+        }
+        timed(this.getGameOperation, () -> this.executor.execute(gameId, () -> this.application.getGame(gameId)))
+                .onSuccess(found -> {
+                    if (found.isEmpty()) {
+                        if (watch == null || watch.cancel()) {
+                            response.setStatusCode(404).end();
                         }
+                        return;
                     }
-                    eb.publish(gameAddress, evEnd);
-                }
-            } catch (Exception ex) {
-                reply.put("result", "denied");
-                try {
-                    sendReply(context.response(), reply);
-                    logger.log(Level.INFO, "Join failed");
-                } catch (Exception ex2) {
-                    sendError(context.response());
-                }
-            }
-        });
+                    final EncodedState state = encoded(found.get());
+                    if (!state.etag().equals(etag)) {
+                        if (watch == null || watch.cancel()) {
+                            response.putHeader(HttpHeaders.ETAG, state.etag());
+                            response.putHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+                            sendReply(response, state.body());
+                        }
+                    } else if (watch == null) {
+                        notModified(response, etag);
+                    } else {
+                        /* a long poll: it only waits from now on */
+                        final Admitted admitted = context.get(ADMITTED);
+                        if (admitted != null) {
+                            admitted.release();
+                        }
+                    }
+                })
+                .onFailure(err -> {
+                    if (watch == null || watch.cancel()) {
+                        sendError(response);
+                    }
+                });
+    }
+
+    /*
+     *
+     * The reply of the game at the version read, encoded once
+     * per version and shared by all the readers of the version
+     *
+     */
+    private EncodedState encoded(GameView view) {
+        final EncodedState cached = this.states.get(view.gameId());
+        if (cached != null && cached.version() == view.version()) {
+            return cached;
+        }
+        final var state = new EncodedState(view.version(), "\"" + view.version() + "\"", this.replies.gameState(view));
+        if (cached == null || cached.version() < view.version()) {
+            this.states.put(view.gameId(), state);
+        }
+        return state;
+    }
+
+    private void notModified(HttpServerResponse response, String etag) {
+        response.setStatusCode(304);
+        response.putHeader(HttpHeaders.ETAG, etag);
+        response.end();
+    }
+
+    protected void metrics(RoutingContext context) {
+        context.response()
+                .putHeader(HttpHeaders.CONTENT_TYPE, PROMETHEUS_TEXT)
+                .end(this.metrics.scrape());
+    }
+
+    /*
+     *
+     * Letting the bot in turn play, publishing its move as the
+     * moves of the users, then the next bot, if both are bots
+     *
+     */
+    private void playBot(String gameId) {
+        timed(this.botMoveOperation, () -> this.executor.execute(gameId, () -> this.application.playBot(gameId)))
+                .onSuccess(played -> {
+                    if (played.isEmpty()) {
+                        return;
+                    }
+                    final BotMove move = played.get();
+                    publishMove(gameId, move.symbol(), move.x(), move.y(), move.result());
+                    if (move.result().botInTurn()) {
+                        playBot(gameId);
+                    }
+                })
+                .onFailure(err -> requests.warning("Bot move failed in {}", gameId, err));
+    }
+
+    /*
+     *
+     * Publishing the events of a move: the move itself,
+     * then the end of the game, if it ended
+     *
+     */
+    private void publishMove(String gameId, Game.GameSymbolType symbol, int x, int y, MoveResult result) {
+        final var eb = vertx.eventBus();
+
+        final var gameAddress = getBusAddressForAGame(gameId);
+        eb.publish(gameAddress, new GameEventMessage(new NewMove(gameId, x, y, symbol)));
+        GameWatchers.publishChange(eb, gameId);
+
+        if (result.gameEnded()) {
+            final var winner = result.winner().orElse(Game.GameSymbolType.EMPTY);
+            eb.publish(gameAddress, new GameEventMessage(new GameEnded(gameId, winner)));
+        }
     }
 
     /*
@@ -183,55 +513,97 @@ public class GameAPI extends VerticleBase {
      */
     protected void handleEventSubscription(HttpServer server) {
         server.webSocketHandler(webSocket -> {
-            logger.log(Level.INFO, "New TTT subscription accepted.");
+            requests.info("New TTT subscription accepted.");
 
             /*
              *
              * Receiving a first message including the id of the game
-             * to observe
+             * to observe, or the ids of the games, and the protocol
+             * of the socket: "text" (the default) or "binary".
+             * The following messages subscribe to more games.
+             * With the id of a user, the socket receives the
+             * notifications of the matchmaking to the user, and
+             * is subscribed to the game of each match found.
              *
              */
             webSocket.textMessageHandler(openMsg -> {
-                logger.log(Level.INFO, "For game: " + openMsg);
+                requests.info("For game: {}", openMsg);
                 JsonObject obj = new JsonObject(openMsg);
-                String gameId = obj.getString("gameId");
-
-                /*
-                 * Subscribing events on the event bus to receive
-                 * events concerning the game, to be notified
-                 * to the frontend using the websocket
-                 *
-                 */
-                EventBus eb = vertx.eventBus();
-
-                var gameAddress = getBusAddressForAGame(gameId);
-                eb.consumer(gameAddress, msg -> {
-                    JsonObject ev = (JsonObject) msg.body();
-                    logger.log(Level.INFO, "Notifying event to the frontend: " + ev.encodePrettily());
-                    webSocket.writeTextMessage(ev.encodePrettily());
-                });
+                final var protocol = "binary".equals(obj.getString("protocol"))
+                        ? GameEventHub.Protocol.BINARY : GameEventHub.Protocol.TEXT;
+                this.eventHub.open(webSocket, protocol);
 
-                /*
-                 *
-                 * When both players joined the game and both
-                 * have the websocket connection ready,
-                 * the game can start
-                 *
-                 */
-                if (this.application.isGameReadyToStart(gameId)) {
-                    try {
-                        this.application.startGame(gameId);
-                        final var evGameStarted = new JsonObject();
-                        evGameStarted.put("event", "game-started");
-                        eb.publish(gameAddress, evGameStarted);
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
+                final JsonArray gameIds = obj.getJsonArray("gameIds", new JsonArray());
+                if (obj.containsKey("gameId")) {
+                    gameIds.add(obj.getString("gameId"));
+                }
+                for (int i = 0; i < gameIds.size(); i++) {
+                    if (!subscribe(webSocket, gameIds.getString(i))) {
+                        return;
                     }
                 }
+                if (obj.containsKey("userId")) {
+                    this.eventHub.identify(obj.getString("userId"), webSocket, notification -> {
+                        if ("match-found".equals(notification.getString("event"))) {
+                            subscribe(webSocket, notification.getString("gameId"));
+                        }
+                    });
+                }
             });
         });
     }
 
+    /*
+     *
+     * Subscribing a websocket to the events of a game,
+     * false if the socket has been closed instead
+     *
+     */
+    private boolean subscribe(ServerWebSocket webSocket, String gameId) {
+        /*
+         * Subscribing events on the event bus to receive
+         * events concerning the game, to be notified
+         * to the frontend using the websocket
+         *
+         */
+        var gameAddress = getBusAddressForAGame(gameId);
+        if (this.eventHub.subscribe(gameId, gameAddress, webSocket) < 0) {
+            return false;
+        }
+
+        /*
+         *
+         * When both players joined the game and both
+         * have the websocket connection ready,
+         * the game can start
+         *
+         */
+        startGame(gameId);
+        return true;
+    }
+
+    /*
+     *
+     * Starting the game if both players joined,
+     * then letting the bot play, if it is up to a bot
+     *
+     */
+    private void startGame(String gameId) {
+        EventBus eb = vertx.eventBus();
+
+        timed(this.startGameOperation, () -> this.executor.execute(gameId,
+                () -> this.application.startGameIfReady(gameId)))
+                .onSuccess(started -> {
+                    if (started.isPresent()) {
+                        eb.publish(getBusAddressForAGame(gameId),
+                                new GameEventMessage(new GameStarted(gameId, started.get())));
+                        GameWatchers.publishChange(eb, gameId);
+                        playBot(gameId);
+                    }
+                })
+                .onFailure(err -> requests.warning("Cannot start {}", gameId, err));
+    }
+
     /**
      *
      * Get the address on the Vert.x event bus
@@ -244,9 +616,182 @@ public class GameAPI extends VerticleBase {
         return "ttt-events-" + gameId;
     }
 
-    private void sendReply(HttpServerResponse response, JsonObject reply) {
-        response.putHeader("content-type", "application/json");
-        response.end(reply.toString());
+    /*
+     *
+     * Timing the requests of a route, the replies with
+     * an error status being counted as errors
+     *
+     */
+    private Handler<RoutingContext> timed(String route, Handler<RoutingContext> handler) {
+        final Timer timer = this.metrics.timer(HTTP_REQUESTS, "HTTP requests", "route", route);
+        return context -> {
+            final long start = timer.start();
+            context.addEndHandler(res ->
+                    timer.stop(start, res.succeeded() && context.response().getStatusCode() < 400));
+            handler.handle(context);
+        };
+    }
+
+    /*
+     *
+     * Timing an operation of the application, the denied
+     * operations being counted as errors
+     *
+     */
+    private <T> Future<T> timed(Timer operation, Supplier<CompletionStage<T>> stage) {
+        final long start = operation.start();
+        return onContext(stage.get()).andThen(res -> operation.stop(start, res.succeeded()));
+    }
+
+    private Timer operationTimer(String operation) {
+        return this.metrics.timer(OPERATIONS, "Operations of the application", "operation", operation);
+    }
+
+    /*
+     *
+     * Admitting a request only while the requests in progress on
+     * the event loop are below its limit, else shedding it at once;
+     * a long poll gives its place back once it is only waiting,
+     * its game not having changed since the version it has
+     *
+     */
+    private Handler<RoutingContext> admitted(Handler<RoutingContext> handler) {
+        return context -> {
+            if (!this.concurrency.tryAcquire()) {
+                this.shed.increment();
+                reject(context.response(), 503, SHED_RETRY_AFTER_SECONDS);
+                return;
+            }
+            final Admitted admitted = new Admitted();
+            context.put(ADMITTED, admitted);
+            context.addEndHandler(res -> admitted.release());
+            handler.handle(context);
+        };
+    }
+
+    /*
+     *
+     * Taking permits of the rate limit of a user or an address,
+     * else rejecting the request with the time until the next one
+     *
+     */
+    private boolean throttled(HttpServerResponse response, RateLimiter limiter, String key) {
+        return throttled(response, limiter, key, 1);
+    }
+
+    private boolean throttled(HttpServerResponse response, RateLimiter limiter, String key, int permits) {
+        if (key == null) {
+            response.setStatusCode(400).end();
+            return true;
+        }
+        final long wait = limiter.acquire(key, permits);
+        if (wait == 0) {
+            return false;
+        }
+        this.throttled.increment();
+        reject(response, 429, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        return true;
+    }
+
+    /*
+     *
+     * Taking a permit per command of a batch, as if sent alone, all of
+     * them or none: the permits of each key are taken at once, and those
+     * taken are given back if another key is throttled. The moves of the
+     * users registered by the batch, referred to as "$<index>", are
+     * charged to the client address
+     *
+     */
+    private boolean throttled(RoutingContext context, List<Command> commands) {
+        final String address = clientAddress(context);
+        int registrations = 0;
+        final Map<String, Integer> moves = new LinkedHashMap<>();
+        for (final Command command : commands) {
+            if (command instanceof Command.RegisterUser) {
+                registrations++;
+            } else if (command instanceof Command.MakeMove move) {
+                final String key = move.userId().startsWith("$") ? address + move.userId() : move.userId();
+                moves.merge(key, 1, Integer::sum);
+            }
+        }
+        if (registrations > 0
+                && throttled(context.response(), this.admission.registrations(), address, registrations)) {
+            return true;
+        }
+        final List<Map.Entry<String, Integer>> taken = new ArrayList<>();
+        for (final Map.Entry<String, Integer> permits : moves.entrySet()) {
+            if (throttled(context.response(), this.admission.moves(), permits.getKey(), permits.getValue())) {
+                this.admission.registrations().refund(address, registrations);
+                taken.forEach(t -> this.admission.moves().refund(t.getKey(), t.getValue()));
+                return true;
+            }
+            taken.add(permits);
+        }
+        return false;
+    }
+
+    private static String clientAddress(RoutingContext context) {
+        final var address = context.request().remoteAddress();
+        return address == null ? "" : address.host();
+    }
+
+    private void reject(HttpServerResponse response, int status, long retryAfterSeconds) {
+        response.setStatusCode(status);
+        response.putHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.end();
+    }
+
+    /*
+     *
+     * Measuring how late the timers of the event loop of this
+     * instance fire, which is how long the event loop is busy
+     *
+     */
+    private void probeEventLoopLag(LatencyHistogram lag, long expected) {
+        vertx.setTimer(LAG_PROBE_PERIOD_MS, id -> {
+            final long now = System.nanoTime();
+            lag.record(now - expected);
+            this.concurrency.adapt(now - expected);
+            probeEventLoopLag(lag, now + TimeUnit.MILLISECONDS.toNanos(LAG_PROBE_PERIOD_MS));
+        });
+    }
+
+    /**
+     *
+     * Adapt a stage of the application to a Vert.x future
+     * completed on the context of this verticle
+     *
+     * @param stage
+     * @return
+     */
+    private <T> Future<T> onContext(CompletionStage<T> stage) {
+        return Future.fromCompletionStage(stage, this.context);
+    }
+
+    /*
+     *
+     * Decode the whole body of the request, then handle it;
+     * a malformed body is a bad request
+     *
+     */
+    private <T> void withBody(RoutingContext context, Function<Buffer, T> decoder, Consumer<T> handler) {
+        context.request().body()
+                .onSuccess(body -> {
+                    final T request;
+                    try {
+                        request = decoder.apply(body);
+                    } catch (IllegalArgumentException e) {
+                        context.response().setStatusCode(400).end();
+                        return;
+                    }
+                    handler.accept(request);
+                })
+                .onFailure(err -> sendError(context.response()));
+    }
+
+    private void sendReply(HttpServerResponse response, Buffer reply) {
+        response.putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON);
+        response.end(reply);
     }
 
     private void sendError(HttpServerResponse response) {
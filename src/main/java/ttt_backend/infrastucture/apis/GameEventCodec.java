@@ -0,0 +1,106 @@
+package ttt_backend.infrastucture.apis;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+import ttt_backend.domain.events.GameEnded;
+import ttt_backend.domain.events.GameEvent;
+import ttt_backend.domain.events.GameStarted;
+import ttt_backend.domain.events.NewMove;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Event bus codec of the game events.
+ * On local delivery the envelope is passed by reference (events are
+ * immutable), so it is neither copied nor re-encoded per consumer.
+ * Across the wire an event is a type byte followed by the game id
+ * (unsigned short length, UTF-8 bytes) and the fields of the event, one
+ * byte each: x, y and symbol for a move, the winner for the end of a game
+ * (EMPTY for a tie), the width, height and win length of the board for the
+ * start of a game.
+ */
+public final class GameEventCodec implements MessageCodec<GameEventMessage, GameEventMessage> {
+    private static final Game.GameSymbolType[] SYMBOLS = Game.GameSymbolType.values();
+
+    /**
+     * Register the codec as the default one of the game events, if not registered yet.
+     *
+     * @param eventBus the event bus
+     */
+    public static void register(EventBus eventBus) {
+        try {
+            eventBus.registerDefaultCodec(GameEventMessage.class, new GameEventCodec());
+        } catch (IllegalStateException e) {
+            /* already registered by another verticle instance */
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, GameEventMessage message) {
+        final GameEvent event = message.event();
+        final byte[] gameId = event.gameId().getBytes(StandardCharsets.UTF_8);
+        buffer.appendByte(message.type())
+                .appendUnsignedShort(gameId.length)
+                .appendBytes(gameId);
+        if (event instanceof NewMove move) {
+            buffer.appendUnsignedByte((short) move.x())
+                    .appendUnsignedByte((short) move.y())
+                    .appendByte((byte) move.symbol().ordinal());
+        } else if (event instanceof GameEnded ended) {
+            buffer.appendByte((byte) ended.winner().ordinal());
+        } else if (event instanceof GameStarted started) {
+            buffer.appendUnsignedByte((short) started.board().width())
+                    .appendUnsignedByte((short) started.board().height())
+                    .appendUnsignedByte((short) started.board().winLength());
+        }
+    }
+
+    @Override
+    public GameEventMessage decodeFromWire(int pos, Buffer buffer) {
+        final byte type = buffer.getByte(pos);
+        final int length = buffer.getUnsignedShort(pos + 1);
+        final String gameId = buffer.getString(pos + 3, pos + 3 + length, StandardCharsets.UTF_8.name());
+        final int offset = pos + 3 + length;
+        switch (type) {
+            case GameEventMessage.NEW_MOVE:
+                return new GameEventMessage(new NewMove(gameId, buffer.getUnsignedByte(offset),
+                        buffer.getUnsignedByte(offset + 1),
+                        symbol(buffer.getByte(offset + 2))));
+            case GameEventMessage.GAME_ENDED:
+                return new GameEventMessage(new GameEnded(gameId, symbol(buffer.getByte(offset))));
+            case GameEventMessage.GAME_STARTED:
+                return new GameEventMessage(new GameStarted(gameId, new BoardSize(buffer.getUnsignedByte(offset),
+                        buffer.getUnsignedByte(offset + 1), buffer.getUnsignedByte(offset + 2))));
+            default:
+                throw new IllegalArgumentException("Unknown game event type " + type);
+        }
+    }
+
+    /*
+     * The symbol of its ordinal, checked as the bytes come from another node
+     */
+    private static Game.GameSymbolType symbol(byte ordinal) {
+        if (ordinal < 0 || ordinal >= SYMBOLS.length) {
+            throw new IllegalArgumentException("Unknown game symbol " + ordinal);
+        }
+        return SYMBOLS[ordinal];
+    }
+
+    @Override
+    public GameEventMessage transform(GameEventMessage message) {
+        return message;
+    }
+
+    @Override
+    public String name() {
+        return "game-event";
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
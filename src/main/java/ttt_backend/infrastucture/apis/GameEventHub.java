@@ -0,0 +1,239 @@
+package ttt_backend.infrastucture.apis;
+
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.JsonObject;
+import ttt_backend.infrastucture.logging.Log;
+import ttt_backend.infrastucture.metrics.Gauge;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Registry of the websockets subscribed to the events of each game.
+ * A single event bus consumer is registered per game, when its first socket
+ * subscribes, and unregistered when its last socket leaves. Each event is
+ * encoded to JSON once, at the first delivery, and the same frame is written
+ * to all the text sockets of the game.
+ * A socket whose write queue is full is disconnected instead of buffering
+ * the events without limit.
+ * <p>
+ * A socket may subscribe to many games. Text sockets receive the JSON of the
+ * events; binary sockets receive fixed-size frames (see
+ * {@link GameEventMessage#binaryFrame(int)}) where the game is identified by
+ * its slot: the games of a socket get the slots 0, 1, 2... in the order they
+ * are subscribed. A slot is an unsigned short, so a socket subscribing to
+ * more than {@link #MAX_SLOTS} games is closed with a protocol error.
+ * <p>
+ * A socket may also be identified as the socket of a user, to receive the
+ * notifications of the matchmaking addressed to the user, as JSON text.
+ * <p>
+ * The hub belongs to a verticle instance and is only used on its event loop.
+ */
+public class GameEventHub {
+    private static final Log events = Log.category("events", Level.INFO, 100);
+    private static final int WRITE_QUEUE_MAX_SIZE = 64 * 1024;
+    private static final short TRY_AGAIN_LATER = 1013;
+    private static final short PROTOCOL_ERROR = 1002;
+    public static final int MAX_SLOTS = 0x10000;
+
+    private final EventBus eventBus;
+    private final Gauge openSockets;
+    private final Gauge consumers;
+    private final Map<String, Subscribers> games = new HashMap<>();
+    private final Map<ServerWebSocket, Subscription> subscriptions = new HashMap<>();
+
+    /* the protocols of the websockets */
+    public enum Protocol { TEXT, BINARY }
+
+    /* the sockets subscribed to a game, and the consumer of its events */
+    private static final class Subscribers {
+        private final Set<ServerWebSocket> sockets = new LinkedHashSet<>();
+        private MessageConsumer<GameEventMessage> consumer;
+    }
+
+    /* the protocol of a socket, once negotiated, and the slots of its games */
+    private static final class Subscription {
+        private Protocol protocol;
+        private final Map<String, Integer> slots = new LinkedHashMap<>();
+        private MessageConsumer<JsonObject> notifications;
+    }
+
+    /**
+     * @param eventBus the event bus
+     * @param openSockets the gauge of the sockets accepted and not closed yet
+     * @param consumers the gauge of the event bus consumers registered
+     */
+    public GameEventHub(EventBus eventBus, Gauge openSockets, Gauge consumers) {
+        this.eventBus = eventBus;
+        this.openSockets = openSockets;
+        this.consumers = consumers;
+    }
+
+    /**
+     * Accept the socket, at most once.
+     * The socket is unsubscribed from all its games when it closes or fails.
+     *
+     * @param socket the socket
+     */
+    public void accept(ServerWebSocket socket) {
+        if (this.subscriptions.putIfAbsent(socket, new Subscription()) != null) {
+            return;
+        }
+        this.openSockets.increment();
+        socket.setWriteQueueMaxSize(WRITE_QUEUE_MAX_SIZE);
+        socket.closeHandler(v -> unsubscribeAll(socket));
+        socket.exceptionHandler(err -> {
+            unsubscribeAll(socket);
+            socket.close();
+        });
+    }
+
+    /**
+     * Set the protocol of the socket, kept until the socket closes.
+     *
+     * @param socket the socket
+     * @param protocol the protocol of the socket
+     */
+    public void open(ServerWebSocket socket, Protocol protocol) {
+        accept(socket);
+        final Subscription subscription = this.subscriptions.get(socket);
+        if (subscription.protocol == null) {
+            subscription.protocol = protocol;
+        }
+    }
+
+    /**
+     * Subscribe the socket to the events of a game, at most once,
+     * opening it as a text socket if not opened yet.
+     *
+     * @param gameId the id of the game
+     * @param address the event bus address of the game
+     * @param socket the socket
+     * @return the slot of the game on the socket, or -1 if the socket has no slot
+     *         left: it is then unsubscribed from all its games and closed
+     */
+    public int subscribe(String gameId, String address, ServerWebSocket socket) {
+        open(socket, Protocol.TEXT);
+        final Map<String, Integer> slots = this.subscriptions.get(socket).slots;
+        final Integer subscribed = slots.get(gameId);
+        if (subscribed != null) {
+            return subscribed;
+        }
+        final int slot = slots.size();
+        if (slot == MAX_SLOTS) {
+            events.warning("Disconnecting subscriber {} of too many games", socket.remoteAddress());
+            unsubscribeAll(socket);
+            socket.close(PROTOCOL_ERROR, "too many games");
+            return -1;
+        }
+        slots.put(gameId, slot);
+        final Subscribers subscribers = this.games.computeIfAbsent(gameId, id -> new Subscribers());
+        if (subscribers.consumer == null) {
+            subscribers.consumer = this.eventBus.<GameEventMessage>consumer(address,
+                    msg -> deliver(gameId, subscribers, msg.body()));
+            this.consumers.increment();
+        }
+        subscribers.sockets.add(socket);
+        return slot;
+    }
+
+    /**
+     * Identify the socket as the socket of a user, at most once: the notifications
+     * addressed to the user are written to the socket, then handled.
+     *
+     * @param userId the id of the user
+     * @param socket the socket
+     * @param handler the handler of the notifications, run on the event loop of the hub
+     */
+    public void identify(String userId, ServerWebSocket socket, Consumer<JsonObject> handler) {
+        accept(socket);
+        final Subscription subscription = this.subscriptions.get(socket);
+        if (subscription.notifications != null) {
+            return;
+        }
+        subscription.notifications = this.eventBus.<JsonObject>consumer(MatchmakingVerticle.notificationsOf(userId),
+                msg -> {
+                    if (!socket.writeQueueFull()) {
+                        socket.writeTextMessage(msg.body().encode());
+                    }
+                    handler.accept(msg.body());
+                });
+    }
+
+    /**
+     * Unsubscribe the socket from all its games.
+     *
+     * @param socket the socket
+     */
+    public void unsubscribeAll(ServerWebSocket socket) {
+        final Subscription subscription = this.subscriptions.remove(socket);
+        if (subscription == null) {
+            return;
+        }
+        this.openSockets.decrement();
+        if (subscription.notifications != null) {
+            subscription.notifications.unregister();
+        }
+        for (final String gameId : subscription.slots.keySet()) {
+            final Subscribers subscribers = this.games.get(gameId);
+            if (subscribers != null) {
+                subscribers.sockets.remove(socket);
+                if (subscribers.sockets.isEmpty()) {
+                    subscribers.consumer.unregister();
+                    this.consumers.decrement();
+                    this.games.remove(gameId);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of event bus consumers registered
+     */
+    public int consumers() {
+        return this.games.size();
+    }
+
+    /**
+     * @return the number of sockets subscribed
+     */
+    public int sockets() {
+        return this.subscriptions.size();
+    }
+
+    private void deliver(String gameId, Subscribers subscribers, GameEventMessage event) {
+        List<ServerWebSocket> slow = null;
+        for (final ServerWebSocket socket : subscribers.sockets) {
+            if (socket.writeQueueFull()) {
+                if (slow == null) {
+                    slow = new ArrayList<>();
+                }
+                slow.add(socket);
+            } else {
+                final Subscription subscription = this.subscriptions.get(socket);
+                if (subscription.protocol == Protocol.BINARY) {
+                    socket.writeBinaryMessage(event.binaryFrame(subscription.slots.get(gameId)));
+                } else {
+                    socket.writeFrame(event.textFrame());
+                }
+            }
+        }
+        if (slow != null) {
+            for (final ServerWebSocket socket : slow) {
+                events.warning("Disconnecting slow subscriber {}", socket.remoteAddress());
+                unsubscribeAll(socket);
+                socket.close(TRY_AGAIN_LATER, "slow consumer");
+            }
+        }
+        events.info("Notified {} to {} frontends", event.name(), subscribers.sockets.size());
+    }
+}
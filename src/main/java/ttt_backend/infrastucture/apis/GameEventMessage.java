@@ -0,0 +1,140 @@
+package ttt_backend.infrastucture.apis;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.WebSocketFrame;
+import io.vertx.core.json.JsonObject;
+import ttt_backend.domain.events.GameEnded;
+import ttt_backend.domain.events.GameEvent;
+import ttt_backend.domain.events.GameStarted;
+import ttt_backend.domain.events.NewMove;
+import ttt_backend.domain.models.Game;
+
+/**
+ * Envelope of a game event published on the event bus.
+ * Local consumers all receive the same envelope, so the JSON encoding of the
+ * event for the websockets is computed at most once, by the first consumer
+ * needing it, whatever the number of verticle instances subscribed, and
+ * shared by the text frames sent to all the sockets.
+ * <p>
+ * Binary clients receive instead fixed-size frames of {@link #BINARY_FRAME_SIZE}
+ * bytes: the type of the event, the slot of the game on the socket (unsigned
+ * short), then three bytes: for a move, x, y and the symbol ordinal; for the
+ * end of a game, zero, zero and the winner, {@code EMPTY} for a tie; for the
+ * start of a game, the width, the height and the win length of the board.
+ */
+public final class GameEventMessage {
+    public static final byte GAME_STARTED = 0;
+    public static final byte NEW_MOVE = 1;
+    public static final byte GAME_ENDED = 2;
+    public static final int BINARY_FRAME_SIZE = 6;
+
+    private final GameEvent event;
+    private volatile String json;
+
+    public GameEventMessage(GameEvent event) {
+        this.event = event;
+    }
+
+    public GameEvent event() {
+        return this.event;
+    }
+
+    /**
+     * @return the type of the event, in the binary frames and on the wire
+     */
+    public byte type() {
+        if (this.event instanceof NewMove) {
+            return NEW_MOVE;
+        } else if (this.event instanceof GameEnded) {
+            return GAME_ENDED;
+        } else {
+            return GAME_STARTED;
+        }
+    }
+
+    /**
+     * @return the name of the event in the websocket protocol
+     */
+    public String name() {
+        if (this.event instanceof NewMove) {
+            return "new-move";
+        } else if (this.event instanceof GameEnded) {
+            return "game-ended";
+        } else {
+            return "game-started";
+        }
+    }
+
+    /**
+     * @return the compact JSON encoding of the event, as sent on the websockets
+     */
+    public String json() {
+        String encoded = this.json;
+        if (encoded == null) {
+            synchronized (this) {
+                encoded = this.json;
+                if (encoded == null) {
+                    encoded = toJson().encode();
+                    this.json = encoded;
+                }
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * @return a final text frame carrying the JSON encoding of the event
+     */
+    public WebSocketFrame textFrame() {
+        return WebSocketFrame.textFrame(json(), true);
+    }
+
+    /**
+     * @param slot the slot of the game on the socket
+     * @return the binary frame of the event
+     */
+    public Buffer binaryFrame(int slot) {
+        int first = 0;
+        int second = 0;
+        int third = 0;
+        if (this.event instanceof NewMove move) {
+            first = move.x();
+            second = move.y();
+            third = move.symbol().ordinal();
+        } else if (this.event instanceof GameEnded ended) {
+            third = ended.winner().ordinal();
+        } else if (this.event instanceof GameStarted started) {
+            first = started.board().width();
+            second = started.board().height();
+            third = started.board().winLength();
+        }
+        return Buffer.buffer(BINARY_FRAME_SIZE)
+                .appendByte(type())
+                .appendUnsignedShort(slot)
+                .appendUnsignedByte((short) first)
+                .appendUnsignedByte((short) second)
+                .appendUnsignedByte((short) third);
+    }
+
+    private JsonObject toJson() {
+        final var obj = new JsonObject().put("event", name());
+        if (this.event instanceof NewMove move) {
+            obj.put("x", move.x()).put("y", move.y()).put("symbol", symbolName(move.symbol()));
+        } else if (this.event instanceof GameStarted started) {
+            obj.put("width", started.board().width())
+                    .put("height", started.board().height())
+                    .put("winLength", started.board().winLength());
+        } else if (this.event instanceof GameEnded ended) {
+            if (ended.isTie()) {
+                obj.put("result", "tie");
+            } else {
+                obj.put("winner", symbolName(ended.winner()));
+            }
+        }
+        return obj;
+    }
+
+    private static String symbolName(Game.GameSymbolType symbol) {
+        return symbol == Game.GameSymbolType.CROSS ? "cross" : "circle";
+    }
+}
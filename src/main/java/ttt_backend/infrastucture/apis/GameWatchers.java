@@ -0,0 +1,138 @@
+package ttt_backend.infrastucture.apis;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import ttt_backend.infrastucture.metrics.Gauge;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registry of the requests waiting for the next version of a game.
+ * Every change of a game (a join, the start, a move) is published on the
+ * versions address of the game, with no body; a single event bus consumer is
+ * registered per game while requests are waiting for it, and each waiting
+ * request is notified once, either of the change or of the end of its wait,
+ * by a timer. Nothing is polled.
+ * <p>
+ * The registry belongs to a verticle instance and is only used on its event loop.
+ */
+public class GameWatchers {
+    private final Vertx vertx;
+    private final Gauge waiting;
+    private final Map<String, Watchers> games = new HashMap<>();
+
+    /* the requests waiting for a game, and the consumer of its changes */
+    private static final class Watchers {
+        private final Set<Watch> watches = new LinkedHashSet<>();
+        private MessageConsumer<Void> consumer;
+    }
+
+    /**
+     * A request waiting for a change of a game.
+     */
+    public final class Watch {
+        private final String gameId;
+        private final Handler<Boolean> handler;
+        private long timer;
+
+        private Watch(String gameId, Handler<Boolean> handler) {
+            this.gameId = gameId;
+            this.handler = handler;
+        }
+
+        /**
+         * Stop waiting, without notifying the request.
+         *
+         * @return true if the request was still waiting
+         */
+        public boolean cancel() {
+            if (!remove(this)) {
+                return false;
+            }
+            GameWatchers.this.vertx.cancelTimer(this.timer);
+            return true;
+        }
+    }
+
+    /**
+     * @param vertx the Vert.x instance of the verticle
+     * @param waiting the gauge of the requests waiting
+     */
+    public GameWatchers(Vertx vertx, Gauge waiting) {
+        this.vertx = vertx;
+        this.waiting = waiting;
+    }
+
+    /**
+     * Publish a change of a game to the requests waiting for it,
+     * in any verticle instance.
+     *
+     * @param eventBus the event bus
+     * @param gameId the id of the game
+     */
+    public static void publishChange(EventBus eventBus, String gameId) {
+        eventBus.publish(address(gameId), null);
+    }
+
+    /**
+     * Wait for the next change of a game.
+     *
+     * @param gameId the id of the game
+     * @param timeoutMs the longest wait, in milliseconds
+     * @param handler notified once, with true if the game changed, false if the wait ended
+     * @return the watch, to cancel the wait
+     */
+    public Watch watch(String gameId, long timeoutMs, Handler<Boolean> handler) {
+        final Watch watch = new Watch(gameId, handler);
+        final Watchers watchers = this.games.computeIfAbsent(gameId, id -> new Watchers());
+        if (watchers.consumer == null) {
+            watchers.consumer = this.vertx.eventBus().<Void>consumer(address(gameId), msg -> changed(gameId));
+        }
+        watchers.watches.add(watch);
+        this.waiting.increment();
+        watch.timer = this.vertx.setTimer(Math.max(1, timeoutMs), id -> {
+            if (remove(watch)) {
+                watch.handler.handle(false);
+            }
+        });
+        return watch;
+    }
+
+    private void changed(String gameId) {
+        final Watchers watchers = this.games.get(gameId);
+        if (watchers == null) {
+            return;
+        }
+        final List<Watch> notified = new ArrayList<>(watchers.watches);
+        for (final Watch watch : notified) {
+            watch.cancel();
+        }
+        for (final Watch watch : notified) {
+            watch.handler.handle(true);
+        }
+    }
+
+    private boolean remove(Watch watch) {
+        final Watchers watchers = this.games.get(watch.gameId);
+        if (watchers == null || !watchers.watches.remove(watch)) {
+            return false;
+        }
+        this.waiting.decrement();
+        if (watchers.watches.isEmpty()) {
+            watchers.consumer.unregister();
+            this.games.remove(watch.gameId);
+        }
+        return true;
+    }
+
+    private static String address(String gameId) {
+        return "ttt-versions-" + gameId;
+    }
+}
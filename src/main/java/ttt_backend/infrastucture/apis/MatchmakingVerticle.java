@@ -0,0 +1,134 @@
+package ttt_backend.infrastucture.apis;
+
+import io.vertx.core.Future;
+import io.vertx.core.VerticleBase;
+import io.vertx.core.json.JsonObject;
+import ttt_backend.application.GameApplication;
+import ttt_backend.application.Matchmaker;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+import ttt_backend.infrastucture.logging.Log;
+import ttt_backend.infrastucture.metrics.LatencyHistogram;
+import ttt_backend.infrastucture.metrics.MetricsRegistry;
+import ttt_backend.infrastucture.metrics.Timer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * The pairing loop of the matchmaking, deployed in a single instance: every
+ * {@link #PAIRING_PERIOD_MS} it drains a batch of the players waiting in the
+ * {@link Matchmaker} of the application, starts a game for each pair through
+ * the application, then notifies both players on the event bus address of
+ * each user, forwarded to the websockets identified as theirs.
+ * A full batch is followed at once by the next one.
+ * <p>
+ * The notifications: {@code {"event": "match-found", "gameId": ..., "symbol":
+ * "cross" | "circle", "opponent": {"userId": ..., "userName": ...}, "width": ...,
+ * "height": ..., "winLength": ...}} once paired, {@code {"event": "match-expired"}}
+ * for a player waiting longer than the max wait.
+ * The game is already started when the players are notified, and is new:
+ * no socket is subscribed to its events yet, so no game-started event is published.
+ * A player without a socket at that moment still finds the match with
+ * {@code /api/matchStatus}, as it is kept by the {@link Matchmaker}.
+ */
+public class MatchmakingVerticle extends VerticleBase {
+    private static final Log matchmaking = Log.category("matchmaking", Level.INFO, 100);
+    private static final long PAIRING_PERIOD_MS = 20;
+    private static final int BATCH_TICKETS = 4096;
+    private static final String NOTIFICATIONS_PREFIX = "ttt-users-";
+
+    private final GameApplication application;
+    private final long maxWaitNanos;
+    private final LatencyHistogram waits;
+    private final Timer startMatchOperation;
+
+    /**
+     * @param application the application, holding the queue of the players waiting
+     * @param metrics the registry of the metrics
+     * @param maxWait how long a player waits for an opponent at most
+     */
+    public MatchmakingVerticle(GameApplication application, MetricsRegistry metrics, Duration maxWait) {
+        this.application = application;
+        this.maxWaitNanos = maxWait.toNanos();
+        metrics.gauge("ttt_matchmaking_waiting", "Players waiting for an opponent",
+                () -> application.matchmaker().waiting());
+        this.waits = metrics.histogram("ttt_matchmaking_wait_seconds", "Time waited by the players paired");
+        this.startMatchOperation = metrics.timer("ttt_operations", "Operations of the application",
+                "operation", "startMatch");
+    }
+
+    /**
+     * @param userId the id of a user
+     * @return the event bus address of the notifications to the user
+     */
+    public static String notificationsOf(String userId) {
+        return NOTIFICATIONS_PREFIX + userId;
+    }
+
+    @Override
+    public Future<?> start() {
+        vertx.setPeriodic(PAIRING_PERIOD_MS, id -> pairPlayers());
+        return Future.succeededFuture();
+    }
+
+    private void pairPlayers() {
+        final Matchmaker matchmaker = this.application.matchmaker();
+        final long now = System.nanoTime();
+        final List<Matchmaker.Pair> pairs = matchmaker.pair(BATCH_TICKETS, now - this.maxWaitNanos,
+                ticket -> notify(ticket.user().id(), new JsonObject().put("event", "match-expired")));
+        for (final Matchmaker.Pair pair : pairs) {
+            this.waits.record(now - pair.cross().enqueuedNanos());
+            this.waits.record(now - pair.circle().enqueuedNanos());
+            startMatch(pair);
+        }
+        if (!pairs.isEmpty()) {
+            matchmaking.info("Paired {} players", 2 * pairs.size());
+        }
+        if (matchmaker.queued()) {
+            vertx.runOnContext(v -> pairPlayers());
+        }
+    }
+
+    private void startMatch(Matchmaker.Pair pair) {
+        final long start = this.startMatchOperation.start();
+        Future.fromCompletionStage(this.application.startMatch(pair), this.context)
+                .onComplete(res -> {
+                    this.startMatchOperation.stop(start, res.succeeded());
+                    if (res.failed()) {
+                        matchmaking.warning("Cannot start the game of a match", res.cause());
+                        return;
+                    }
+                    final Game game = res.result();
+                    notify(pair.cross().user().id(), matchFound(game.getId(), game.getBoardSize(),
+                            Game.GameSymbolType.CROSS, pair.circle().user()));
+                    notify(pair.circle().user().id(), matchFound(game.getId(), game.getBoardSize(),
+                            Game.GameSymbolType.CIRCLE, pair.cross().user()));
+                });
+    }
+
+    /**
+     * @param match a match found
+     * @return the notification of the match to its player
+     */
+    public static JsonObject matchFound(Matchmaker.Match match) {
+        return matchFound(match.gameId(), match.board(), match.symbol(), match.opponent());
+    }
+
+    private static JsonObject matchFound(String gameId, BoardSize board, Game.GameSymbolType symbol, User opponent) {
+        return new JsonObject()
+                .put("event", "match-found")
+                .put("gameId", gameId)
+                .put("symbol", symbol == Game.GameSymbolType.CROSS ? "cross" : "circle")
+                .put("opponent", new JsonObject().put("userId", opponent.id()).put("userName", opponent.name()))
+                .put("width", board.width())
+                .put("height", board.height())
+                .put("winLength", board.winLength());
+    }
+
+    private void notify(String userId, JsonObject notification) {
+        vertx.eventBus().publish(notificationsOf(userId), notification);
+    }
+}
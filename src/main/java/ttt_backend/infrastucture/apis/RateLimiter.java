@@ -0,0 +1,142 @@
+package ttt_backend.infrastucture.apis;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets by key, a user or a client address, shared by all the event
+ * loops: a key takes a permit every interval, and up to a burst of permits at
+ * once after being idle.
+ * <p>
+ * A bucket is a single {@link AtomicLong}, the time its next permit is due
+ * (the generic cell rate algorithm): a permit is taken by a compare-and-set
+ * moving the due time one interval ahead, refused if it would move more than
+ * the burst ahead of now. The buckets are kept in a {@link ConcurrentHashMap},
+ * so neither a lookup nor a permit takes a lock. The buckets full again are
+ * evicted by a sweep, at most once per period whoever asks for it: a bucket
+ * is marked evicted before being removed, so a permit taken concurrently is
+ * never lost, the key getting a new bucket.
+ */
+public final class RateLimiter {
+    private static final long EVICTED = Long.MIN_VALUE;
+    private static final long SWEEP_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_PERIOD_NANOS);
+
+    /**
+     * @param permits the permits of a key per period, 0 for no limit
+     * @param per the period
+     * @param burst the most permits a key takes at once
+     */
+    public RateLimiter(long permits, Duration per, int burst) {
+        if (permits < 0 || burst < 1 || per.isNegative() || per.isZero()) {
+            throw new IllegalArgumentException("Invalid rate: " + permits + " per " + per + ", burst " + burst);
+        }
+        this.intervalNanos = permits == 0 ? 0 : Math.max(1, per.toNanos() / permits);
+        this.toleranceNanos = this.intervalNanos * burst;
+    }
+
+    /**
+     * @return a limiter letting every request in
+     */
+    public static RateLimiter unlimited() {
+        return new RateLimiter(0, Duration.ofSeconds(1), 1);
+    }
+
+    /**
+     * Take a permit of a key.
+     *
+     * @param key the key
+     * @return 0 if the permit is taken, else the nanoseconds until the next permit of the key
+     */
+    public long acquire(String key) {
+        return acquire(key, 1);
+    }
+
+    /**
+     * Take several permits of a key at once, or none of them.
+     *
+     * @param key the key
+     * @param permits the number of permits
+     * @return 0 if the permits are taken, else the nanoseconds until the next permit
+     *         that would let them in (more permits than the burst are never taken)
+     */
+    public long acquire(String key, int permits) {
+        if (this.intervalNanos == 0) {
+            return 0;
+        }
+        final long needed = this.intervalNanos * permits;
+        final long now = System.nanoTime();
+        while (true) {
+            AtomicLong bucket = this.buckets.get(key);
+            if (bucket == null) {
+                final AtomicLong created = new AtomicLong(now);
+                bucket = this.buckets.putIfAbsent(key, created);
+                if (bucket == null) {
+                    bucket = created;
+                }
+            }
+            long due;
+            while ((due = bucket.get()) != EVICTED) {
+                final long next = (due - now < 0 ? now : due) + needed;
+                if (next - now > this.toleranceNanos) {
+                    return next - now - this.toleranceNanos;
+                }
+                if (bucket.compareAndSet(due, next)) {
+                    return 0;
+                }
+            }
+            this.buckets.remove(key, bucket);
+        }
+    }
+
+    /**
+     * Give back permits taken and not used, as long as the bucket of the key is kept.
+     *
+     * @param key the key
+     * @param permits the number of permits
+     */
+    public void refund(String key, int permits) {
+        if (this.intervalNanos == 0) {
+            return;
+        }
+        final AtomicLong bucket = this.buckets.get(key);
+        if (bucket != null) {
+            bucket.getAndUpdate(due -> due == EVICTED ? EVICTED : due - this.intervalNanos * permits);
+        }
+    }
+
+    /**
+     * Evict the buckets full again, unless they were swept less than a period ago.
+     */
+    public void evictIdle() {
+        if (this.intervalNanos == 0) {
+            return;
+        }
+        final long due = this.nextSweep.get();
+        final long now = System.nanoTime();
+        if (now - due < 0 || !this.nextSweep.compareAndSet(due, now + SWEEP_PERIOD_NANOS)) {
+            return;
+        }
+        for (final Map.Entry<String, AtomicLong> entry : this.buckets.entrySet()) {
+            final AtomicLong bucket = entry.getValue();
+            final long next = bucket.get();
+            if (next != EVICTED && next - now <= 0 && bucket.compareAndSet(next, EVICTED)) {
+                this.buckets.remove(entry.getKey(), bucket);
+            }
+        }
+    }
+
+    /**
+     * @return the number of keys holding a bucket
+     */
+    public int keys() {
+        return this.buckets.size();
+    }
+}
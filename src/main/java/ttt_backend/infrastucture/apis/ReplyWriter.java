@@ -0,0 +1,219 @@
+package ttt_backend.infrastucture.apis;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.vertx.core.buffer.Buffer;
+import ttt_backend.application.Command;
+import ttt_backend.application.CommandResult;
+import ttt_backend.application.GameView;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writer of the bodies of the replies.
+ * A single Jackson generator, with its buffers, is reused for all the
+ * replies, each written straight into the buffer sent to the client; the
+ * replies carrying only a result are constant buffers.
+ * <p>
+ * The writer belongs to a verticle instance and is only used on its event loop.
+ */
+public final class ReplyWriter {
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final Buffer ACCEPTED = Buffer.buffer("{\"result\":\"accepted\"}");
+    private static final Buffer DENIED = Buffer.buffer("{\"result\":\"denied\"}");
+
+    private final BufferOutputStream out = new BufferOutputStream();
+    private final JsonGenerator generator;
+
+    /* the output of the generator, switched to a new buffer for each reply */
+    private static final class BufferOutputStream extends OutputStream {
+        private Buffer buffer;
+
+        @Override
+        public void write(int b) {
+            this.buffer.appendByte((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            this.buffer.appendBytes(b, off, len);
+        }
+    }
+
+    public ReplyWriter() {
+        try {
+            this.generator = FACTORY.createGenerator(this.out);
+            this.generator.setRootValueSeparator(null);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param accepted true if the request has been accepted
+     * @return the reply {@code {"result": "accepted" | "denied"}}
+     */
+    public Buffer result(boolean accepted) {
+        return accepted ? ACCEPTED : DENIED;
+    }
+
+    /**
+     * @param user the user registered
+     * @return the reply {@code {"userId": ..., "userName": ...}}
+     */
+    public Buffer user(User user) {
+        try {
+            start(64);
+            writeUser(user);
+            return finish();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param game the game created
+     * @return the reply {@code {"gameId": ..., "width": ..., "height": ..., "winLength": ...}}
+     */
+    public Buffer game(Game game) {
+        try {
+            start(80);
+            writeGame(game);
+            return finish();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param view the state of a game
+     * @return the reply {@code {"gameId": ..., "version": ..., "width": ..., "height": ..., "winLength": ...,
+     *         "state": "waiting" | "playing" | "finished", "players": {"cross": ..., "circle": ...},
+     *         "board": [[...], [...], [...]], "turn": ...}},
+     *         the board being the rows of the symbols, "cross", "circle" or "empty", indexed by y then x;
+     *         "turn" is present while playing, "winner" or {@code "result": "tie"} once finished
+     */
+    public Buffer gameState(GameView view) {
+        try {
+            start(256 + 9 * view.board().cells());
+            this.generator.writeStartObject();
+            this.generator.writeStringField("gameId", view.gameId());
+            this.generator.writeNumberField("version", view.version());
+            writeBoardSize(view.board());
+            this.generator.writeStringField("state", stateName(view.state()));
+            this.generator.writeObjectFieldStart("players");
+            if (view.cross().isPresent()) {
+                this.generator.writeStringField("cross", view.cross().get());
+            }
+            if (view.circle().isPresent()) {
+                this.generator.writeStringField("circle", view.circle().get());
+            }
+            this.generator.writeEndObject();
+            this.generator.writeArrayFieldStart("board");
+            for (int y = 0; y < view.board().height(); y++) {
+                this.generator.writeStartArray();
+                for (int x = 0; x < view.board().width(); x++) {
+                    this.generator.writeString(symbolName(view.cell(x, y)));
+                }
+                this.generator.writeEndArray();
+            }
+            this.generator.writeEndArray();
+            if (view.turn().isPresent()) {
+                this.generator.writeStringField("turn", symbolName(view.turn().get()));
+            }
+            if (view.winner().isPresent()) {
+                this.generator.writeStringField("winner", symbolName(view.winner().get()));
+            } else if (view.state() == Game.GameState.FINISHED) {
+                this.generator.writeStringField("result", "tie");
+            }
+            this.generator.writeEndObject();
+            return finish();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param commands the commands of a batch
+     * @param results their results
+     * @return the array of the replies of the commands
+     */
+    public Buffer batch(List<Command> commands, List<CommandResult> results) {
+        try {
+            start(80 * commands.size() + 2);
+            this.generator.writeStartArray();
+            for (int i = 0; i < commands.size(); i++) {
+                final Command command = commands.get(i);
+                final CommandResult result = results.get(i);
+                if (command instanceof Command.RegisterUser && result.succeeded()) {
+                    writeUser((User) result.value());
+                } else if (command instanceof Command.CreateGame && result.succeeded()) {
+                    writeGame((Game) result.value());
+                } else {
+                    final boolean registration = command instanceof Command.RegisterUser
+                            || command instanceof Command.CreateGame;
+                    this.generator.writeStartObject();
+                    this.generator.writeStringField("result",
+                            registration ? "error" : result.succeeded() ? "accepted" : "denied");
+                    this.generator.writeEndObject();
+                }
+            }
+            this.generator.writeEndArray();
+            return finish();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeUser(User user) throws IOException {
+        this.generator.writeStartObject();
+        this.generator.writeStringField("userId", user.id());
+        this.generator.writeStringField("userName", user.name());
+        this.generator.writeEndObject();
+    }
+
+    private void writeGame(Game game) throws IOException {
+        this.generator.writeStartObject();
+        this.generator.writeStringField("gameId", game.getId());
+        writeBoardSize(game.getBoardSize());
+        this.generator.writeEndObject();
+    }
+
+    private void writeBoardSize(BoardSize board) throws IOException {
+        this.generator.writeNumberField("width", board.width());
+        this.generator.writeNumberField("height", board.height());
+        this.generator.writeNumberField("winLength", board.winLength());
+    }
+
+    private static String stateName(Game.GameState state) {
+        return switch (state) {
+            case WAITING_PLAYER -> "waiting";
+            case PLAYING -> "playing";
+            case FINISHED -> "finished";
+        };
+    }
+
+    private static String symbolName(Game.GameSymbolType symbol) {
+        return switch (symbol) {
+            case CROSS -> "cross";
+            case CIRCLE -> "circle";
+            case EMPTY -> "empty";
+        };
+    }
+
+    private void start(int sizeHint) {
+        this.out.buffer = Buffer.buffer(sizeHint);
+    }
+
+    private Buffer finish() throws IOException {
+        this.generator.flush();
+        final Buffer reply = this.out.buffer;
+        this.out.buffer = null;
+        return reply;
+    }
+}
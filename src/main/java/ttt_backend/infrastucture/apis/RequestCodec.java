@@ -0,0 +1,330 @@
+package ttt_backend.infrastucture.apis;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.internal.buffer.BufferInternal;
+import ttt_backend.application.BotLevel;
+import ttt_backend.application.Command;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoder of the bodies of the requests into the commands of the application.
+ * The bodies are read in place, without copying their bytes, with the
+ * Jackson streaming parser, field by field, straight into the command
+ * records: no JSON tree is built, the symbols are matched on the characters
+ * of the token and the coordinates are read as numbers or as strings of
+ * digits, as sent by the frontend.
+ * A malformed body, one missing the ids the command needs, or registering a
+ * name longer than {@link #MAX_USER_NAME_BYTES} fails with an
+ * {@link IllegalArgumentException}.
+ */
+public final class RequestCodec {
+    public static final String REGISTER_USER = "registerUser";
+    public static final String CREATE_GAME = "createGame";
+    public static final String JOIN_GAME = "joinGame";
+    public static final String MAKE_A_MOVE = "makeAMove";
+    /** the longest user name accepted, in UTF-8 bytes */
+    public static final int MAX_USER_NAME_BYTES = 256;
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final char[] CROSS = "cross".toCharArray();
+    private static final char[] CIRCLE = "circle".toCharArray();
+
+    /**
+     * The request of a bot joining a game.
+     *
+     * @param gameId the id of the game
+     * @param level the level of the bot
+     */
+    public record JoinBot(String gameId, BotLevel level) {}
+
+    /**
+     * The request of a user looking for an opponent, or no longer.
+     *
+     * @param userId the id of the user
+     * @param board the board the user wants to play on
+     */
+    public record FindMatch(String userId, BoardSize board) {}
+
+    private RequestCodec() {}
+
+    public static Command.RegisterUser readRegisterUser(Buffer body) {
+        return (Command.RegisterUser) read(body, REGISTER_USER);
+    }
+
+    /**
+     * Read the request creating a game: the board of tic-tac-toe if the body is empty,
+     * otherwise the size of the board in "width" and "height" (default: the width) and
+     * the number in a row winning the game in "winLength" (default: the shortest side).
+     *
+     * @param body the body of the request, possibly empty
+     * @return the command
+     */
+    public static Command.CreateGame readCreateGame(Buffer body) {
+        if (body == null || body.length() == 0) {
+            return new Command.CreateGame(BoardSize.CLASSIC);
+        }
+        return (Command.CreateGame) read(body, CREATE_GAME);
+    }
+
+    public static Command.JoinGame readJoinGame(Buffer body) {
+        return (Command.JoinGame) read(body, JOIN_GAME);
+    }
+
+    public static Command.MakeMove readMakeMove(Buffer body) {
+        return (Command.MakeMove) read(body, MAKE_A_MOVE);
+    }
+
+    /**
+     * Read the request of a bot joining a game: the id of the game in "gameId" and
+     * the level of the bot in "level", "easy", "medium", "hard" or "perfect" (the default).
+     *
+     * @param body the body of the request
+     * @return the request
+     */
+    public static JoinBot readJoinBot(Buffer body) {
+        try (JsonParser parser = parser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected an object");
+            }
+            String gameId = null;
+            BotLevel level = BotLevel.PERFECT;
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                parser.nextToken();
+                switch (field) {
+                    case "gameId" -> gameId = parser.getValueAsString();
+                    case "level" -> level = BotLevel.named(parser.getValueAsString());
+                    default -> parser.skipChildren();
+                }
+            }
+            return new JoinBot(required(gameId, "gameId"), level);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Read the request of a user looking for an opponent: the id of the user in "userId"
+     * and the size of the board as in {@link #readCreateGame(Buffer)}, tic-tac-toe by default.
+     *
+     * @param body the body of the request
+     * @return the request
+     */
+    public static FindMatch readFindMatch(Buffer body) {
+        try (JsonParser parser = parser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected an object");
+            }
+            String userId = null;
+            int width = -1;
+            int height = -1;
+            int winLength = -1;
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                parser.nextToken();
+                switch (field) {
+                    case "userId" -> userId = parser.getValueAsString();
+                    case "width" -> width = readInt(parser);
+                    case "height" -> height = readInt(parser);
+                    case "winLength" -> winLength = readInt(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            return new FindMatch(required(userId, "userId"), board(width, height, winLength));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Read a batch: an array of commands, each with the name of its operation in "op".
+     *
+     * @param body the body of the request
+     * @return the commands
+     */
+    public static List<Command> readBatch(Buffer body) {
+        try (JsonParser parser = parser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected an array of commands");
+            }
+            final List<Command> commands = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("Expected a command object");
+                }
+                commands.add(readCommand(parser, null));
+            }
+            if (parser.nextToken() != null) {
+                throw new IllegalArgumentException("Unexpected content after the commands");
+            }
+            return commands;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Command read(Buffer body, String op) {
+        try (JsonParser parser = parser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected an object");
+            }
+            return readCommand(parser, op);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /*
+     * A parser over the bytes of the body, not copied: read from
+     * the backing array if any, otherwise through a stream
+     */
+    private static JsonParser parser(Buffer body) throws IOException {
+        final ByteBuf bytes = ((BufferInternal) body).getByteBuf();
+        if (bytes.hasArray()) {
+            return FACTORY.createParser(bytes.array(), bytes.arrayOffset() + bytes.readerIndex(),
+                    bytes.readableBytes());
+        }
+        final InputStream in = new ByteBufInputStream(bytes);
+        return FACTORY.createParser(in);
+    }
+
+    /*
+     * Read the fields of an object, the parser being on its start,
+     * then build the command of the operation
+     */
+    private static Command readCommand(JsonParser parser, String op) throws IOException {
+        String operation = op;
+        String userName = null;
+        String userId = null;
+        String gameId = null;
+        Game.GameSymbolType symbol = Game.GameSymbolType.EMPTY;
+        int x = -1;
+        int y = -1;
+        int width = -1;
+        int height = -1;
+        int winLength = -1;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            switch (field) {
+                case "op" -> operation = op == null ? parser.getValueAsString() : op;
+                case "userName" -> userName = parser.getValueAsString();
+                case "userId" -> userId = parser.getValueAsString();
+                case "gameId" -> gameId = parser.getValueAsString();
+                case "symbol" -> symbol = readSymbol(parser);
+                case "x" -> x = readInt(parser);
+                case "y" -> y = readInt(parser);
+                case "width" -> width = readInt(parser);
+                case "height" -> height = readInt(parser);
+                case "winLength" -> winLength = readInt(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        if (operation == null) {
+            throw new IllegalArgumentException("Missing operation");
+        }
+        return switch (operation) {
+            case REGISTER_USER -> new Command.RegisterUser(userName(userName));
+            case CREATE_GAME -> new Command.CreateGame(board(width, height, winLength));
+            case JOIN_GAME -> new Command.JoinGame(required(userId, "userId"), required(gameId, "gameId"), symbol);
+            case MAKE_A_MOVE -> new Command.MakeMove(required(userId, "userId"), required(gameId, "gameId"),
+                    symbol, x, y);
+            default -> throw new IllegalArgumentException("Unknown operation " + operation);
+        };
+    }
+
+    private static String required(String value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + field);
+        }
+        return value;
+    }
+
+    private static String userName(String userName) {
+        if (userName != null && userName.length() > MAX_USER_NAME_BYTES / 3
+                && userName.getBytes(StandardCharsets.UTF_8).length > MAX_USER_NAME_BYTES) {
+            throw new IllegalArgumentException("User name longer than " + MAX_USER_NAME_BYTES + " bytes");
+        }
+        return userName;
+    }
+
+    /* the board of tic-tac-toe unless a size is given, the sizes not given following from the others */
+    private static BoardSize board(int width, int height, int winLength) {
+        if (width < 0 && height < 0 && winLength < 0) {
+            return BoardSize.CLASSIC;
+        }
+        final int w = width < 0 ? (height < 0 ? BoardSize.CLASSIC.width() : height) : width;
+        final int h = height < 0 ? w : height;
+        return new BoardSize(w, h, winLength < 0 ? Math.min(w, h) : winLength);
+    }
+
+    /*
+     * "cross" and "circle" are the symbols of the players,
+     * anything else is the empty symbol, refused by the game
+     */
+    private static Game.GameSymbolType readSymbol(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            return Game.GameSymbolType.EMPTY;
+        }
+        final char[] text = parser.getTextCharacters();
+        final int offset = parser.getTextOffset();
+        final int length = parser.getTextLength();
+        if (matches(text, offset, length, CROSS)) {
+            return Game.GameSymbolType.CROSS;
+        } else if (matches(text, offset, length, CIRCLE)) {
+            return Game.GameSymbolType.CIRCLE;
+        }
+        return Game.GameSymbolType.EMPTY;
+    }
+
+    private static boolean matches(char[] text, int offset, int length, char[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readInt(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            throw new IllegalArgumentException("Expected an integer");
+        }
+        final char[] text = parser.getTextCharacters();
+        final int offset = parser.getTextOffset();
+        final int length = parser.getTextLength();
+        final boolean negative = length > 0 && text[offset] == '-';
+        final int digits = negative ? length - 1 : length;
+        if (digits == 0 || digits > 9) {
+            throw new IllegalArgumentException("Expected an integer");
+        }
+        int value = 0;
+        for (int i = length - digits; i < length; i++) {
+            final int digit = text[offset + i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Expected an integer");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
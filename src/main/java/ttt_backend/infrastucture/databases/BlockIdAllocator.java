@@ -0,0 +1,150 @@
+package ttt_backend.infrastucture.databases;
+
+import ttt_backend.domain.ports.IdAllocator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Id allocator leasing blocks of ids from a high-water mark persisted in a
+ * file, so that the ids are never handed out twice across restarts, with a
+ * single write per block. The ids of the current block are handed out with
+ * an atomic increment; the next block is leased in background when half of
+ * the current one is used, so that the callers do not wait for the write.
+ * The ids left in the block when the process stops are never used.
+ * <p>
+ * Leases are made holding an exclusive lock on a file next to the
+ * high-water mark, so processes sharing it never lease the same block.
+ * Allocators that do not share it are told apart by their shard: the
+ * allocator of shard {@code s} of {@code n} only hands out the ids equal
+ * to {@code s} modulo {@code n}, counting its blocks in units of {@code n}.
+ * The number of shards must not change once ids have been handed out.
+ */
+public class BlockIdAllocator implements IdAllocator, AutoCloseable {
+    private static final Logger logger = Logger.getLogger("[TicTacToe Backend]");
+
+    /* a block of ids, in units of the number of shards */
+    private record Block(long start, long end, AtomicLong next) {}
+
+    private final Path file;
+    private final Path lockFile;
+    private final int blockSize;
+    private final int shard;
+    private final int shards;
+    private final long firstBlock;
+    private final Object leaseLock = new Object();
+    private final AtomicReference<Block> current = new AtomicReference<>();
+    private final ExecutorService leaser;
+    private CompletableFuture<Block> prefetched;
+
+    /**
+     * @param file the file of the high-water mark
+     * @param blockSize the number of ids leased at once
+     * @param shard the shard of the allocator, from 0 to shards - 1
+     * @param shards the number of shards
+     * @param maxExistingId the highest id already in use, to start above it
+     */
+    public BlockIdAllocator(Path file, int blockSize, int shard, int shards, long maxExistingId) {
+        if (shard < 0 || shard >= shards || blockSize < 1) {
+            throw new IllegalArgumentException("shard " + shard + " of " + shards + ", blocks of " + blockSize);
+        }
+        this.file = file;
+        this.lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        this.blockSize = blockSize;
+        this.shard = shard;
+        this.shards = shards;
+        this.firstBlock = Math.max(0, Math.floorDiv(maxExistingId - shard, shards) + 1);
+        this.leaser = Executors.newSingleThreadExecutor(r -> {
+            final Thread thread = new Thread(r, "ttt-ids-leaser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.current.set(lease());
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            final Block block = this.current.get();
+            final long next = block.next().getAndIncrement();
+            if (next < block.end()) {
+                if (next == block.start() + this.blockSize / 2) {
+                    prefetch();
+                }
+                return next * this.shards + this.shard;
+            }
+            renew(block);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.leaser.shutdown();
+    }
+
+    private synchronized void prefetch() {
+        if (this.prefetched == null) {
+            this.prefetched = CompletableFuture.supplyAsync(this::lease, this.leaser);
+        }
+    }
+
+    /*
+     * Replace the exhausted block, unless another thread already did,
+     * with the block prefetched or, if none, with a block leased now
+     */
+    private synchronized void renew(Block exhausted) {
+        if (this.current.get() != exhausted) {
+            return;
+        }
+        final CompletableFuture<Block> next = this.prefetched;
+        this.prefetched = null;
+        this.current.set(next != null ? next.join() : lease());
+    }
+
+    private Block lease() {
+        synchronized (this.leaseLock) {
+            try (FileChannel channel = FileChannel.open(this.lockFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                final FileLock lock = channel.lock();
+                try {
+                    final long stored = Files.exists(this.file)
+                            ? Long.parseLong(Files.readString(this.file, StandardCharsets.UTF_8).trim()) : 0;
+                    final long start = Math.max(stored, this.firstBlock);
+                    final long end = start + this.blockSize;
+                    final Path tmp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+                    try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                        out.write(ByteBuffer.wrap((end + "\n").getBytes(StandardCharsets.UTF_8)));
+                        out.force(true);
+                    }
+                    Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    return new Block(start, end, new AtomicLong(start));
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Cannot lease ids from " + this.file, e);
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
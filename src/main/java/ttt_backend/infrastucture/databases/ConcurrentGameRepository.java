@@ -0,0 +1,224 @@
+package ttt_backend.infrastucture.databases;
+
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.ports.GameRepository;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Thread-safe game repository with eviction.
+ * Games are kept in a {@link ConcurrentHashMap}, so lookups are lock-free.
+ * A background sweeper evicts the games finished for longer than a grace
+ * period and the ones not accessed for longer than the idle TTL. The number
+ * of games is capped: when the cap is reached, saving a new game evicts a
+ * batch of games, the finished ones first, then the ones waiting for a
+ * player, each the least recently used first. Games being played are only
+ * evicted when there are not enough of the others, and counted apart.
+ */
+public class ConcurrentGameRepository implements GameRepository, AutoCloseable {
+    private static final Logger logger = Logger.getLogger("[TicTacToe Backend]");
+    private static final Duration DEFAULT_IDLE_TTL = Duration.ofMinutes(30);
+    private static final Duration DEFAULT_FINISHED_TTL = Duration.ofMinutes(1);
+    private static final int DEFAULT_MAX_GAMES = 100_000;
+    private static final int EVICTION_BATCH_DIVISOR = 64;
+    private static final int PLAYING_RANK = 2;
+
+    /* a stored game, with the time of its last access */
+    private static final class Entry {
+        private final Game game;
+        private volatile long lastAccess;
+
+        private Entry(Game game) {
+            this.game = game;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+
+    /**
+     * Number of games evicted, by cause; of the ones evicted at capacity,
+     * the number still being played.
+     */
+    public record Evictions(long finished, long idle, long capacity, long playing) {}
+
+    private final Map<String, Entry> games = new ConcurrentHashMap<>();
+    private final long idleTtlNanos;
+    private final long finishedTtlNanos;
+    private final int maxGames;
+    private final LongAdder evictedFinished = new LongAdder();
+    private final LongAdder evictedIdle = new LongAdder();
+    private final LongAdder evictedCapacity = new LongAdder();
+    private final LongAdder evictedPlaying = new LongAdder();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final ScheduledExecutorService sweeper;
+
+    public ConcurrentGameRepository() {
+        this(DEFAULT_IDLE_TTL, DEFAULT_FINISHED_TTL, DEFAULT_MAX_GAMES);
+    }
+
+    /**
+     * @param idleTtl how long a game can stay untouched before being evicted
+     * @param finishedTtl how long a finished game is kept
+     * @param maxGames the maximum number of games kept
+     */
+    public ConcurrentGameRepository(Duration idleTtl, Duration finishedTtl, int maxGames) {
+        this.idleTtlNanos = idleTtl.toNanos();
+        this.finishedTtlNanos = finishedTtl.toNanos();
+        this.maxGames = maxGames;
+        final long period = Math.max(1, Math.min(idleTtl.toMillis(), finishedTtl.toMillis()) / 2);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "ttt-games-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Game save(Game game) {
+        final Entry entry = this.games.get(game.getId());
+        if (entry != null && entry.game == game) {
+            entry.lastAccess = System.nanoTime();
+            return game;
+        }
+        if (entry == null && this.games.size() >= this.maxGames) {
+            evictLeastRecentlyUsed();
+        }
+        this.games.put(game.getId(), new Entry(game));
+        return game;
+    }
+
+    @Override
+    public Optional<Game> getGameById(String id) {
+        final Entry entry = this.games.get(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        entry.lastAccess = System.nanoTime();
+        return Optional.of(entry.game);
+    }
+
+    /**
+     * @return the number of games currently stored
+     */
+    public int size() {
+        return this.games.size();
+    }
+
+    /**
+     * @return the number of games stored and not finished yet
+     */
+    public long activeGames() {
+        return this.games.values().stream().filter(entry -> !entry.game.isGameEnd()).count();
+    }
+
+    /**
+     * @return the number of games evicted since the repository was created
+     */
+    public Evictions getEvictions() {
+        return new Evictions(this.evictedFinished.sum(), this.evictedIdle.sum(), this.evictedCapacity.sum(),
+                this.evictedPlaying.sum());
+    }
+
+    /**
+     * Evict the finished and the idle games.
+     */
+    public void sweep() {
+        final long now = System.nanoTime();
+        int finished = 0;
+        int idle = 0;
+        for (final Iterator<Entry> it = this.games.values().iterator(); it.hasNext(); ) {
+            final Entry entry = it.next();
+            final long age = now - entry.lastAccess;
+            if (entry.game.isGameEnd() && age > this.finishedTtlNanos) {
+                it.remove();
+                finished++;
+            } else if (age > this.idleTtlNanos) {
+                it.remove();
+                idle++;
+            }
+        }
+        this.evictedFinished.add(finished);
+        this.evictedIdle.add(idle);
+        if (finished + idle > 0) {
+            logger.log(Level.INFO, "Evicted " + finished + " finished and " + idle + " idle games, "
+                    + this.games.size() + " left");
+        }
+    }
+
+    @Override
+    public void close() {
+        this.sweeper.shutdown();
+    }
+
+    /*
+     * Evict a batch of games in a single pass, so that the cost of the pass
+     * is shared by the following saves: the finished games first, then the
+     * waiting ones, then the ones being played, the least recently used first.
+     * Only one thread evicts at a time: the others do not wait for it.
+     */
+    private void evictLeastRecentlyUsed() {
+        if (!this.evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final int batch = Math.max(1, this.maxGames / EVICTION_BATCH_DIVISOR);
+            final Comparator<Candidate> order = Comparator.comparingInt(Candidate::rank)
+                    .thenComparingLong(Candidate::lastAccess);
+            final PriorityQueue<Candidate> first = new PriorityQueue<>(batch, order.reversed());
+            for (final Entry entry : this.games.values()) {
+                final Candidate candidate = new Candidate(entry, rank(entry.game), entry.lastAccess);
+                if (first.size() < batch) {
+                    first.add(candidate);
+                } else if (order.compare(candidate, first.peek()) < 0) {
+                    first.poll();
+                    first.add(candidate);
+                }
+            }
+            int evicted = 0;
+            int playing = 0;
+            for (final Candidate candidate : first) {
+                if (this.games.remove(candidate.entry().game.getId(), candidate.entry())) {
+                    evicted++;
+                    if (candidate.rank() == PLAYING_RANK) {
+                        playing++;
+                    }
+                }
+            }
+            this.evictedCapacity.add(evicted);
+            this.evictedPlaying.add(playing);
+            if (playing > 0) {
+                logger.log(Level.WARNING, "Evicted " + evicted + " games at capacity, " + playing
+                        + " of them being played, " + this.games.size() + " left");
+            } else if (evicted > 0) {
+                logger.log(Level.INFO, "Evicted " + evicted + " finished or waiting games at capacity, "
+                        + this.games.size() + " left");
+            }
+        } finally {
+            this.evicting.set(false);
+        }
+    }
+
+    /* the order of eviction of a game: finished, waiting for a player, being played */
+    private static int rank(Game game) {
+        return switch (game.getState()) {
+            case FINISHED -> 0;
+            case WAITING_PLAYER -> 1;
+            case PLAYING -> PLAYING_RANK;
+        };
+    }
+
+    private record Candidate(Entry entry, int rank, long lastAccess) {}
+}
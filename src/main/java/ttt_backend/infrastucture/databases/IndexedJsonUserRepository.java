@@ -0,0 +1,123 @@
+package ttt_backend.infrastucture.databases;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import ttt_backend.domain.models.User;
+import ttt_backend.domain.ports.UserRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * User repository that loads the JSON file once into a hash index and answers
+ * lookups from memory. New users are persisted with write-behind batching:
+ * they are queued and flushed together to the JSON file periodically.
+ */
+public class IndexedJsonUserRepository extends JsonRepository implements UserRepository, AutoCloseable {
+    private static final Logger logger = Logger.getLogger("[TicTacToe Backend]");
+    private static final Path FILE_PATH = Paths.get("users.json");
+    private static final long DEFAULT_FLUSH_PERIOD_MS = 200;
+
+    private final Path path;
+    private final Map<String, User> index = new ConcurrentHashMap<>();
+    private final Queue<User> pending = new ConcurrentLinkedQueue<>();
+    private final JsonArray persisted;
+    private final ScheduledExecutorService flusher;
+
+    public IndexedJsonUserRepository() {
+        this(FILE_PATH, DEFAULT_FLUSH_PERIOD_MS);
+    }
+
+    public IndexedJsonUserRepository(Path path, long flushPeriodMillis) {
+        this.path = path;
+        try {
+            this.persisted = getJsonContent(path);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.persisted.stream()
+                .map(obj -> ((JsonObject) obj))
+                .map(o -> new User(o.getString("id"), o.getString("username")))
+                .forEach(u -> this.index.putIfAbsent(u.id(), u));
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "ttt-users-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushPeriodMillis, flushPeriodMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public User save(User user) {
+        this.index.put(user.id(), user);
+        this.pending.add(user);
+        return user;
+    }
+
+    @Override
+    public Optional<User> getUserById(String id) {
+        return Optional.ofNullable(this.index.get(id));
+    }
+
+    /**
+     * Write all the queued users on the JSON file, in a single write.
+     * The users are dequeued only once written, so a failed write is retried
+     * by the next flush.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        final List<User> users = new ArrayList<>(this.pending);
+        if (users.isEmpty()) {
+            return;
+        }
+        for (final User user : users) {
+            this.persisted.add(new JsonObject()
+                    .put("id", user.id())
+                    .put("username", user.name()));
+        }
+        try {
+            saveOnJsonFile(this.path, this.persisted);
+        } catch (IOException e) {
+            for (int i = 0; i < users.size(); i++) {
+                this.persisted.remove(this.persisted.size() - 1);
+            }
+            throw e;
+        }
+        for (int i = 0; i < users.size(); i++) {
+            this.pending.poll();
+        }
+    }
+
+    /**
+     * Stop the background flusher, writing the users still queued.
+     */
+    @Override
+    public void close() {
+        this.flusher.shutdown();
+        flushQuietly();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot flush users on " + this.path, e);
+        }
+    }
+}
@@ -6,10 +6,36 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
+/**
+ * Base class for the repositories persisted on a JSON file.
+ * Concurrent writes are coalesced: the content to write is first staged,
+ * then a single writer flushes the latest staged content on behalf of all
+ * the writers waiting for it.
+ * The async operations of the JSON repositories run on a dedicated I/O pool.
+ */
 public class JsonRepository {
+    protected static final Executor IO_EXECUTOR = Executors.newFixedThreadPool(4, r -> {
+        final Thread thread = new Thread(r, "ttt-json-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object stageLock = new Object();
+    private final Object writeLock = new Object();
+    private Path stagedPath;
+    private JsonArray staged;
+    private long stagedVersion;
+    private long writtenVersion;
 
     protected JsonArray getJsonContent(Path path) throws IOException {
+        synchronized (this.stageLock) {
+            if (this.staged != null && path.equals(this.stagedPath)) {
+                return this.staged.copy();
+            }
+        }
         if (!Files.exists(path))
             return new JsonArray();
         try {
@@ -21,7 +47,46 @@ public class JsonRepository {
     }
 
     protected void saveOnJsonFile(Path path, JsonArray array) throws IOException {
-        Files.writeString(path, array.encodePrettily(), StandardOpenOption.CREATE,
-                StandardOpenOption.TRUNCATE_EXISTING);
+        flushJsonFile(path, stageOnJsonFile(path, array));
+    }
+
+    /**
+     * Stage the new content of the file, without writing it.
+     *
+     * @param path the file
+     * @param array the new content
+     * @return the version of the staged content, to be passed to {@link #flushJsonFile}
+     */
+    protected long stageOnJsonFile(Path path, JsonArray array) {
+        synchronized (this.stageLock) {
+            this.stagedPath = path;
+            this.staged = array;
+            return ++this.stagedVersion;
+        }
+    }
+
+    /**
+     * Make sure that the given staged version, or a later one, is written on the file.
+     * If another writer is flushing, wait for it: its write may include this version too.
+     *
+     * @param path the file
+     * @param version the staged version
+     * @throws IOException if the file cannot be written
+     */
+    protected void flushJsonFile(Path path, long version) throws IOException {
+        synchronized (this.writeLock) {
+            if (this.writtenVersion >= version) {
+                return;
+            }
+            final JsonArray content;
+            final long latest;
+            synchronized (this.stageLock) {
+                content = this.staged;
+                latest = this.stagedVersion;
+            }
+            Files.writeString(path, content.encodePrettily(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.writtenVersion = latest;
+        }
     }
 }
@@ -8,23 +8,58 @@ import ttt_backend.domain.ports.UserRepository;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
 
 public class JsonUserRepository extends JsonRepository implements UserRepository {
-    private static final Path FILE_PATH = Paths.get("users.json");
+    private final Path path;
+
+    public JsonUserRepository() {
+        this(Paths.get("users.json"));
+    }
+
+    /**
+     * @param path the JSON file of the users
+     */
+    public JsonUserRepository(Path path) {
+        this.path = path;
+    }
 
     @Override
     public User save(User user) {
+        saveAll(List.of(user));
+        return user;
+    }
+
+    /**
+     * Save many users with a single rewrite of the file.
+     *
+     * @param users the users to save
+     * @return the users saved
+     */
+    public List<User> saveAll(List<User> users) {
         try {
-            final JsonArray users = getJsonContent(FILE_PATH);
+            final long version;
+            synchronized (this) {
+                final JsonArray content = getJsonContent(this.path);
 
-            users.add(new JsonObject()
-                    .put("id", user.id())
-                    .put("username", user.name()));
+                for (final User user : users) {
+                    content.add(new JsonObject()
+                            .put("id", user.id())
+                            .put("username", user.name()));
+                }
 
-            saveOnJsonFile(FILE_PATH, users);
+                version = stageOnJsonFile(this.path, content);
+            }
+            flushJsonFile(this.path, version);
 
-            return user;
+            return users;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -33,7 +68,7 @@ public class JsonUserRepository extends JsonRepository implements UserRepository
     @Override
     public Optional<User> getUserById(String id) {
         try {
-            final JsonArray users = getJsonContent(FILE_PATH);
+            final JsonArray users = getJsonContent(this.path);
 
             return users.stream()
                     .map(obj -> ((JsonObject) obj))
@@ -44,4 +79,38 @@ public class JsonUserRepository extends JsonRepository implements UserRepository
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public CompletionStage<User> saveAsync(User user) {
+        return CompletableFuture.supplyAsync(() -> save(user), IO_EXECUTOR);
+    }
+
+    @Override
+    public CompletionStage<Optional<User>> getUserByIdAsync(String id) {
+        return CompletableFuture.supplyAsync(() -> getUserById(id), IO_EXECUTOR);
+    }
+
+    @Override
+    public CompletionStage<List<User>> saveAllAsync(List<User> users) {
+        return CompletableFuture.supplyAsync(() -> saveAll(users), IO_EXECUTOR);
+    }
+
+    /**
+     * The users are all looked up in a single scan of the file.
+     */
+    @Override
+    public CompletionStage<Map<String, User>> getUsersByIdAsync(Collection<String> ids) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                final Set<String> wanted = Set.copyOf(ids);
+                return getJsonContent(this.path).stream()
+                        .map(obj -> ((JsonObject) obj))
+                        .filter(o -> wanted.contains(o.getString("id")))
+                        .map(o -> new User(o.getString("id"), o.getString("username")))
+                        .collect(Collectors.toMap(User::id, u -> u, (first, second) -> first));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, IO_EXECUTOR);
+    }
 }
@@ -0,0 +1,802 @@
+package ttt_backend.infrastucture.databases;
+
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+import ttt_backend.domain.ports.GameRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Durable, event-sourced game repository.
+ * The games are kept in memory, and each save appends to a log the commands
+ * that changed the game since it was last saved (create, join, start, move),
+ * found by comparing the game with the state already logged. The caller only
+ * encodes the commands and copies them to a buffer: a committer thread writes
+ * the buffer and fsyncs the log once for all the commands appended in the
+ * meantime (group commit). With synchronous commits the stage returned by a
+ * save completes when its commands are durable, otherwise at once, a crash
+ * losing the commands of the last commit.
+ * The game is compared holding its lock, unless the caller already runs the
+ * operations on each game one at a time, as in partitioned execution.
+ * <p>
+ * A command only adds to the state of a game (a player, the start, a cell),
+ * so replaying a command twice, or out of order, gives the same state. This
+ * lets snapshots be taken while the games are being saved: a snapshot starts
+ * a new log segment, then writes the state logged for each game, which
+ * includes at least the commands of the previous segments. The games
+ * finished before the previous snapshot are left out of the snapshot, and
+ * dropped from memory. At startup, the games are rebuilt from the latest
+ * snapshot and the segments from the one it started.
+ * Snapshots are taken periodically, and when the log grows past a size, to
+ * bound the time of the recovery.
+ * <p>
+ * Record layout: payload length (int), CRC32 of the payload (int), payload:
+ * the id of the game, the number of commands (byte, modulo 256: the commands
+ * run to the end of the payload) and the commands, each a type byte followed,
+ * for a join, by the symbol (byte), the id and the name of the user and, for
+ * a move, by the symbol and the cell y * width + x (bytes, the cell a short
+ * past 255). A game created on a board other than the one of tic-tac-toe is
+ * created with its width, height and win length (bytes).
+ * Strings are an unsigned short length followed by the UTF-8 bytes: a game
+ * holding a longer string is not logged, its save failing.
+ * <p>
+ * Snapshot layout: a magic number (int), the games, each a byte 1, its id,
+ * its flags (byte: cross joined, circle joined, started), the width, height
+ * and win length of its board (bytes), the cells of cross and circle (the
+ * longs of their bitsets) and the users joined, then a byte 0, the number of
+ * games (int) and the CRC32 of all the previous bytes (long). The snapshots
+ * of tic-tac-toe games only, with the cells as shorts, are still read.
+ */
+public class LogGameRepository implements GameRepository, AutoCloseable {
+    private static final Logger logger = Logger.getLogger("[TicTacToe Backend]");
+    private static final Path DEFAULT_DIRECTORY = Paths.get("games-log");
+    private static final Duration DEFAULT_SNAPSHOT_PERIOD = Duration.ofMinutes(1);
+    private static final long DEFAULT_SNAPSHOT_BYTES = 64L << 20;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int SNAPSHOT_MAGIC = 0x54545453;
+    private static final int SNAPSHOT_MAGIC_BOARDS = 0x54545442;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    private static final CompletableFuture<Void> COMMITTED = CompletableFuture.completedFuture(null);
+
+    /* the commands */
+    private static final byte CREATE = 0;
+    private static final byte JOIN = 1;
+    private static final byte START = 2;
+    private static final byte MOVE = 3;
+    private static final byte CREATE_BOARD = 4;
+    private static final byte MOVE_WIDE = 5;
+    private static final int[] NO_CELLS = {};
+
+    /* the flags of a game in a snapshot */
+    private static final int CROSS_JOINED = 1;
+    private static final int CIRCLE_JOINED = 2;
+    private static final int STARTED = 4;
+
+    /* a game, with the state already logged */
+    private static final class Entry {
+        private final String id;
+        private volatile Game game;
+        private boolean created;
+        private User cross;
+        private User circle;
+        private boolean started;
+        private BoardSize board = BoardSize.CLASSIC;
+        private long[] crossCells = new long[1];
+        private long[] circleCells = new long[1];
+        /* the snapshot epoch the game finished in, -1 if not finished */
+        private int finishedEpoch = -1;
+
+        private Entry(String id) {
+            this.id = id;
+        }
+
+        private void setBoard(BoardSize board) {
+            this.board = board;
+            this.crossCells = new long[(board.cells() + 63) >>> 6];
+            this.circleCells = new long[this.crossCells.length];
+        }
+    }
+
+    private final Path directory;
+    private final long snapshotBytes;
+    private final boolean syncCommits;
+    private final boolean lockGames;
+    private final Map<String, Entry> games = new ConcurrentHashMap<>();
+    private final Object appendLock = new Object();
+    private final Object writeLock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES);
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_BYTES);
+    private List<CompletableFuture<Void>> uncommitted = new ArrayList<>();
+    private FileChannel active;
+    private int activeSegment;
+    private long loggedSinceSnapshot;
+    private volatile int epoch;
+    private volatile boolean closed;
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private final Thread committer;
+    private final ScheduledExecutorService snapshotter;
+
+    public LogGameRepository() {
+        this(DEFAULT_DIRECTORY, DEFAULT_SNAPSHOT_PERIOD, DEFAULT_SNAPSHOT_BYTES, false);
+    }
+
+    public LogGameRepository(Path directory, Duration snapshotPeriod, long snapshotBytes, boolean syncCommits) {
+        this(directory, snapshotPeriod, snapshotBytes, syncCommits, true);
+    }
+
+    /**
+     * @param directory the directory of the log and of the snapshots
+     * @param snapshotPeriod how often a snapshot is taken
+     * @param snapshotBytes the size of the log after which a snapshot is taken
+     * @param syncCommits true if a save completes only when its commands are durable
+     * @param lockGames false if the caller never saves a game while running another operation on it
+     */
+    public LogGameRepository(Path directory, Duration snapshotPeriod, long snapshotBytes, boolean syncCommits,
+                             boolean lockGames) {
+        this.directory = directory;
+        this.snapshotBytes = snapshotBytes;
+        this.syncCommits = syncCommits;
+        this.lockGames = lockGames;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.committer = new Thread(this::commitLoop, "ttt-games-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "ttt-games-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, snapshotPeriod.toMillis(),
+                snapshotPeriod.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Game save(Game game) {
+        log(game).join();
+        return game;
+    }
+
+    /**
+     * The commands are appended by the caller, while the fsync is left to the
+     * committer: with synchronous commits the returned stage completes when
+     * the commands are durable.
+     */
+    @Override
+    public CompletionStage<Game> saveAsync(Game game) {
+        return log(game).thenApply(v -> game);
+    }
+
+    /**
+     * The commands of all the games are appended before waiting for the
+     * commit, so they are made durable by a single fsync.
+     */
+    @Override
+    public CompletionStage<List<Game>> saveAllAsync(List<Game> games) {
+        CompletableFuture<Void> last = COMMITTED;
+        for (final Game game : games) {
+            last = log(game);
+        }
+        return last.thenApply(v -> games);
+    }
+
+    @Override
+    public Optional<Game> getGameById(String id) {
+        final Entry entry = this.games.get(id);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.game);
+    }
+
+    /**
+     * @return the number of games in memory
+     */
+    public int size() {
+        return this.games.size();
+    }
+
+    /**
+     * @return the ids of the games in memory
+     */
+    public Set<String> ids() {
+        return Collections.unmodifiableSet(this.games.keySet());
+    }
+
+    /**
+     * @return the number of games in memory not finished yet
+     */
+    public long activeGames() {
+        return this.games.values().stream().filter(entry -> entry.game != null && !entry.game.isGameEnd()).count();
+    }
+
+    /**
+     * Take a snapshot of the games, then delete the segments
+     * of the log and the snapshot it replaces.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        final long start = System.nanoTime();
+        final int segment;
+        final int snapshotEpoch;
+        synchronized (this.appendLock) {
+            roll();
+            segment = this.activeSegment;
+            snapshotEpoch = this.epoch++;
+        }
+
+        final Path tmp = this.directory.resolve("snapshot.tmp");
+        int count = 0;
+        int dropped = 0;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final CRC32 crc = new CRC32();
+            final var raw = Channels.newOutputStream(channel);
+            final var out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(raw, crc),
+                    BUFFER_BYTES));
+            out.writeInt(SNAPSHOT_MAGIC_BOARDS);
+            for (final Entry entry : this.games.values()) {
+                synchronized (entry) {
+                    if (entry.finishedEpoch >= 0 && entry.finishedEpoch < snapshotEpoch) {
+                        this.games.remove(entry.id, entry);
+                        dropped++;
+                        continue;
+                    }
+                    out.writeByte(1);
+                    writeString(out, entry.id);
+                    out.writeByte((entry.cross != null ? CROSS_JOINED : 0) | (entry.circle != null ? CIRCLE_JOINED : 0)
+                            | (entry.started ? STARTED : 0));
+                    out.writeByte(entry.board.width());
+                    out.writeByte(entry.board.height());
+                    out.writeByte(entry.board.winLength());
+                    for (final long word : entry.crossCells) {
+                        out.writeLong(word);
+                    }
+                    for (final long word : entry.circleCells) {
+                        out.writeLong(word);
+                    }
+                    writeUser(out, entry.cross);
+                    writeUser(out, entry.circle);
+                    count++;
+                }
+            }
+            out.writeByte(0);
+            out.writeInt(count);
+            out.flush();
+            new DataOutputStream(raw).writeLong(crc.getValue());
+            channel.force(true);
+        }
+        Files.move(tmp, snapshotPath(segment), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        deleteBefore(segment);
+        logger.log(Level.INFO, "Snapshot of " + count + " games, " + dropped + " finished games dropped, in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    /**
+     * Stop the background threads, waiting for the pending commands to be committed.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.snapshotter.shutdown();
+        synchronized (this.appendLock) {
+            this.appendLock.notifyAll();
+        }
+        try {
+            this.committer.join();
+            this.snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            synchronized (this.writeLock) {
+                this.active.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot close the games' log", e);
+        }
+    }
+
+    /*
+     * Append the commands changing the game since its last save, returning
+     * a future completed when they are durable with synchronous commits.
+     */
+    private CompletableFuture<Void> log(Game game) {
+        final Entry entry = this.games.computeIfAbsent(game.getId(), Entry::new);
+        synchronized (entry) {
+            entry.game = game;
+            final ByteBuffer record;
+            try {
+                record = onGame(game, () -> diff(game, entry));
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            if (record == null) {
+                return COMMITTED;
+            }
+            if (entry.finishedEpoch < 0 && game.isGameEnd()) {
+                entry.finishedEpoch = this.epoch;
+            }
+            return append(record);
+        }
+    }
+
+    /*
+     * Run the operation holding the lock of the game, unless the
+     * operations on the same game are serialized by the caller.
+     */
+    private <T> T onGame(Game game, Supplier<T> operation) {
+        if (!this.lockGames) {
+            return operation.get();
+        }
+        synchronized (game) {
+            return operation.get();
+        }
+    }
+
+    /*
+     * Encode the commands leading from the state logged for the game to its
+     * current state, as a record, and mark them as logged; null if none.
+     */
+    private static ByteBuffer diff(Game game, Entry entry) {
+        final User cross = entry.cross == null ? game.getUser(Game.GameSymbolType.CROSS).orElse(null) : null;
+        final User circle = entry.circle == null ? game.getUser(Game.GameSymbolType.CIRCLE).orElse(null) : null;
+        final boolean start = !entry.started && game.getState() != Game.GameState.WAITING_PLAYER;
+        if (!entry.created && !game.getBoardSize().equals(entry.board)) {
+            entry.setBoard(game.getBoardSize());
+        }
+        final int[] crossMoves = newCells(game, Game.GameSymbolType.CROSS, entry.crossCells);
+        final int[] circleMoves = newCells(game, Game.GameSymbolType.CIRCLE, entry.circleCells);
+        final int moves = crossMoves.length + circleMoves.length;
+        final int commands = (entry.created ? 0 : 1) + (cross != null ? 1 : 0) + (circle != null ? 1 : 0)
+                + (start ? 1 : 0) + moves;
+        if (commands == 0) {
+            return null;
+        }
+
+        final byte[] id = bytes(game.getId());
+        final byte[][] crossUser = user(cross);
+        final byte[][] circleUser = user(circle);
+        final int length = 2 + id.length + 1 + (entry.created ? 0 : entry.board.isClassic() ? 1 : 4)
+                + joinLength(crossUser) + joinLength(circleUser) + (start ? 1 : 0)
+                + movesLength(crossMoves) + movesLength(circleMoves);
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+        record.putInt(length).putInt(0);
+        putString(record, id);
+        record.put((byte) commands);
+        if (!entry.created && entry.board.isClassic()) {
+            record.put(CREATE);
+        } else if (!entry.created) {
+            record.put(CREATE_BOARD).put((byte) entry.board.width()).put((byte) entry.board.height())
+                    .put((byte) entry.board.winLength());
+        }
+        putJoin(record, Game.GameSymbolType.CROSS, crossUser);
+        putJoin(record, Game.GameSymbolType.CIRCLE, circleUser);
+        if (start) {
+            record.put(START);
+        }
+        putMoves(record, Game.GameSymbolType.CROSS, crossMoves);
+        putMoves(record, Game.GameSymbolType.CIRCLE, circleMoves);
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_BYTES, length);
+        record.putInt(4, (int) crc.getValue()).flip();
+
+        entry.created = true;
+        if (cross != null) {
+            entry.cross = cross;
+        }
+        if (circle != null) {
+            entry.circle = circle;
+        }
+        entry.started |= start;
+        for (final int cell : crossMoves) {
+            entry.crossCells[cell >>> 6] |= 1L << cell;
+        }
+        for (final int cell : circleMoves) {
+            entry.circleCells[cell >>> 6] |= 1L << cell;
+        }
+        return record;
+    }
+
+    private CompletableFuture<Void> append(ByteBuffer record) {
+        synchronized (this.appendLock) {
+            if (this.pending.remaining() < record.remaining()) {
+                final ByteBuffer larger = ByteBuffer.allocate(
+                        Math.max(2 * this.pending.capacity(), this.pending.position() + record.remaining()));
+                this.pending = larger.put(this.pending.flip());
+            }
+            if (this.pending.position() == 0) {
+                this.appendLock.notifyAll();
+            }
+            this.pending.put(record);
+            if (!this.syncCommits) {
+                return COMMITTED;
+            }
+            final var committed = new CompletableFuture<Void>();
+            this.uncommitted.add(committed);
+            return committed;
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            final List<CompletableFuture<Void>> batch;
+            synchronized (this.appendLock) {
+                while (this.pending.position() == 0 && !this.closed) {
+                    try {
+                        this.appendLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (this.pending.position() == 0) {
+                    return;
+                }
+                final ByteBuffer full = this.pending;
+                this.pending = this.writing;
+                this.writing = full;
+                batch = this.uncommitted;
+                this.uncommitted = new ArrayList<>();
+            }
+            try {
+                final boolean snapshotDue;
+                synchronized (this.writeLock) {
+                    this.loggedSinceSnapshot += write(this.active, this.writing.flip());
+                    this.active.force(false);
+                    snapshotDue = this.loggedSinceSnapshot > this.snapshotBytes;
+                }
+                batch.forEach(f -> f.complete(null));
+                if (snapshotDue && !this.closed) {
+                    try {
+                        this.snapshotter.execute(this::snapshotQuietly);
+                    } catch (RejectedExecutionException e) {
+                        /* closing */
+                    }
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Cannot commit to the games' log", e);
+                batch.forEach(f -> f.completeExceptionally(e));
+            } finally {
+                this.writing.clear();
+            }
+        }
+    }
+
+    /*
+     * Write the pending commands to the active segment, and
+     * start a new one; called holding the append lock
+     */
+    private void roll() throws IOException {
+        synchronized (this.writeLock) {
+            write(this.active, this.pending.flip());
+            this.pending.clear();
+            this.active.force(false);
+            this.active.close();
+            this.activeSegment++;
+            this.active = openForAppend(this.activeSegment);
+            this.loggedSinceSnapshot = 0;
+        }
+        this.uncommitted.forEach(f -> f.complete(null));
+        this.uncommitted = new ArrayList<>();
+    }
+
+    /*
+     * Load the latest snapshot, replay the segments from the one it
+     * started, truncating a torn record at the end of the log, and
+     * rebuild the games.
+     */
+    private void recover() throws IOException {
+        final long start = System.nanoTime();
+        final List<Integer> segments = numbered(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        final List<Integer> snapshots = numbered(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        final int snapshot = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+        if (!snapshots.isEmpty()) {
+            loadSnapshot(snapshotPath(snapshot));
+        }
+        final int fromSnapshot = this.games.size();
+
+        this.activeSegment = snapshot;
+        int records = 0;
+        for (final int segment : segments) {
+            if (segment < snapshot) {
+                continue;
+            }
+            this.activeSegment = segment;
+            try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                final ByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                final CRC32 crc = new CRC32();
+                int offset = 0;
+                while (log.remaining() >= RECORD_HEADER_BYTES) {
+                    final int length = log.getInt(offset);
+                    if (length <= 0 || offset + RECORD_HEADER_BYTES + length > log.limit()) {
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(log.slice(offset + RECORD_HEADER_BYTES, length));
+                    if ((int) crc.getValue() != log.getInt(offset + 4)) {
+                        break;
+                    }
+                    apply(log.slice(offset + RECORD_HEADER_BYTES, length));
+                    offset += RECORD_HEADER_BYTES + length;
+                    log.position(offset);
+                    records++;
+                }
+                if (offset < channel.size()) {
+                    logger.log(Level.WARNING, "Truncating torn record in " + segmentPath(segment) + " at " + offset);
+                    channel.truncate(offset);
+                }
+            }
+        }
+        this.active = openForAppend(this.activeSegment);
+        deleteBefore(snapshot);
+
+        for (final Entry entry : this.games.values()) {
+            entry.created = true;
+            entry.game = Game.restore(entry.id, entry.board, entry.cross, entry.circle, entry.started,
+                    entry.crossCells, entry.circleCells);
+            if (entry.game.isGameEnd()) {
+                entry.finishedEpoch = 0;
+            }
+        }
+        if (!this.games.isEmpty()) {
+            logger.log(Level.INFO, "Recovered " + this.games.size() + " games (" + fromSnapshot + " from the snapshot, "
+                    + records + " records from the log) in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                    + " ms");
+        }
+    }
+
+    private void loadSnapshot(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final CRC32 crc = new CRC32();
+            crc.update(snapshot.slice(0, snapshot.limit() - 8));
+            final int magic = snapshot.getInt();
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_BOARDS
+                    || crc.getValue() != snapshot.getLong(snapshot.limit() - 8)) {
+                throw new IOException("Corrupted snapshot " + path);
+            }
+            while (snapshot.get() == 1) {
+                final Entry entry = new Entry(getString(snapshot));
+                final int flags = snapshot.get();
+                entry.started = (flags & STARTED) != 0;
+                if (magic == SNAPSHOT_MAGIC) {
+                    entry.crossCells[0] = snapshot.getShort();
+                    entry.circleCells[0] = snapshot.getShort();
+                } else {
+                    entry.setBoard(new BoardSize(Byte.toUnsignedInt(snapshot.get()),
+                            Byte.toUnsignedInt(snapshot.get()), Byte.toUnsignedInt(snapshot.get())));
+                    for (int word = 0; word < entry.crossCells.length; word++) {
+                        entry.crossCells[word] = snapshot.getLong();
+                    }
+                    for (int word = 0; word < entry.circleCells.length; word++) {
+                        entry.circleCells[word] = snapshot.getLong();
+                    }
+                }
+                entry.cross = (flags & CROSS_JOINED) != 0 ? new User(getString(snapshot), getString(snapshot)) : null;
+                entry.circle = (flags & CIRCLE_JOINED) != 0 ? new User(getString(snapshot), getString(snapshot)) : null;
+                this.games.put(entry.id, entry);
+            }
+        }
+    }
+
+    /* apply the commands of a record to the state logged for its game */
+    private void apply(ByteBuffer payload) throws IOException {
+        final Entry entry = this.games.computeIfAbsent(getString(payload), Entry::new);
+        payload.get();
+        while (payload.hasRemaining()) {
+            final byte command = payload.get();
+            switch (command) {
+                case CREATE -> {}
+                case CREATE_BOARD -> entry.setBoard(new BoardSize(Byte.toUnsignedInt(payload.get()),
+                        Byte.toUnsignedInt(payload.get()), Byte.toUnsignedInt(payload.get())));
+                case JOIN -> {
+                    final boolean cross = payload.get() == Game.GameSymbolType.CROSS.ordinal();
+                    final User user = new User(getString(payload), getString(payload));
+                    if (cross) {
+                        entry.cross = user;
+                    } else {
+                        entry.circle = user;
+                    }
+                }
+                case START -> entry.started = true;
+                case MOVE, MOVE_WIDE -> {
+                    final boolean cross = payload.get() == Game.GameSymbolType.CROSS.ordinal();
+                    final int cell = command == MOVE ? Byte.toUnsignedInt(payload.get())
+                            : Short.toUnsignedInt(payload.getShort());
+                    final long[] cells = cross ? entry.crossCells : entry.circleCells;
+                    cells[cell >>> 6] |= 1L << cell;
+                }
+                default -> throw new IOException("Unknown command " + command);
+            }
+        }
+    }
+
+    private void snapshotQuietly() {
+        if (this.closed || !this.snapshotting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot take a snapshot of the games", e);
+        } finally {
+            this.snapshotting.set(false);
+        }
+    }
+
+    /* delete the segments and the snapshots older than a segment */
+    private void deleteBefore(int segment) throws IOException {
+        for (final int older : numbered(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (older < segment) {
+                Files.delete(segmentPath(older));
+            }
+        }
+        for (final int older : numbered(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (older < segment) {
+                Files.delete(snapshotPath(older));
+            }
+        }
+    }
+
+    private List<Integer> numbered(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(prefix) && n.endsWith(suffix))
+                    .map(n -> Integer.parseInt(n.substring(prefix.length(), n.length() - suffix.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        final int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return length;
+    }
+
+    /* the cells taken with the symbol in the game, not logged yet */
+    private static int[] newCells(Game game, Game.GameSymbolType symbol, long[] logged) {
+        int count = 0;
+        for (int word = 0; word < logged.length; word++) {
+            count += Long.bitCount(game.getCells(symbol, word) & ~logged[word]);
+        }
+        if (count == 0) {
+            return NO_CELLS;
+        }
+        final int[] cells = new int[count];
+        int i = 0;
+        for (int word = 0; word < logged.length; word++) {
+            for (long rest = game.getCells(symbol, word) & ~logged[word]; rest != 0; rest &= rest - 1) {
+                cells[i++] = (word << 6) + Long.numberOfTrailingZeros(rest);
+            }
+        }
+        return cells;
+    }
+
+    private static void putMoves(ByteBuffer record, Game.GameSymbolType symbol, int[] cells) {
+        for (final int cell : cells) {
+            if (cell <= 0xFF) {
+                record.put(MOVE).put((byte) symbol.ordinal()).put((byte) cell);
+            } else {
+                record.put(MOVE_WIDE).put((byte) symbol.ordinal()).putShort((short) cell);
+            }
+        }
+    }
+
+    private static int movesLength(int[] cells) {
+        int length = 0;
+        for (final int cell : cells) {
+            length += cell <= 0xFF ? 3 : 4;
+        }
+        return length;
+    }
+
+    private static void putJoin(ByteBuffer record, Game.GameSymbolType symbol, byte[][] user) {
+        if (user != null) {
+            record.put(JOIN).put((byte) symbol.ordinal());
+            putString(record, user[0]);
+            putString(record, user[1]);
+        }
+    }
+
+    private static int joinLength(byte[][] user) {
+        return user == null ? 0 : 2 + 2 + user[0].length + 2 + user[1].length;
+    }
+
+    private static byte[][] user(User user) {
+        return user == null ? null : new byte[][] {bytes(user.id()), bytes(user.name())};
+    }
+
+    /* the UTF-8 bytes of a string, refused if its length does not fit the unsigned short written before it */
+    private static byte[] bytes(String s) {
+        final byte[] bytes = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes too long for the games' log");
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) throws IOException {
+        final int length = Short.toUnsignedInt(buffer.getShort());
+        if (length > buffer.remaining()) {
+            throw new IOException("String of " + length + " bytes past the end of the record");
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        final byte[] bytes = bytes(s);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeUser(DataOutputStream out, User user) throws IOException {
+        if (user != null) {
+            writeString(out, user.id());
+            writeString(out, user.name());
+        }
+    }
+
+    private FileChannel openForAppend(int segment) throws IOException {
+        final FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        return channel.position(channel.size());
+    }
+
+    private Path segmentPath(int segment) {
+        return this.directory.resolve(SEGMENT_PREFIX + String.format("%06d", segment) + SEGMENT_SUFFIX);
+    }
+
+    private Path snapshotPath(int segment) {
+        return this.directory.resolve(SNAPSHOT_PREFIX + String.format("%06d", segment) + SNAPSHOT_SUFFIX);
+    }
+}
@@ -0,0 +1,659 @@
+package ttt_backend.infrastucture.databases;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import ttt_backend.domain.models.User;
+import ttt_backend.domain.ports.UserRepository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log-structured user repository.
+ * Each saved user is appended as a record to the active segment file, so the
+ * cost of a registration does not depend on the number of users. The id of
+ * each user is mapped to the location of its record by a {@link MappedUserIndex}.
+ * Appends are made durable by a committer thread that fsyncs the segment once
+ * for all the records written in the meantime (group commit). The appends of
+ * the async operations, and the rolls of the segments, run on a single
+ * appender thread, never on the caller's. The index is made durable, along
+ * with its watermark, when a segment is sealed and when the repository is
+ * closed; after a crash the records past the watermark are indexed again.
+ * The sealed segments holding records of users saved again since are
+ * compacted in background: the compacted segment replaces the last sealed
+ * one before the index is switched over to it, and a marker file kept
+ * meanwhile has the index rebuilt from the segments if the process stops
+ * halfway, as the mapped index may have been written back partly.
+ * The lookups of the async operations run on a pool of reader threads.
+ * <p>
+ * Record layout: payload length (int), CRC32 of the payload (int), payload
+ * (id and username, each as an unsigned short length followed by its UTF-8
+ * bytes: the save of a user with a longer name fails).
+ */
+public class LogUserRepository implements UserRepository, AutoCloseable {
+    private static final Logger logger = Logger.getLogger("[TicTacToe Backend]");
+    private static final Path DEFAULT_DIRECTORY = Paths.get("users-log");
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    private static final int OFFSET_BITS = 40;
+    private static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    private static final long COMPACTION_PERIOD_MS = 30_000;
+    private static final int READER_THREADS = 4;
+    private static final String INDEX_FILE = "users.idx";
+    private static final String COMPACTION_MARKER = "compaction.marker";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final MappedUserIndex index;
+    private final Map<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+    /* the number of records replaced by a later one, by segment */
+    private final Map<Integer, Integer> deadRecords = new ConcurrentHashMap<>();
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final Object appendLock = new Object();
+    private final Object commitLock = new Object();
+    private List<CompletableFuture<Void>> uncommitted = new ArrayList<>();
+    private FileChannel active;
+    private int activeSegment;
+    private long activeSize;
+    private volatile boolean closed;
+    private final Thread committer;
+    private final ScheduledExecutorService compactor;
+    private final ExecutorService readers;
+    private final ExecutorService appender;
+
+    public LogUserRepository() {
+        this(DEFAULT_DIRECTORY, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public LogUserRepository(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            final Path marker = directory.resolve(COMPACTION_MARKER);
+            if (Files.exists(marker)) {
+                logger.log(Level.WARNING, "Compaction of the users' log interrupted, rebuilding the index");
+                Files.deleteIfExists(directory.resolve(INDEX_FILE));
+            }
+            this.index = MappedUserIndex.open(directory.resolve(INDEX_FILE));
+            recover();
+            Files.deleteIfExists(marker);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.committer = new Thread(this::commitLoop, "ttt-users-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "ttt-users-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.compactor.scheduleWithFixedDelay(this::compactQuietly, COMPACTION_PERIOD_MS, COMPACTION_PERIOD_MS,
+                TimeUnit.MILLISECONDS);
+
+        this.readers = Executors.newFixedThreadPool(READER_THREADS, r -> {
+            final Thread thread = new Thread(r, "ttt-users-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.appender = Executors.newSingleThreadExecutor(r -> {
+            final Thread thread = new Thread(r, "ttt-users-appender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public User save(User user) {
+        append(user).join();
+        return user;
+    }
+
+    /**
+     * The record is appended by the appender thread, while the fsync is left
+     * to the committer: the returned stage completes when the record is durable.
+     */
+    @Override
+    public CompletionStage<User> saveAsync(User user) {
+        return CompletableFuture.supplyAsync(() -> append(user), this.appender)
+                .thenCompose(committed -> committed)
+                .thenApply(v -> user);
+    }
+
+    /**
+     * All the records are appended by a single task before waiting for the
+     * commit, so they are made durable by a single fsync.
+     */
+    @Override
+    public CompletionStage<List<User>> saveAllAsync(List<User> users) {
+        return CompletableFuture.supplyAsync(() -> {
+            CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+            for (final User user : users) {
+                last = append(user);
+            }
+            return last;
+        }, this.appender).thenCompose(committed -> committed).thenApply(v -> users);
+    }
+
+    @Override
+    public Optional<User> getUserById(String id) {
+        this.indexLock.readLock().lock();
+        try {
+            final long location = this.index.find(hash(id), loc -> id.equals(idAt(loc)));
+            return location < 0 ? Optional.empty() : Optional.ofNullable(readRecord(location));
+        } finally {
+            this.indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The index probes and the reads of the record run on a reader thread.
+     */
+    @Override
+    public CompletionStage<Optional<User>> getUserByIdAsync(String id) {
+        return CompletableFuture.supplyAsync(() -> getUserById(id), this.readers);
+    }
+
+    /**
+     * The users are all looked up by a single task, on a reader thread.
+     */
+    @Override
+    public CompletionStage<Map<String, User>> getUsersByIdAsync(Collection<String> ids) {
+        return CompletableFuture.supplyAsync(() -> {
+            final Map<String, User> found = new HashMap<>();
+            for (final String id : ids) {
+                getUserById(id).ifPresent(user -> found.put(user.id(), user));
+            }
+            return found;
+        }, this.readers);
+    }
+
+    /**
+     * @return true if no user has been stored yet
+     */
+    public boolean isEmpty() {
+        this.indexLock.readLock().lock();
+        try {
+            return this.index.size() == 0;
+        } finally {
+            this.indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read the ids of all the users stored, scanning the segments.
+     *
+     * @return the ids of the users
+     */
+    public Set<String> ids() {
+        final Set<String> ids = new HashSet<>();
+        this.indexLock.readLock().lock();
+        try {
+            for (final int segment : this.segments.keySet().stream().sorted().toList()) {
+                final FileChannel channel = this.segments.get(segment);
+                long offset = 0;
+                ByteBuffer record;
+                while ((record = readRaw(channel, offset)) != null) {
+                    ids.add(decode(record.duplicate().position(RECORD_HEADER_BYTES)).id());
+                    offset += record.limit();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            this.indexLock.readLock().unlock();
+        }
+        return ids;
+    }
+
+    /**
+     * Import all the users of a JSON users' file, as written by {@link JsonUserRepository},
+     * with a single fsync at the end.
+     *
+     * @param jsonFile the JSON file
+     * @return the number of users imported
+     * @throws IOException if the file cannot be read
+     */
+    public int importFrom(Path jsonFile) throws IOException {
+        final JsonArray users = new JsonRepository().getJsonContent(jsonFile);
+        CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+        for (final Object obj : users) {
+            final JsonObject o = (JsonObject) obj;
+            last = append(new User(o.getString("id"), o.getString("username")));
+        }
+        last.join();
+        logger.log(Level.INFO, "Imported " + users.size() + " users from " + jsonFile);
+        return users.size();
+    }
+
+    /**
+     * Merge all the sealed segments into one, keeping only the records still
+     * referenced by the index, if some of them hold records replaced since. The merged segment is durable and moved into
+     * place before the index is relocated to it and forced; until then a
+     * marker file has the index rebuilt at the next start, should the
+     * process stop.
+     *
+     * @throws IOException if the segments cannot be rewritten
+     */
+    public void compact() throws IOException {
+        final List<Integer> sealed;
+        synchronized (this.appendLock) {
+            sealed = this.segments.keySet().stream().filter(s -> s < this.activeSegment).sorted().toList();
+        }
+        if (sealed.isEmpty() || sealed.stream().noneMatch(this.deadRecords::containsKey)) {
+            return;
+        }
+        final int target = sealed.get(sealed.size() - 1);
+        final Path tmp = this.directory.resolve("compaction.tmp");
+        final List<long[]> moves = new ArrayList<>();
+
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = 0;
+            for (final int segment : sealed) {
+                final FileChannel in = this.segments.get(segment);
+                long offset = 0;
+                ByteBuffer record;
+                while ((record = readRaw(in, offset)) != null) {
+                    final long location = location(segment, offset);
+                    final User user = decode(record.duplicate().position(RECORD_HEADER_BYTES));
+                    if (isLive(user.id(), location)) {
+                        moves.add(new long[] {hash(user.id()), location, location(target, size)});
+                        size += write(out, size, record.rewind());
+                    }
+                    offset += record.limit();
+                }
+            }
+            out.force(false);
+        }
+
+        final Path marker = this.directory.resolve(COMPACTION_MARKER);
+        try (FileChannel out = FileChannel.open(marker, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            out.force(true);
+        }
+        this.indexLock.writeLock().lock();
+        try {
+            for (final int segment : sealed) {
+                this.segments.remove(segment).close();
+            }
+            Files.move(tmp, segmentPath(target), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.segments.put(target, FileChannel.open(segmentPath(target), StandardOpenOption.READ));
+            for (final long[] move : moves) {
+                this.index.relocate(move[0], move[1], move[2]);
+            }
+            this.index.force();
+            for (final int segment : sealed) {
+                if (segment != target) {
+                    Files.delete(segmentPath(segment));
+                }
+                this.deadRecords.remove(segment);
+            }
+            Files.delete(marker);
+        } finally {
+            this.indexLock.writeLock().unlock();
+        }
+        logger.log(Level.INFO, "Compacted " + sealed.size() + " user segments, " + moves.size() + " live records");
+    }
+
+    /**
+     * Stop the background threads, waiting for the pending appends to be committed.
+     */
+    @Override
+    public void close() {
+        this.appender.shutdown();
+        try {
+            this.appender.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.closed = true;
+        this.compactor.shutdown();
+        this.readers.shutdown();
+        synchronized (this.commitLock) {
+            this.commitLock.notifyAll();
+        }
+        try {
+            this.committer.join();
+            synchronized (this.appendLock) {
+                this.indexLock.writeLock().lock();
+                try {
+                    this.index.checkpoint(location(this.activeSegment, this.activeSize));
+                    this.index.close();
+                    for (final FileChannel channel : this.segments.values()) {
+                        channel.close();
+                    }
+                } finally {
+                    this.indexLock.writeLock().unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot close the users' log", e);
+        }
+    }
+
+    /*
+     * Append the record of the user, returning a future completed
+     * when the record is durable; blocking, called off the event loop
+     * by the async operations.
+     */
+    private CompletableFuture<Void> append(User user) {
+        final ByteBuffer record = encode(user);
+        synchronized (this.appendLock) {
+            try {
+                if (this.activeSize > 0 && this.activeSize + record.limit() > this.segmentBytes) {
+                    roll();
+                }
+                final long location = location(this.activeSegment, this.activeSize);
+                this.activeSize += write(this.active, this.activeSize, record);
+
+                this.indexLock.writeLock().lock();
+                try {
+                    replaced(this.index.put(hash(user.id()), location, loc -> user.id().equals(idAt(loc))));
+                } finally {
+                    this.indexLock.writeLock().unlock();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        final var committed = new CompletableFuture<Void>();
+        synchronized (this.commitLock) {
+            this.uncommitted.add(committed);
+            this.commitLock.notifyAll();
+        }
+        return committed;
+    }
+
+    private void commitLoop() {
+        while (true) {
+            final List<CompletableFuture<Void>> batch;
+            synchronized (this.commitLock) {
+                while (this.uncommitted.isEmpty() && !this.closed) {
+                    try {
+                        this.commitLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (this.uncommitted.isEmpty()) {
+                    return;
+                }
+                batch = this.uncommitted;
+                this.uncommitted = new ArrayList<>();
+            }
+            try {
+                final FileChannel channel;
+                synchronized (this.appendLock) {
+                    channel = this.active;
+                }
+                channel.force(false);
+                batch.forEach(f -> f.complete(null));
+            } catch (ClosedChannelException e) {
+                /* the segment has been sealed, and forced, in the meantime */
+                batch.forEach(f -> f.complete(null));
+            } catch (IOException e) {
+                batch.forEach(f -> f.completeExceptionally(e));
+            }
+        }
+    }
+
+    /* called holding the append lock */
+    private void roll() throws IOException {
+        this.active.force(false);
+        this.indexLock.writeLock().lock();
+        try {
+            this.segments.put(this.activeSegment, FileChannel.open(segmentPath(this.activeSegment), StandardOpenOption.READ));
+            this.active.close();
+            this.activeSegment++;
+            this.activeSize = 0;
+            this.active = openForAppend(this.activeSegment);
+            this.segments.put(this.activeSegment, this.active);
+            this.index.checkpoint(location(this.activeSegment, 0));
+        } finally {
+            this.indexLock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Open the segments and index the records appended after the
+     * watermark, truncating a torn record at the end of the log; the
+     * records before it are only checked, to count the dead ones.
+     */
+    private void recover() throws IOException {
+        final List<Integer> numbers;
+        try (Stream<Path> files = Files.list(this.directory)) {
+            numbers = files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+                    .map(n -> Integer.parseInt(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        this.activeSegment = numbers.isEmpty() ? 0 : numbers.get(numbers.size() - 1);
+        for (final int segment : numbers) {
+            if (segment != this.activeSegment) {
+                this.segments.put(segment, FileChannel.open(segmentPath(segment), StandardOpenOption.READ));
+            }
+        }
+        this.active = openForAppend(this.activeSegment);
+        this.segments.put(this.activeSegment, this.active);
+
+        final long watermark = this.index.isFresh() ? 0 : this.index.watermark();
+        int recovered = 0;
+        for (final int segment : numbers) {
+            final FileChannel channel = this.segments.get(segment);
+            long offset = 0;
+            ByteBuffer record;
+            while ((record = readRaw(channel, offset)) != null) {
+                final long location = location(segment, offset);
+                final User user = decode(record.position(RECORD_HEADER_BYTES));
+                if (location < watermark) {
+                    if (this.index.find(hash(user.id()), loc -> loc == location) < 0) {
+                        replaced(location);
+                    }
+                } else {
+                    /* the slot may have reached the disk before the crash */
+                    final long old = this.index.put(hash(user.id()), location, loc -> user.id().equals(idAt(loc)));
+                    if (old != location) {
+                        replaced(old);
+                    }
+                    recovered++;
+                }
+                offset += record.limit();
+            }
+            if (offset < channel.size()) {
+                logger.log(Level.WARNING, "Truncating torn record in " + segmentPath(segment) + " at " + offset);
+                channel.truncate(offset);
+            }
+        }
+        this.activeSize = this.active.size();
+        this.index.checkpoint(location(this.activeSegment, this.activeSize));
+        if (recovered > 0) {
+            logger.log(Level.INFO, "Indexed " + recovered + " user records from the log");
+        }
+    }
+
+    /* count the record at a location as dead, if any */
+    private void replaced(long location) {
+        if (location >= 0) {
+            this.deadRecords.merge(segment(location), 1, Integer::sum);
+        }
+    }
+
+    private boolean isLive(String id, long location) {
+        this.indexLock.readLock().lock();
+        try {
+            return this.index.find(hash(id), loc -> loc == location) >= 0;
+        } finally {
+            this.indexLock.readLock().unlock();
+        }
+    }
+
+    private String idAt(long location) {
+        final User user = readRecord(location);
+        return user == null ? null : user.id();
+    }
+
+    private User readRecord(long location) {
+        final FileChannel channel = this.segments.get(segment(location));
+        if (channel == null) {
+            return null;
+        }
+        try {
+            final ByteBuffer record = readRaw(channel, offset(location));
+            return record == null ? null : decode(record.position(RECORD_HEADER_BYTES));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /*
+     * Read a whole record (header included), or null if there is
+     * no complete and valid record at the offset.
+     */
+    private static ByteBuffer readRaw(FileChannel channel, long offset) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        if (!readFully(channel, header, offset)) {
+            return null;
+        }
+        final int length = header.getInt(0);
+        if (length <= 0 || offset + RECORD_HEADER_BYTES + length > channel.size()) {
+            return null;
+        }
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+        if (!readFully(channel, record, offset)) {
+            return null;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_BYTES, length);
+        return (int) crc.getValue() == record.getInt(4) ? record.rewind() : null;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int write(FileChannel channel, long offset, ByteBuffer record) throws IOException {
+        final int length = record.remaining();
+        while (record.hasRemaining()) {
+            channel.write(record, offset + length - record.remaining());
+        }
+        return length;
+    }
+
+    private static ByteBuffer encode(User user) {
+        final byte[] id = bytes(user.id());
+        final byte[] name = bytes(user.name());
+        final int length = 4 + id.length + name.length;
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+        record.putInt(length).putInt(0)
+                .putShort((short) id.length).put(id)
+                .putShort((short) name.length).put(name);
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_BYTES, length);
+        return record.putInt(4, (int) crc.getValue()).flip();
+    }
+
+    private static User decode(ByteBuffer payload) throws IOException {
+        return new User(getString(payload), getString(payload));
+    }
+
+    /* the UTF-8 bytes of a string, refused if its length does not fit the unsigned short written before it */
+    private static byte[] bytes(String s) {
+        final byte[] bytes = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes too long for the users' log");
+        }
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer payload) throws IOException {
+        final int length = Short.toUnsignedInt(payload.getShort());
+        if (length > payload.remaining()) {
+            throw new IOException("String of " + length + " bytes past the end of the record");
+        }
+        final byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /* FNV-1a, never 0 since 0 marks the empty slots of the index */
+    private static long hash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private FileChannel openForAppend(int segment) throws IOException {
+        return FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(int segment) {
+        return this.directory.resolve(SEGMENT_PREFIX + String.format("%06d", segment) + SEGMENT_SUFFIX);
+    }
+
+    private static long location(int segment, long offset) {
+        return ((long) segment << OFFSET_BITS) | offset;
+    }
+
+    private static int segment(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    private static long offset(long location) {
+        return location & ((1L << OFFSET_BITS) - 1);
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot compact the users' log", e);
+        }
+    }
+}
@@ -3,12 +3,12 @@ package ttt_backend.infrastucture.databases;
 import ttt_backend.domain.models.Game;
 import ttt_backend.domain.ports.GameRepository;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MapGameRepository implements GameRepository {
-    private final Map<String, Game> games = new HashMap<>();
+    private final Map<String, Game> games = new ConcurrentHashMap<>();
 
     @Override
     public Game save(Game game) {
@@ -0,0 +1,241 @@
+package ttt_backend.infrastucture.databases;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash table, kept in a memory-mapped file, mapping the hash
+ * of a user id to the location of its record in the log segments.
+ * The header also stores the watermark, i.e. the log location up to which
+ * the records have been indexed durably: it is only written once the slots
+ * it covers are forced ({@link #checkpoint(long)}), while the slots written
+ * after it may or may not have reached the disk.
+ * The class is not thread-safe: callers guard it with their own lock.
+ */
+final class MappedUserIndex implements AutoCloseable {
+    private static final int MAGIC = 0x54545549;
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 16;
+    private static final int MIN_CAPACITY = 1 << 12;
+
+    private final Path path;
+    private final boolean fresh;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+
+    private MappedUserIndex(Path path, boolean fresh) {
+        this.path = path;
+        this.fresh = fresh;
+    }
+
+    /**
+     * Open the index file, creating an empty one if it is missing or not valid.
+     *
+     * @param path the index file
+     * @return the index
+     * @throws IOException if the file cannot be mapped
+     */
+    static MappedUserIndex open(Path path) throws IOException {
+        if (Files.exists(path) && Files.size(path) >= HEADER_BYTES) {
+            final var index = new MappedUserIndex(path, false);
+            index.map(path);
+            if (index.buffer.getInt(0) == MAGIC) {
+                index.capacity = index.buffer.getInt(4);
+                index.size = index.buffer.getInt(8);
+                return index;
+            }
+            index.close();
+        }
+        final var index = new MappedUserIndex(path, true);
+        index.create(path, MIN_CAPACITY);
+        return index;
+    }
+
+    /**
+     * @return true if the index has been created from scratch
+     */
+    boolean isFresh() {
+        return this.fresh;
+    }
+
+    long watermark() {
+        return this.buffer.getLong(16);
+    }
+
+    /**
+     * Force the slots, then advance the watermark to the location and force it.
+     *
+     * @param location the log location up to which the records are indexed
+     */
+    void checkpoint(long location) {
+        this.buffer.force();
+        watermark(location);
+        this.buffer.force(16, 8);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    long byteSize() {
+        return HEADER_BYTES + (long) this.capacity * SLOT_BYTES;
+    }
+
+    /**
+     * Find the first location, among the ones stored for the hash,
+     * accepted by the predicate.
+     *
+     * @param hash the hash of the key
+     * @param matcher checks whether the location holds the wanted key
+     * @return the location, or -1 if there is none
+     */
+    long find(long hash, LongPredicate matcher) {
+        final int mask = this.capacity - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            final long stored = slotHash(slot);
+            if (stored == 0) {
+                return -1;
+            }
+            if (stored == hash && matcher.test(slotLocation(slot))) {
+                return slotLocation(slot);
+            }
+        }
+    }
+
+    /**
+     * Insert the location of a key, replacing the one already stored for the same key.
+     *
+     * @param hash the hash of the key
+     * @param location the new location
+     * @param sameKey checks whether an existing location holds the same key
+     * @return the location replaced, -1 if the key was not stored
+     * @throws IOException if the index needs to grow and cannot be remapped
+     */
+    long put(long hash, long location, LongPredicate sameKey) throws IOException {
+        if ((this.size + 1) * 2L > this.capacity) {
+            grow();
+        }
+        final int mask = this.capacity - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            final long stored = slotHash(slot);
+            if (stored == 0) {
+                writeSlot(slot, hash, location);
+                this.buffer.putInt(8, ++this.size);
+                return -1;
+            }
+            if (stored == hash && sameKey.test(slotLocation(slot))) {
+                final long replaced = slotLocation(slot);
+                this.buffer.putLong(HEADER_BYTES + slot * SLOT_BYTES + 8, location);
+                return replaced;
+            }
+        }
+    }
+
+    /**
+     * Move a key from one location to another, if it is still stored at the old one.
+     *
+     * @param hash the hash of the key
+     * @param oldLocation the location to replace
+     * @param newLocation the new location
+     */
+    void relocate(long hash, long oldLocation, long newLocation) {
+        final int mask = this.capacity - 1;
+        for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+            final long stored = slotHash(slot);
+            if (stored == 0) {
+                return;
+            }
+            if (stored == hash && slotLocation(slot) == oldLocation) {
+                this.buffer.putLong(HEADER_BYTES + slot * SLOT_BYTES + 8, newLocation);
+                return;
+            }
+        }
+    }
+
+    void force() {
+        this.buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.buffer = null;
+        this.channel.close();
+    }
+
+    private void grow() throws IOException {
+        final MappedByteBuffer old = this.buffer;
+        final int oldCapacity = this.capacity;
+        final long watermark = watermark();
+        final Path tmp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        final FileChannel oldChannel = this.channel;
+
+        create(tmp, oldCapacity * 2);
+        watermark(watermark);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            final int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            final long hash = old.getLong(offset);
+            if (hash != 0) {
+                reinsert(hash, old.getLong(offset + 8));
+            }
+        }
+        this.buffer.force();
+        oldChannel.close();
+        this.channel.close();
+        Files.move(tmp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        map(this.path);
+    }
+
+    private void watermark(long location) {
+        this.buffer.putLong(16, location);
+    }
+
+    private void reinsert(long hash, long location) {
+        final int mask = this.capacity - 1;
+        int slot = (int) hash & mask;
+        while (slotHash(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        writeSlot(slot, hash, location);
+        this.buffer.putInt(8, ++this.size);
+    }
+
+    private void create(Path file, int newCapacity) throws IOException {
+        Files.deleteIfExists(file);
+        this.capacity = newCapacity;
+        this.size = 0;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, byteSize());
+        this.buffer.putInt(0, MAGIC);
+        this.buffer.putInt(4, newCapacity);
+        this.buffer.putInt(8, 0);
+        this.buffer.putLong(16, 0);
+    }
+
+    private void map(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, this.channel.size());
+    }
+
+    private long slotHash(int slot) {
+        return this.buffer.getLong(HEADER_BYTES + slot * SLOT_BYTES);
+    }
+
+    private long slotLocation(int slot) {
+        return this.buffer.getLong(HEADER_BYTES + slot * SLOT_BYTES + 8);
+    }
+
+    private void writeSlot(int slot, long hash, long location) {
+        final int offset = HEADER_BYTES + slot * SLOT_BYTES;
+        this.buffer.putLong(offset + 8, location);
+        this.buffer.putLong(offset, hash);
+    }
+}
@@ -0,0 +1,399 @@
+package ttt_backend.infrastucture.databases;
+
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+import ttt_backend.domain.ports.GameRepository;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Game repository packing each game into three primitive words, to host
+ * millions of games without millions of objects for the GC to trace.
+ * <p>
+ * The games are stored in slots of chunked {@code long[]} slabs: the key
+ * (the number of the id {@code game-<n>}), the board word (the cells of
+ * each player, the players joined, the state, the turn and the winner) and
+ * the players word (the indexes of the two users in a table of the users
+ * seen, shared by all their games). An open-addressing {@code int[]} index,
+ * probed linearly, maps the keys to the slots. Games are never removed, so
+ * the slabs only grow, a chunk at a time, and the index is rebuilt when
+ * it is filled past its load factor.
+ * <p>
+ * {@link Game} objects are materialized only when a game is read, and
+ * interned through weak references: while a game is in use, every reader
+ * gets the same object, so the operations of the application locking it
+ * stay serialized; once unused, it is collected and the slot is all that
+ * remains. Saving a game packs it back into its slot.
+ * <p>
+ * Lookups are lock-free; inserts and growth are serialized by a lock, and
+ * the two words of a slot are written and read under one of a set of
+ * striped locks, so that a reader never sees half a save.
+ * <p>
+ * Only the games of tic-tac-toe fit in a board word: the games played on
+ * boards of other sizes are kept as objects, in a map by key.
+ */
+public class PackedGameRepository implements GameRepository {
+    private static final String ID_PREFIX = "game-";
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_SHIFT;
+    private static final int WORDS = 3;
+    private static final int KEY = 0;
+    private static final int BOARD = 1;
+    private static final int PLAYERS = 2;
+    private static final int STRIPES = 64;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /* the layout of the board word */
+    private static final int CIRCLE_SHIFT = 9;
+    private static final long CELLS_MASK = 0x1FF;
+    private static final long CROSS_JOINED = 1L << 18;
+    private static final long CIRCLE_JOINED = 1L << 19;
+    private static final long STARTED = 1L << 20;
+    private static final int STATE_SHIFT = 21;
+    private static final int TURN_SHIFT = 23;
+    private static final int WINNER_SHIFT = 25;
+    private static final long ABSENT = -1;
+
+    /* a materialized game, cleared once no one uses it */
+    private static final class View extends WeakReference<Game> {
+        private final int slot;
+
+        private View(Game game, int slot, ReferenceQueue<Game> queue) {
+            super(game, queue);
+            this.slot = slot;
+        }
+    }
+
+    private final Object structureLock = new Object();
+    private final Object[] stripes = new Object[STRIPES];
+    private volatile int[] index = new int[1024];
+    private volatile long[][] chunks = new long[0][];
+    private volatile View[][] views = new View[0][];
+    private volatile int size;
+
+    private final Object usersLock = new Object();
+    private final Map<User, Integer> userIndexes = new ConcurrentHashMap<>();
+    private volatile User[] users = new User[1024];
+    private int userCount = 1;
+
+    private final Map<Long, Game> largeGames = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<Game> collected = new ReferenceQueue<>();
+    private final LongAdder viewCount = new LongAdder();
+    private final LongAdder active = new LongAdder();
+
+    public PackedGameRepository() {
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Object();
+        }
+    }
+
+    @Override
+    public Game save(Game game) {
+        final long key = key(game.getId());
+        if (key == ABSENT) {
+            throw new IllegalArgumentException("Only games with ids " + ID_PREFIX + "<n> can be packed: "
+                    + game.getId());
+        }
+        if (!game.getBoardSize().isClassic()) {
+            this.largeGames.put(key, game);
+            return game;
+        }
+        final long board = board(game);
+        final long players = userIndex(game.getUser(Game.GameSymbolType.CROSS).orElse(null))
+                | (long) userIndex(game.getUser(Game.GameSymbolType.CIRCLE).orElse(null)) << 32;
+        int slot = find(key);
+        if (slot < 0) {
+            slot = findOrInsert(key);
+        }
+        expunge();
+        final long previous = write(slot, board, players, game);
+        final boolean wasActive = previous != ABSENT && state(previous) != Game.GameState.FINISHED.ordinal();
+        final boolean isActive = state(board) != Game.GameState.FINISHED.ordinal();
+        if (wasActive != isActive) {
+            if (isActive) {
+                this.active.increment();
+            } else {
+                this.active.decrement();
+            }
+        }
+        return game;
+    }
+
+    @Override
+    public Optional<Game> getGameById(String id) {
+        final long key = key(id);
+        if (key == ABSENT) {
+            return Optional.empty();
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            synchronized (this.structureLock) {
+                slot = find(key);
+            }
+            if (slot < 0) {
+                return Optional.ofNullable(this.largeGames.get(key));
+            }
+        }
+        expunge();
+        return Optional.of(materialize(slot, id));
+    }
+
+    /**
+     * @return the number of games stored, finished or not
+     */
+    public int size() {
+        return this.size + this.largeGames.size();
+    }
+
+    /**
+     * @return the number of games not finished yet
+     */
+    public long activeGames() {
+        return this.active.sum() + this.largeGames.values().stream().filter(game -> !game.isGameEnd()).count();
+    }
+
+    /**
+     * @return the number of games materialized and still in use
+     */
+    public long views() {
+        return this.viewCount.sum();
+    }
+
+    /**
+     * @return the bytes of the slabs, of the references to the views, of the
+     *         index, and of the references of the table of the users (the views
+     *         and the users themselves are not counted, the users being shared
+     *         with the users' repository, nor the games kept as objects)
+     */
+    public long bytes() {
+        return (long) this.chunks.length * CHUNK_SLOTS * (WORDS * Long.BYTES + Integer.BYTES)
+                + (long) this.index.length * Integer.BYTES
+                + (long) this.users.length * Integer.BYTES;
+    }
+
+    /**
+     * @return the bytes stored per game, see {@link #bytes()}
+     */
+    public long bytesPerGame() {
+        final int games = this.size;
+        return games == 0 ? 0 : bytes() / games;
+    }
+
+    /*
+     * The slot of the key, without locking: a slot inserted concurrently
+     * may be missed, so that a miss must be confirmed under the lock
+     */
+    private int find(long key) {
+        final int[] index = this.index;
+        final long[][] chunks = this.chunks;
+        final int mask = index.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            final int slot = index[i] - 1;
+            if (slot < 0) {
+                return -1;
+            }
+            if (slot >>> CHUNK_SHIFT < chunks.length && word(chunks, slot, KEY) == key + 1) {
+                return slot;
+            }
+        }
+    }
+
+    private int findOrInsert(long key) {
+        synchronized (this.structureLock) {
+            final int found = find(key);
+            if (found >= 0) {
+                return found;
+            }
+            final int slot = this.size;
+            if (slot >>> CHUNK_SHIFT == this.chunks.length) {
+                final long[][] grown = Arrays.copyOf(this.chunks, this.chunks.length + 1);
+                grown[grown.length - 1] = new long[CHUNK_SLOTS * WORDS];
+                final View[][] views = Arrays.copyOf(this.views, grown.length);
+                views[views.length - 1] = new View[CHUNK_SLOTS];
+                this.views = views;
+                this.chunks = grown;
+            }
+            synchronized (stripe(slot)) {
+                final long[] chunk = this.chunks[slot >>> CHUNK_SHIFT];
+                final int base = (slot & (CHUNK_SLOTS - 1)) * WORDS;
+                chunk[base + KEY] = key + 1;
+                chunk[base + BOARD] = ABSENT;
+            }
+            if (slot + 1 > this.index.length * LOAD_FACTOR) {
+                this.index = rebuild(this.index.length * 2, slot);
+            }
+            place(this.index, key, slot);
+            this.size = slot + 1;
+            return slot;
+        }
+    }
+
+    /* the index of the slots before the given one, in a table of the given capacity */
+    private int[] rebuild(int capacity, int slots) {
+        final int[] index = new int[capacity];
+        for (int slot = 0; slot < slots; slot++) {
+            place(index, word(this.chunks, slot, KEY) - 1, slot);
+        }
+        return index;
+    }
+
+    private static void place(int[] index, long key, int slot) {
+        final int mask = index.length - 1;
+        int i = hash(key) & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot + 1;
+    }
+
+    /*
+     * Write the words of a slot, returning the former board word;
+     * the game becomes the view of the slot, unless one is in use
+     */
+    private long write(int slot, long board, long players, Game game) {
+        synchronized (stripe(slot)) {
+            final long[] chunk = this.chunks[slot >>> CHUNK_SHIFT];
+            final int base = (slot & (CHUNK_SLOTS - 1)) * WORDS;
+            final long previous = chunk[base + BOARD];
+            chunk[base + BOARD] = board;
+            chunk[base + PLAYERS] = players;
+            final View[] views = this.views[slot >>> CHUNK_SHIFT];
+            final View view = views[slot & (CHUNK_SLOTS - 1)];
+            if (view == null || view.get() == null) {
+                setView(views, slot, new View(game, slot, this.collected));
+            }
+            return previous;
+        }
+    }
+
+    /* the view of the slot in use, or a new one */
+    private Game materialize(int slot, String id) {
+        final long board;
+        final long players;
+        synchronized (stripe(slot)) {
+            final View[] views = this.views[slot >>> CHUNK_SHIFT];
+            final View view = views[slot & (CHUNK_SLOTS - 1)];
+            final Game used = view == null ? null : view.get();
+            if (used != null) {
+                return used;
+            }
+            final long[] chunk = this.chunks[slot >>> CHUNK_SHIFT];
+            final int base = (slot & (CHUNK_SLOTS - 1)) * WORDS;
+            board = chunk[base + BOARD];
+            players = chunk[base + PLAYERS];
+            final Game game = board == ABSENT ? new Game(id) : restore(id, board, players);
+            setView(views, slot, new View(game, slot, this.collected));
+            return game;
+        }
+    }
+
+    private void setView(View[] views, int slot, View view) {
+        if (views[slot & (CHUNK_SLOTS - 1)] == null) {
+            this.viewCount.increment();
+        }
+        views[slot & (CHUNK_SLOTS - 1)] = view;
+    }
+
+    private Game restore(String id, long board, long players) {
+        final User[] users = this.users;
+        return Game.restore(id,
+                (board & CROSS_JOINED) != 0 ? users[(int) players] : null,
+                (board & CIRCLE_JOINED) != 0 ? users[(int) (players >>> 32)] : null,
+                (board & STARTED) != 0,
+                (int) (board & CELLS_MASK), (int) (board >>> CIRCLE_SHIFT & CELLS_MASK));
+    }
+
+    private static long board(Game game) {
+        final long cross = game.getUser(Game.GameSymbolType.CROSS).isPresent() ? CROSS_JOINED : 0;
+        final long circle = game.getUser(Game.GameSymbolType.CIRCLE).isPresent() ? CIRCLE_JOINED : 0;
+        final long started = game.getState() != Game.GameState.WAITING_PLAYER ? STARTED : 0;
+        final long turn = game.getCurrentTurn().map(symbol -> symbol.ordinal() + 1).orElse(0);
+        final long winner = game.getWinner().map(symbol -> symbol.ordinal() + 1).orElse(0);
+        return game.getCells(Game.GameSymbolType.CROSS, 0)
+                | game.getCells(Game.GameSymbolType.CIRCLE, 0) << CIRCLE_SHIFT
+                | cross | circle | started
+                | (long) game.getState().ordinal() << STATE_SHIFT
+                | turn << TURN_SHIFT
+                | winner << WINNER_SHIFT;
+    }
+
+    private static int state(long board) {
+        return (int) (board >>> STATE_SHIFT & 3);
+    }
+
+    /* the index of the user in the table of the users, 0 for none */
+    private int userIndex(User user) {
+        if (user == null) {
+            return 0;
+        }
+        final Integer known = this.userIndexes.get(user);
+        if (known != null) {
+            return known;
+        }
+        synchronized (this.usersLock) {
+            final Integer raced = this.userIndexes.get(user);
+            if (raced != null) {
+                return raced;
+            }
+            final int added = this.userCount++;
+            if (added == this.users.length) {
+                this.users = Arrays.copyOf(this.users, this.users.length * 2);
+            }
+            this.users[added] = user;
+            this.userIndexes.put(user, added);
+            return added;
+        }
+    }
+
+    /* drop the views of the games collected */
+    private void expunge() {
+        View view;
+        while ((view = (View) this.collected.poll()) != null) {
+            synchronized (stripe(view.slot)) {
+                final View[] views = this.views[view.slot >>> CHUNK_SHIFT];
+                if (views[view.slot & (CHUNK_SLOTS - 1)] == view) {
+                    views[view.slot & (CHUNK_SLOTS - 1)] = null;
+                    this.viewCount.decrement();
+                }
+            }
+        }
+    }
+
+    private Object stripe(int slot) {
+        return this.stripes[slot & (STRIPES - 1)];
+    }
+
+    private static long word(long[][] chunks, int slot, int word) {
+        return chunks[slot >>> CHUNK_SHIFT][(slot & (CHUNK_SLOTS - 1)) * WORDS + word];
+    }
+
+    private static int hash(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+
+    /* the number of the id, or ABSENT if the id is not game-<n>, n written without leading zeros */
+    private static long key(String id) {
+        if (!id.startsWith(ID_PREFIX) || id.length() == ID_PREFIX.length()
+                || id.length() > ID_PREFIX.length() + 18
+                || id.charAt(ID_PREFIX.length()) == '0' && id.length() > ID_PREFIX.length() + 1) {
+            return ABSENT;
+        }
+        long key = 0;
+        for (int i = ID_PREFIX.length(); i < id.length(); i++) {
+            final char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return ABSENT;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+}
@@ -0,0 +1,16 @@
+package ttt_backend.infrastucture.execution;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Executor running the commands on the caller thread: the concurrent
+ * commands on the same game are serialized by the application locks.
+ */
+public class DirectGameExecutor implements GameExecutor {
+
+    @Override
+    public <T> CompletionStage<T> execute(String gameId, Supplier<CompletionStage<T>> command) {
+        return command.get();
+    }
+}
@@ -0,0 +1,15 @@
+package ttt_backend.infrastucture.execution;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * A command sent to the owner of a game, carrying the future to complete
+ * with its result. It is only delivered locally, by reference.
+ *
+ * @param gameId the id of the game
+ * @param command the command, invoking the application
+ * @param result the future to complete with the result of the command
+ */
+record GameCommand(String gameId, Supplier<? extends CompletionStage<?>> command, CompletableFuture<Object> result) {}
@@ -0,0 +1,24 @@
+package ttt_backend.infrastucture.execution;
+
+import ttt_backend.application.GameSerializer;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * This interface represents how the commands concerning a game
+ * (join, start, move) are executed.
+ */
+public interface GameExecutor extends GameSerializer {
+
+    /**
+     * Execute a command concerning a game.
+     *
+     * @param gameId the id of the game
+     * @param command the command, invoking the application
+     * @return the result of the command
+     * @param <T> the type of the result
+     */
+    @Override
+    <T> CompletionStage<T> execute(String gameId, Supplier<CompletionStage<T>> command);
+}
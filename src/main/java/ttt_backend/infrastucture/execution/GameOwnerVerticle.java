@@ -0,0 +1,50 @@
+package ttt_backend.infrastucture.execution;
+
+import io.vertx.core.Future;
+import io.vertx.core.VerticleBase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Owner of a partition of the games: it receives on its mailbox, an event bus
+ * address, the commands of all the games hashed to it and runs them on its
+ * own event loop. The commands of the same game are chained, so each one
+ * starts when the previous one completed: they are serialized without locks.
+ */
+public class GameOwnerVerticle extends VerticleBase {
+    private final String address;
+    /* last command of each game with commands in progress: only used on the owner context */
+    private final Map<String, Future<Object>> tails = new HashMap<>();
+
+    public GameOwnerVerticle(String address) {
+        this.address = address;
+    }
+
+    @Override
+    public Future<?> start() {
+        return vertx.eventBus().<GameCommand>localConsumer(this.address, msg -> process(msg.body()))
+                .completion();
+    }
+
+    private void process(GameCommand command) {
+        final String gameId = command.gameId();
+        final Future<Object> previous = this.tails.get(gameId);
+        final Future<Void> turn = previous == null
+                ? Future.succeededFuture()
+                : previous.transform(r -> Future.succeededFuture());
+        final Future<Object> current = turn.compose(v ->
+                Future.fromCompletionStage(command.command().get(), this.context).map(r -> (Object) r));
+        this.tails.put(gameId, current);
+        current.onComplete(res -> {
+            if (this.tails.get(gameId) == current) {
+                this.tails.remove(gameId);
+            }
+            if (res.succeeded()) {
+                command.result().complete(res.result());
+            } else {
+                command.result().completeExceptionally(res.cause());
+            }
+        });
+    }
+}
@@ -0,0 +1,43 @@
+package ttt_backend.infrastucture.execution;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * Event bus codec passing the objects by reference, for the messages
+ * that never leave the process.
+ *
+ * @param <T> the type of the messages
+ */
+public class LocalCodec<T> implements MessageCodec<T, T> {
+    private final String name;
+
+    public LocalCodec(Class<T> type) {
+        this.name = "local-" + type.getName();
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, T message) {
+        throw new UnsupportedOperationException(this.name + " messages are local only");
+    }
+
+    @Override
+    public T decodeFromWire(int pos, Buffer buffer) {
+        throw new UnsupportedOperationException(this.name + " messages are local only");
+    }
+
+    @Override
+    public T transform(T message) {
+        return message;
+    }
+
+    @Override
+    public String name() {
+        return this.name;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
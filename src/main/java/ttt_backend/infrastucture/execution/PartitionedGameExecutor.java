@@ -0,0 +1,64 @@
+package ttt_backend.infrastucture.execution;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Executor routing the commands of each game to its owner: the game id is
+ * hashed to one of the {@link GameOwnerVerticle}s, each running on its own
+ * event loop, so the commands of a game are always processed serially
+ * by the same owner while independent games proceed in parallel.
+ */
+public class PartitionedGameExecutor implements GameExecutor {
+    private static final String OWNER_ADDRESS_PREFIX = "ttt-game-owner-";
+
+    private final Vertx vertx;
+    private final int owners;
+
+    private PartitionedGameExecutor(Vertx vertx, int owners) {
+        this.vertx = vertx;
+        this.owners = owners;
+    }
+
+    /**
+     * Deploy the owners and create the executor routing to them.
+     *
+     * @param vertx the Vert.x instance
+     * @param owners the number of owners
+     * @return the executor, once the owners are deployed
+     */
+    public static Future<PartitionedGameExecutor> deploy(Vertx vertx, int owners) {
+        vertx.eventBus().registerDefaultCodec(GameCommand.class, new LocalCodec<>(GameCommand.class));
+        final AtomicInteger index = new AtomicInteger();
+        return vertx.deployVerticle(() -> new GameOwnerVerticle(OWNER_ADDRESS_PREFIX + index.getAndIncrement()),
+                        new DeploymentOptions().setInstances(owners))
+                .map(id -> new PartitionedGameExecutor(vertx, owners));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CompletionStage<T> execute(String gameId, Supplier<CompletionStage<T>> command) {
+        final var result = new CompletableFuture<Object>();
+        this.vertx.eventBus().send(ownerOf(gameId), new GameCommand(gameId, command, result));
+        return (CompletionStage<T>) result;
+    }
+
+    /**
+     * The games are changed by their owners only, without locks:
+     * they are saved by their owners too.
+     */
+    @Override
+    public boolean ownsGames() {
+        return true;
+    }
+
+    private String ownerOf(String gameId) {
+        return OWNER_ADDRESS_PREFIX + Math.floorMod(gameId.hashCode(), this.owners);
+    }
+}
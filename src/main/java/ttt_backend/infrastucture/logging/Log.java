@@ -0,0 +1,117 @@
+package ttt_backend.infrastucture.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+
+/**
+ * A category of log records, logged asynchronously.
+ * <p>
+ * A record is only kept if its level is enabled for the category, and the
+ * records below {@link Level#WARNING} are sampled: one in
+ * {@code sampling} is kept. Kept records are put, with their pattern and
+ * arguments, in a bounded ring buffer and formatted by the writer thread,
+ * so the caller never formats a message nor waits on I/O; when the buffer
+ * is full the record is dropped. The placeholders of the pattern are
+ * {@code {}}, at most 3.
+ * <p>
+ * The level and the sampling of a category are read from the system
+ * properties {@code ttt.log.<category>.level} and
+ * {@code ttt.log.<category>.sampling}, and can be changed at runtime.
+ */
+public final class Log {
+    private static final Map<String, Log> categories = new ConcurrentHashMap<>();
+
+    private final String category;
+    private final LogRing ring;
+    private volatile int threshold;
+    private volatile int sampling;
+
+    Log(String category, Level level, int sampling, LogRing ring) {
+        this.category = category;
+        this.ring = ring;
+        this.threshold = Level.parse(System.getProperty("ttt.log." + category + ".level", level.getName())).intValue();
+        this.sampling = Integer.getInteger("ttt.log." + category + ".sampling", sampling);
+    }
+
+    /**
+     * @param category the name of the category
+     * @return the category, logging at INFO without sampling unless configured otherwise
+     */
+    public static Log category(String category) {
+        return category(category, Level.INFO, 1);
+    }
+
+    /**
+     * @param category the name of the category
+     * @param level the default level of the category
+     * @param sampling the default sampling of the category, 1 to keep all the records
+     * @return the category
+     */
+    public static Log category(String category, Level level, int sampling) {
+        return categories.computeIfAbsent(category, c -> new Log(c, level, sampling, LogRing.INSTANCE));
+    }
+
+    public void setLevel(Level level) {
+        this.threshold = level.intValue();
+    }
+
+    public void setSampling(int sampling) {
+        this.sampling = sampling;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.intValue() >= this.threshold;
+    }
+
+    public void info(String pattern) {
+        log(Level.INFO, pattern, null, null, null, null);
+    }
+
+    public void info(String pattern, Object arg0) {
+        log(Level.INFO, pattern, arg0, null, null, null);
+    }
+
+    public void info(String pattern, Object arg0, Object arg1) {
+        log(Level.INFO, pattern, arg0, arg1, null, null);
+    }
+
+    public void fine(String pattern, Object arg0, Object arg1) {
+        log(Level.FINE, pattern, arg0, arg1, null, null);
+    }
+
+    public void warning(String pattern, Object arg0) {
+        log(Level.WARNING, pattern, arg0, null, null, null);
+    }
+
+    public void warning(String pattern, Throwable error) {
+        log(Level.WARNING, pattern, null, null, null, error);
+    }
+
+    public void warning(String pattern, Object arg0, Throwable error) {
+        log(Level.WARNING, pattern, arg0, null, null, error);
+    }
+
+    /**
+     * Log a record, if enabled and sampled.
+     *
+     * @param level the level
+     * @param pattern the message, with {@code {}} in place of the arguments
+     * @param arg0 the first argument, or null
+     * @param arg1 the second argument, or null
+     * @param arg2 the third argument, or null
+     * @param error the error, or null
+     */
+    public void log(Level level, String pattern, Object arg0, Object arg1, Object arg2, Throwable error) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        final int sampling = this.sampling;
+        if (sampling > 1 && level.intValue() < Level.WARNING.intValue()
+                && ThreadLocalRandom.current().nextInt(sampling) != 0) {
+            return;
+        }
+        this.ring.offer(level, this.category, pattern, arg0, arg1, arg2, error);
+    }
+}
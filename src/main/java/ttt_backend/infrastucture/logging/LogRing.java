@@ -0,0 +1,149 @@
+package ttt_backend.infrastucture.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Bounded ring buffer of the log records, written by any thread and
+ * drained by a single writer thread, which formats the records and
+ * publishes them to java.util.logging, with their category as source.
+ * The slots are allocated once and reused; a producer claims a slot with
+ * a CAS on the tail and never waits: when the ring is full the record is
+ * dropped and counted.
+ */
+final class LogRing {
+    static final LogRing INSTANCE = started(Integer.getInteger("ttt.log.buffer", 8192));
+
+    private static final Logger logger = Logger.getLogger("[TicTacToe Backend]");
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final StringBuilder line = new StringBuilder(256);
+    private long head;
+
+    /* a record: free for the position p when sequence == p, filled when sequence == p + 1 */
+    private static final class Slot {
+        private volatile long sequence;
+        private Level level;
+        private String category;
+        private String pattern;
+        private Object arg0;
+        private Object arg1;
+        private Object arg2;
+        private Throwable error;
+    }
+
+    LogRing(int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.slots[i] = new Slot();
+            this.slots[i].sequence = i;
+        }
+    }
+
+    /*
+     * A ring drained by its writer thread, and once more at shutdown
+     */
+    private static LogRing started(int capacity) {
+        final LogRing ring = new LogRing(capacity);
+        final Thread writer = new Thread(ring::writeLoop, "ttt-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(ring::drain));
+        return ring;
+    }
+
+    /**
+     * @return false if the ring is full and the record has been dropped
+     */
+    boolean offer(Level level, String category, String pattern, Object arg0, Object arg1, Object arg2,
+                  Throwable error) {
+        long position = this.tail.get();
+        while (true) {
+            final Slot slot = this.slots[(int) position & this.mask];
+            final long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    slot.level = level;
+                    slot.category = category;
+                    slot.pattern = pattern;
+                    slot.arg0 = arg0;
+                    slot.arg1 = arg1;
+                    slot.arg2 = arg2;
+                    slot.error = error;
+                    slot.sequence = position + 1;
+                    return true;
+                }
+                position = this.tail.get();
+            } else if (difference < 0) {
+                this.dropped.increment();
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            if (!drain()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /*
+     * Publish the records filled so far, returning false if there was none
+     */
+    synchronized boolean drain() {
+        boolean published = false;
+        Slot slot = this.slots[(int) this.head & this.mask];
+        while (slot.sequence == this.head + 1) {
+            publish(slot);
+            slot.level = null;
+            slot.category = null;
+            slot.pattern = null;
+            slot.arg0 = null;
+            slot.arg1 = null;
+            slot.arg2 = null;
+            slot.error = null;
+            slot.sequence = this.head + this.slots.length;
+            this.head++;
+            published = true;
+            slot = this.slots[(int) this.head & this.mask];
+        }
+        final long lost = this.dropped.sumThenReset();
+        if (lost > 0) {
+            logger.logp(Level.WARNING, "logging", null, lost + " log records dropped, the log buffer was full");
+        }
+        return published;
+    }
+
+    private void publish(Slot slot) {
+        this.line.setLength(0);
+        final String pattern = slot.pattern;
+        int arg = 0;
+        int from = 0;
+        int placeholder;
+        while ((placeholder = pattern.indexOf("{}", from)) >= 0) {
+            this.line.append(pattern, from, placeholder);
+            this.line.append(arg == 0 ? slot.arg0 : arg == 1 ? slot.arg1 : slot.arg2);
+            arg++;
+            from = placeholder + 2;
+        }
+        this.line.append(pattern, from, pattern.length());
+        if (slot.error != null) {
+            logger.logp(slot.level, slot.category, null, this.line.toString(), slot.error);
+        } else {
+            logger.logp(slot.level, slot.category, null, this.line.toString());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ttt_backend.infrastucture.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A value going up and down, updated without contention by many threads.
+ */
+public final class Gauge implements LongSupplier {
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        this.value.increment();
+    }
+
+    public void decrement() {
+        this.value.decrement();
+    }
+
+    public void add(long delta) {
+        this.value.add(delta);
+    }
+
+    @Override
+    public long getAsLong() {
+        return this.value.sum();
+    }
+}
@@ -0,0 +1,140 @@
+package ttt_backend.infrastucture.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds, with log-linear buckets: each power
+ * of two is split in 8 buckets, so a percentile is reported within 12.5% of
+ * its value, from 1 ns up to about 18 minutes.
+ * <p>
+ * Recording is lock-free and allocation-free: a value is counted with a
+ * single atomic increment, in one of several stripes of counters chosen by
+ * the recording thread, so that the event loops do not contend on the same
+ * counters. The stripes are only summed when a snapshot is taken.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+    /* the counters of a stripe: the buckets, then the sum of the values */
+    private static final int STRIPE_SIZE = BUCKETS + 1;
+    private static final int STRIPES =
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+
+    private final AtomicLongArray counters = new AtomicLongArray(STRIPES * STRIPE_SIZE);
+
+    /**
+     * Record a value.
+     *
+     * @param nanos the latency, in nanoseconds
+     */
+    public void record(long nanos) {
+        final long value = Math.max(0, nanos);
+        final int stripe = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_SIZE;
+        this.counters.incrementAndGet(stripe + bucket(value));
+        this.counters.addAndGet(stripe + BUCKETS, value);
+    }
+
+    /**
+     * @return the values recorded so far
+     */
+    public Snapshot snapshot() {
+        final long[] counts = new long[BUCKETS];
+        long sum = 0;
+        for (int stripe = 0; stripe < STRIPES * STRIPE_SIZE; stripe += STRIPE_SIZE) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += this.counters.get(stripe + i);
+            }
+            sum += this.counters.get(stripe + BUCKETS);
+        }
+        return new Snapshot(counts, sum);
+    }
+
+    /**
+     * The counts of the buckets of a histogram at a point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        private Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long count = 0;
+            for (final long c : counts) {
+                count += c;
+            }
+            this.count = count;
+        }
+
+        public long count() {
+            return this.count;
+        }
+
+        /**
+         * @return the sum of the values, in nanoseconds
+         */
+        public long sum() {
+            return this.sum;
+        }
+
+        /**
+         * @param nanos the bound, in nanoseconds
+         * @return the number of values in the buckets holding only values up to the
+         *         bound: exactly the values up to it when it is a power of two minus one
+         */
+        public long countAtMost(long nanos) {
+            long count = 0;
+            for (int i = 0; i < BUCKETS && upperBound(i) <= nanos; i++) {
+                count += this.counts[i];
+            }
+            return count;
+        }
+
+        /**
+         * @param quantile the quantile, between 0 and 1
+         * @return the upper bound of the bucket of the quantile, in nanoseconds, 0 if empty
+         */
+        public long percentile(double quantile) {
+            if (this.count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(quantile * this.count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += this.counts[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+    }
+
+    /*
+     * Values below 8 have a bucket each, the others are bucketed by
+     * their exponent and their 3 bits after the leading one
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        final int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        final long width = 1L << (exponent - SUB_BITS);
+        return (SUB_BUCKETS + bucket % SUB_BUCKETS) * width + width - 1;
+    }
+}
@@ -0,0 +1,165 @@
+package ttt_backend.infrastucture.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the metrics of the backend, shared by all the verticle
+ * instances, rendered in the Prometheus text format.
+ * <p>
+ * The metrics are registered once, at deployment: registering an existing
+ * metric returns it. Only the registration and the rendering take the lock
+ * of the registry, the metrics being updated without locks.
+ * <p>
+ * A family of timers {@code name} is rendered as the histogram
+ * {@code name_duration_seconds} and the counters {@code name_total} and
+ * {@code name_errors_total}, labelled by the label of each timer. The
+ * histograms are cumulative since the start, with a bucket per power of
+ * four nanoseconds from about 1 us to 17 s, so that the quantiles over
+ * any window are computed by Prometheus from their increase.
+ * <p>
+ * A gauge is either updated by the backend or sampled when rendered:
+ * registering a name as both fails.
+ */
+public final class MetricsRegistry {
+    private static final int FIRST_BUCKET_EXPONENT = 10;
+    private static final int LAST_BUCKET_EXPONENT = 34;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Map<String, TimerFamily> timers = new LinkedHashMap<>();
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final Map<String, Sampled> gauges = new LinkedHashMap<>();
+
+    private record TimerFamily(String help, String label, Map<String, Timer> timers) {}
+
+    private record Histogram(String help, LatencyHistogram histogram) {}
+
+    private record Sampled(String help, LongSupplier value) {}
+
+    /**
+     * @param family the name of the family of timers
+     * @param help the description of the family
+     * @param label the name of the label distinguishing the timers of the family
+     * @param value the value of the label of the timer
+     * @return the timer
+     */
+    public synchronized Timer timer(String family, String help, String label, String value) {
+        return this.timers.computeIfAbsent(family, f -> new TimerFamily(help, label, new LinkedHashMap<>()))
+                .timers().computeIfAbsent(value, v -> new Timer());
+    }
+
+    /**
+     * @param name the name of the histogram, rendered in seconds
+     * @param help the description of the histogram
+     * @return the histogram
+     */
+    public synchronized LatencyHistogram histogram(String name, String help) {
+        return this.histograms.computeIfAbsent(name, n -> new Histogram(help, new LatencyHistogram())).histogram();
+    }
+
+    /**
+     * @param name the name of the gauge
+     * @param help the description of the gauge
+     * @return the gauge
+     * @throws IllegalArgumentException if the name is registered as a sampled gauge
+     */
+    public synchronized Gauge gauge(String name, String help) {
+        final LongSupplier value = this.gauges.computeIfAbsent(name, n -> new Sampled(help, new Gauge())).value();
+        if (!(value instanceof Gauge gauge)) {
+            throw new IllegalArgumentException("Gauge " + name + " already registered as sampled");
+        }
+        return gauge;
+    }
+
+    /**
+     * Register a gauge whose value is sampled when the metrics are rendered.
+     *
+     * @param name the name of the gauge
+     * @param help the description of the gauge
+     * @param value the sampler of the value
+     * @throws IllegalArgumentException if the name is registered as an updated gauge
+     */
+    public synchronized void gauge(String name, String help, LongSupplier value) {
+        final Sampled registered = this.gauges.putIfAbsent(name, new Sampled(help, value));
+        if (registered != null && registered.value() instanceof Gauge) {
+            throw new IllegalArgumentException("Gauge " + name + " already registered as updated");
+        }
+    }
+
+    /**
+     * @return all the metrics, in the Prometheus text format
+     */
+    public synchronized String scrape() {
+        final var out = new StringBuilder(4096);
+        this.timers.forEach((family, timers) -> {
+            final List<Map.Entry<String, LatencyHistogram.Snapshot>> snapshots = new ArrayList<>();
+            timers.timers().forEach((value, timer) -> snapshots.add(Map.entry(value, timer.latencies().snapshot())));
+
+            header(out, family + "_duration_seconds", timers.help() + ", latency", "histogram");
+            for (final var snapshot : snapshots) {
+                histogram(out, family + "_duration_seconds", timers.label() + "=\"" + snapshot.getKey() + "\"",
+                        snapshot.getValue());
+            }
+            header(out, family + "_total", timers.help() + ", count", "counter");
+            for (final var snapshot : snapshots) {
+                sample(out, family + "_total", timers.label() + "=\"" + snapshot.getKey() + "\"",
+                        snapshot.getValue().count());
+            }
+            header(out, family + "_errors_total", timers.help() + ", errors", "counter");
+            timers.timers().forEach((value, timer) ->
+                    sample(out, family + "_errors_total", timers.label() + "=\"" + value + "\"", timer.errors()));
+        });
+        this.histograms.forEach((name, histogram) -> {
+            header(out, name, histogram.help(), "histogram");
+            histogram(out, name, null, histogram.histogram().snapshot());
+        });
+        this.gauges.forEach((name, gauge) -> {
+            header(out, name, gauge.help(), "gauge");
+            sample(out, name, null, gauge.value().getAsLong());
+        });
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /* the buckets hold the values below a power of four nanoseconds, counted exactly */
+    private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram.Snapshot snapshot) {
+        for (int exponent = FIRST_BUCKET_EXPONENT; exponent <= LAST_BUCKET_EXPONENT; exponent += 2) {
+            final long bound = (1L << exponent) - 1;
+            bucket(out, name, labels, Double.toString(bound / NANOS_PER_SECOND), snapshot.countAtMost(bound));
+        }
+        bucket(out, name, labels, "+Inf", snapshot.count());
+        out.append(name).append("_sum");
+        labels(out, labels);
+        out.append(' ').append(snapshot.sum() / NANOS_PER_SECOND).append('\n');
+        out.append(name).append("_count");
+        labels(out, labels);
+        out.append(' ').append(snapshot.count()).append('\n');
+    }
+
+    private static void bucket(StringBuilder out, String name, String labels, String le, long count) {
+        out.append(name).append("_bucket{");
+        if (labels != null) {
+            out.append(labels).append(',');
+        }
+        out.append("le=\"").append(le).append("\"} ").append(count).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        labels(out, labels);
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void labels(StringBuilder out, String labels) {
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+    }
+}
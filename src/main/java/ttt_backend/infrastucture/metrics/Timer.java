@@ -0,0 +1,41 @@
+package ttt_backend.infrastucture.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count, errors and latencies of an operation.
+ * <p>
+ * Usage: {@code final long start = timer.start(); ... timer.stop(start, succeeded);}
+ */
+public final class Timer {
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @return the start time of an execution
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record an execution.
+     *
+     * @param start the start time of the execution, as returned by {@link #start()}
+     * @param succeeded false if the execution is an error
+     */
+    public void stop(long start, boolean succeeded) {
+        this.latencies.record(System.nanoTime() - start);
+        if (!succeeded) {
+            this.errors.increment();
+        }
+    }
+
+    public LatencyHistogram latencies() {
+        return this.latencies;
+    }
+
+    public long errors() {
+        return this.errors.sum();
+    }
+}
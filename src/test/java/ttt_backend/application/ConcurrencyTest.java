@@ -0,0 +1,162 @@
+package ttt_backend.application;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ttt_backend.domain.models.Game;
+import ttt_backend.infrastucture.databases.ConcurrentGameRepository;
+import ttt_backend.infrastucture.databases.IndexedJsonUserRepository;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers a shared {@link GameApplication} from many threads: no id is
+ * handed out twice and no game update is lost, exactly one join per symbol
+ * succeeds, and no cell is taken twice.
+ */
+class ConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int OPS_PER_THREAD = 200;
+    private static final int GAMES = 200;
+
+    @TempDir
+    Path directory;
+
+    private IndexedJsonUserRepository userRepository;
+    private ConcurrentGameRepository gameRepository;
+    private GameApplication application;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        this.userRepository = new IndexedJsonUserRepository(this.directory.resolve("users.json"), 100);
+        this.gameRepository = new ConcurrentGameRepository();
+        this.application = new GameApplication(this.userRepository, this.gameRepository);
+        this.pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        this.pool.shutdown();
+        assertTrue(this.pool.awaitTermination(1, TimeUnit.MINUTES));
+        this.userRepository.close();
+        this.gameRepository.close();
+    }
+
+    @Test
+    void handsOutUniqueIds() throws InterruptedException {
+        final Set<String> userIds = ConcurrentHashMap.newKeySet();
+        final Set<String> gameIds = ConcurrentHashMap.newKeySet();
+        race(() -> {
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                userIds.add(this.application.registerUser("player").toCompletableFuture().join().id());
+                gameIds.add(this.application.createNewGame().toCompletableFuture().join().getId());
+            }
+        });
+
+        assertEquals(THREADS * OPS_PER_THREAD, userIds.size());
+        assertEquals(THREADS * OPS_PER_THREAD, gameIds.size());
+    }
+
+    @Test
+    void acceptsOneJoinPerSymbolAndOneMovePerCell() throws InterruptedException {
+        final List<String> players = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            players.add(this.application.registerUser("player").toCompletableFuture().join().id());
+        }
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < GAMES; i++) {
+            ids.add(this.application.createNewGame().toCompletableFuture().join().getId());
+        }
+
+        /* all the threads try to join the same games with the same symbols */
+        final AtomicInteger joins = new AtomicInteger();
+        race(() -> {
+            final String user = players.get(ThreadLocalRandom.current().nextInt(players.size()));
+            for (final String gameId : ids) {
+                for (final Game.GameSymbolType symbol : Game.GameSymbolType.values()) {
+                    if (symbol != Game.GameSymbolType.EMPTY
+                            && succeeded(this.application.joinGame(user, gameId, symbol).toCompletableFuture())) {
+                        joins.incrementAndGet();
+                    }
+                }
+            }
+        });
+        assertEquals(2 * GAMES, joins.get());
+
+        /* all the threads play the same games, with both players, on random cells */
+        final var taken = new ConcurrentHashMap<String, Set<Integer>>();
+        for (final String id : ids) {
+            this.application.startGameIfReady(id).toCompletableFuture().join();
+            taken.put(id, ConcurrentHashMap.newKeySet());
+        }
+        final AtomicInteger duplicatedCells = new AtomicInteger();
+        race(() -> {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (final String gameId : ids) {
+                final Game game = this.gameRepository.getGameById(gameId).orElseThrow();
+                for (int attempt = 0; attempt < 64 && !game.isGameEnd(); attempt++) {
+                    final int cell = random.nextInt(9);
+                    final var symbol = random.nextBoolean() ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE;
+                    for (final String user : players) {
+                        if (succeeded(this.application.makeMove(user, gameId, symbol, cell % 3, cell / 3)
+                                .toCompletableFuture()) && !taken.get(gameId).add(cell)) {
+                            duplicatedCells.incrementAndGet();
+                        }
+                    }
+                }
+            }
+        });
+        assertEquals(0, duplicatedCells.get());
+    }
+
+    /* run the task on all the threads at once, and wait for them */
+    private void race(Runnable task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            this.pool.execute(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException | Error e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        assertEquals(List.of(), errors);
+    }
+
+    private static boolean succeeded(CompletableFuture<?> future) {
+        try {
+            future.join();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package ttt_backend.application;
+
+import org.junit.jupiter.api.Test;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.InvalidJoinException;
+import ttt_backend.domain.models.InvalidMoveException;
+import ttt_backend.domain.models.User;
+import ttt_backend.domain.ports.GameRepository;
+import ttt_backend.domain.ports.UserRepository;
+import ttt_backend.infrastucture.databases.MapGameRepository;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameApplicationTest {
+    private static final RuntimeException BROKEN = new IllegalStateException("repository down");
+
+    /* the users kept in a map */
+    private static final class MapUserRepository implements UserRepository {
+        private final Map<String, User> users = new ConcurrentHashMap<>();
+
+        @Override
+        public User save(User user) {
+            this.users.put(user.id(), user);
+            return user;
+        }
+
+        @Override
+        public Optional<User> getUserById(String id) {
+            return Optional.ofNullable(this.users.get(id));
+        }
+    }
+
+    /* a user repository throwing instead of failing its stages */
+    private static final class BrokenUserRepository implements UserRepository {
+        @Override
+        public User save(User user) {
+            throw BROKEN;
+        }
+
+        @Override
+        public Optional<User> getUserById(String id) {
+            throw BROKEN;
+        }
+    }
+
+    /* a game repository throwing instead of failing its stages */
+    private static final class BrokenGameRepository implements GameRepository {
+        @Override
+        public Game save(Game game) {
+            throw BROKEN;
+        }
+
+        @Override
+        public Optional<Game> getGameById(String id) {
+            throw BROKEN;
+        }
+    }
+
+    @Test
+    void playsAGameToTheEnd() {
+        final var application = new GameApplication(new MapUserRepository(), new MapGameRepository());
+        final User cross = join(application.registerUser("cross"));
+        final User circle = join(application.registerUser("circle"));
+        final Game game = join(application.createNewGame());
+
+        join(application.joinGame(cross.id(), game.getId(), Game.GameSymbolType.CROSS));
+        join(application.joinGame(circle.id(), game.getId(), Game.GameSymbolType.CIRCLE));
+        assertTrue(join(application.isGameReadyToStart(game.getId())));
+        assertEquals(Optional.of(BoardSize.CLASSIC), join(application.startGameIfReady(game.getId())));
+        assertEquals(Optional.empty(), join(application.startGameIfReady(game.getId())));
+
+        join(application.makeMove(cross.id(), game.getId(), Game.GameSymbolType.CROSS, 0, 0));
+        join(application.makeMove(circle.id(), game.getId(), Game.GameSymbolType.CIRCLE, 0, 1));
+        join(application.makeMove(cross.id(), game.getId(), Game.GameSymbolType.CROSS, 1, 0));
+        join(application.makeMove(circle.id(), game.getId(), Game.GameSymbolType.CIRCLE, 1, 1));
+        final MoveResult result = join(application.makeMove(cross.id(), game.getId(), Game.GameSymbolType.CROSS, 2, 0));
+
+        assertTrue(result.gameEnded());
+        assertEquals(Optional.of(Game.GameSymbolType.CROSS), result.winner());
+        assertFalse(result.isTie());
+    }
+
+    @Test
+    void keepsTheMatchStartedForBothPlayers() {
+        final var application = new GameApplication(new MapUserRepository(), new MapGameRepository());
+        final User cross = join(application.registerUser("cross"));
+        final User circle = join(application.registerUser("circle"));
+        assertTrue(join(application.findMatch(cross.id(), BoardSize.CLASSIC)));
+        assertTrue(join(application.findMatch(circle.id(), BoardSize.CLASSIC)));
+
+        final var pair = application.matchmaker().pair(10, System.nanoTime() - 1_000_000_000L, ticket -> {}).get(0);
+        final Game game = join(application.startMatch(pair));
+
+        assertEquals(Game.GameState.PLAYING, game.getState());
+        assertEquals(game.getId(), application.matchmaker().match(cross.id()).orElseThrow().gameId());
+        assertEquals(cross, application.matchmaker().match(circle.id()).orElseThrow().opponent());
+    }
+
+    @Test
+    void failsAMoveOutOfTurn() {
+        final var application = new GameApplication(new MapUserRepository(), new MapGameRepository());
+        final User cross = join(application.registerUser("cross"));
+        final User circle = join(application.registerUser("circle"));
+        final Game game = join(application.createNewGame());
+        join(application.joinGame(cross.id(), game.getId(), Game.GameSymbolType.CROSS));
+        join(application.joinGame(circle.id(), game.getId(), Game.GameSymbolType.CIRCLE));
+        join(application.startGame(game.getId()));
+
+        assertInstanceOf(InvalidMoveException.class,
+                failure(application.makeMove(circle.id(), game.getId(), Game.GameSymbolType.CIRCLE, 0, 0)));
+    }
+
+    @Test
+    void failsAJoinOnATakenSymbol() {
+        final var application = new GameApplication(new MapUserRepository(), new MapGameRepository());
+        final User first = join(application.registerUser("first"));
+        final User second = join(application.registerUser("second"));
+        final Game game = join(application.createNewGame());
+        join(application.joinGame(first.id(), game.getId(), Game.GameSymbolType.CROSS));
+
+        assertInstanceOf(InvalidJoinException.class,
+                failure(application.joinGame(second.id(), game.getId(), Game.GameSymbolType.CROSS)));
+    }
+
+    @Test
+    void failsABotOnALargeBoard() {
+        final var application = new GameApplication(new MapUserRepository(), new MapGameRepository());
+        final Game game = join(application.createNewGame(new BoardSize(5, 5, 4)));
+
+        assertInstanceOf(InvalidJoinException.class, failure(application.joinBot(game.getId(), BotLevel.PERFECT)));
+    }
+
+    @Test
+    void failsTheStagesWhenTheUserRepositoryThrows() {
+        final var application = new GameApplication(new BrokenUserRepository(), new MapGameRepository());
+        final Game game = join(application.createNewGame());
+
+        assertSame(BROKEN, failure(application.registerUser("player")));
+        assertSame(BROKEN, failure(application.joinGame("user-1", game.getId(), Game.GameSymbolType.CROSS)));
+        assertSame(BROKEN, failure(application.makeMove("user-1", game.getId(), Game.GameSymbolType.CROSS, 0, 0)));
+        assertSame(BROKEN, failure(application.findMatch("user-1", BoardSize.CLASSIC)));
+    }
+
+    @Test
+    void failsTheStagesWhenTheGameRepositoryThrows() {
+        final var userRepository = new MapUserRepository();
+        final var application = new GameApplication(userRepository, new BrokenGameRepository());
+        final User user = join(application.registerUser("player"));
+
+        assertSame(BROKEN, failure(application.createNewGame()));
+        assertSame(BROKEN, failure(application.joinGame(user.id(), "game-1", Game.GameSymbolType.CROSS)));
+        assertSame(BROKEN, failure(application.makeMove(user.id(), "game-1", Game.GameSymbolType.CROSS, 0, 0)));
+        assertSame(BROKEN, failure(application.joinBot("game-1", BotLevel.EASY)));
+        assertSame(BROKEN, failure(application.playBot("game-1")));
+        assertSame(BROKEN, failure(application.startGame("game-1")));
+        assertSame(BROKEN, failure(application.startGameIfReady("game-1")));
+        assertSame(BROKEN, failure(application.getGame("game-1")));
+    }
+
+    private static <T> T join(CompletionStage<T> stage) {
+        return stage.toCompletableFuture().join();
+    }
+
+    /* the cause of the failure of a stage, which must have failed */
+    private static Throwable failure(CompletionStage<?> stage) {
+        return assertThrows(CompletionException.class, () -> join(stage)).getCause();
+    }
+}
@@ -0,0 +1,84 @@
+package ttt_backend.application;
+
+import org.junit.jupiter.api.Test;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchmakerTest {
+    private static final BoardSize LARGE = new BoardSize(15, 15, 5);
+    private static final long NEVER = Long.MIN_VALUE / 2;
+
+    private final User alice = new User("user-1", "alice");
+    private final User bob = new User("user-2", "bob");
+    private final User carol = new User("user-3", "carol");
+    private final User dave = new User("user-4", "dave");
+
+    @Test
+    void pairsThePlayersOfTheSameBoardInTheOrderTheyCame() {
+        final Matchmaker matchmaker = new Matchmaker();
+        assertTrue(matchmaker.enqueue(this.alice, BoardSize.CLASSIC));
+        assertTrue(matchmaker.enqueue(this.bob, LARGE));
+        assertFalse(matchmaker.enqueue(this.alice, LARGE));
+        assertTrue(matchmaker.enqueue(this.carol, BoardSize.CLASSIC));
+
+        final List<Matchmaker.Pair> pairs = matchmaker.pair(100, NEVER, ticket -> {});
+
+        assertEquals(1, pairs.size());
+        assertEquals(this.alice, pairs.get(0).cross().user());
+        assertEquals(this.carol, pairs.get(0).circle().user());
+        assertTrue(matchmaker.isWaiting(this.bob.id()));
+        assertEquals(1, matchmaker.waiting());
+
+        assertTrue(matchmaker.enqueue(this.dave, LARGE));
+        final List<Matchmaker.Pair> next = matchmaker.pair(100, NEVER, ticket -> {});
+        assertEquals(List.of(this.bob, this.dave), List.of(next.get(0).cross().user(), next.get(0).circle().user()));
+        assertEquals(0, matchmaker.waiting());
+    }
+
+    @Test
+    void skipsTheCancelledAndExpiredTickets() {
+        final Matchmaker matchmaker = new Matchmaker();
+        matchmaker.enqueue(this.alice, BoardSize.CLASSIC);
+        matchmaker.enqueue(this.bob, BoardSize.CLASSIC);
+        assertTrue(matchmaker.cancel(this.alice.id()));
+        assertFalse(matchmaker.cancel(this.alice.id()));
+        assertTrue(matchmaker.pair(100, NEVER, ticket -> {}).isEmpty());
+
+        final List<User> expired = new ArrayList<>();
+        assertTrue(matchmaker.pair(100, System.nanoTime() + 1, ticket -> expired.add(ticket.user())).isEmpty());
+        assertEquals(List.of(this.bob), expired);
+        assertFalse(matchmaker.isWaiting(this.bob.id()));
+    }
+
+    @Test
+    void keepsTheMatchUntilThePlayerWaitsAgainOrItExpires() {
+        final Matchmaker matchmaker = new Matchmaker();
+        matchmaker.enqueue(this.alice, LARGE);
+        matchmaker.enqueue(this.bob, LARGE);
+        final Matchmaker.Pair pair = matchmaker.pair(100, NEVER, ticket -> {}).get(0);
+        matchmaker.matched(pair, "game-1");
+
+        final Matchmaker.Match match = matchmaker.match(this.bob.id()).orElseThrow();
+        assertEquals("game-1", match.gameId());
+        assertEquals(LARGE, match.board());
+        assertEquals(Game.GameSymbolType.CIRCLE, match.symbol());
+        assertEquals(this.alice, match.opponent());
+        assertEquals(match, matchmaker.match(this.bob.id()).orElseThrow());
+
+        matchmaker.enqueue(this.alice, BoardSize.CLASSIC);
+        assertEquals(Optional.empty(), matchmaker.match(this.alice.id()));
+        matchmaker.pair(100, NEVER, ticket -> {});
+        assertTrue(matchmaker.match(this.bob.id()).isPresent());
+        matchmaker.pair(100, System.nanoTime() + 1, ticket -> {});
+        assertEquals(Optional.empty(), matchmaker.match(this.bob.id()));
+    }
+}
@@ -0,0 +1,109 @@
+package ttt_backend.application;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays games of each level of the bots against a random player, on both
+ * sides, and against the perfect bot: the perfect bot never loses.
+ */
+class MoveTableTest {
+    private static final int GAMES = 2_000;
+    private static final int[] LINES = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100
+    };
+    private static final int CROSS_WINS = 1;
+    private static final int CIRCLE_WINS = 2;
+    private static final int TIE = 0;
+
+    private static MoveTable table;
+
+    @BeforeAll
+    static void build() {
+        table = MoveTable.build();
+    }
+
+    @Test
+    void choosesAFreeCell() {
+        final SplittableRandom random = new SplittableRandom(42);
+        for (final BotLevel level : BotLevel.values()) {
+            final int cell = table.choose(0b000_000_001, 0b000_010_000, level, random);
+            assertTrue(cell > 0 && cell < 9 && cell != 4, level + " chose " + cell);
+        }
+    }
+
+    @Test
+    void completesALineOfItsOwn() {
+        assertEquals(2, table.choose(0b000_000_011, 0b000_011_000, BotLevel.PERFECT, new SplittableRandom(42)));
+    }
+
+    @Test
+    void perfectBotNeverLosesToARandomPlayer() {
+        final SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < GAMES; i++) {
+            assertTrue(play(BotLevel.PERFECT, null, random) != CIRCLE_WINS, "lost as cross");
+            assertTrue(play(null, BotLevel.PERFECT, random) != CROSS_WINS, "lost as circle");
+        }
+    }
+
+    @Test
+    void noLevelBeatsThePerfectBot() {
+        final SplittableRandom random = new SplittableRandom(42);
+        for (final BotLevel level : BotLevel.values()) {
+            for (int i = 0; i < GAMES; i++) {
+                assertTrue(play(level, BotLevel.PERFECT, random) != CROSS_WINS, level + " won as cross");
+            }
+        }
+    }
+
+    @Test
+    void perfectBotsTie() {
+        final SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < GAMES; i++) {
+            assertEquals(TIE, play(BotLevel.PERFECT, BotLevel.PERFECT, random));
+        }
+    }
+
+    /* a game between two players, each a bot of a level, or random if null */
+    private static int play(BotLevel cross, BotLevel circle, SplittableRandom random) {
+        int own = 0;
+        int other = 0;
+        for (int ply = 0; ply < 9; ply++) {
+            final BotLevel level = ply % 2 == 0 ? cross : circle;
+            final int cell = level != null ? table.choose(own, other, level, random) : randomCell(own | other, random);
+            assertEquals(0, (own | other) & (1 << cell), "cell " + cell + " taken");
+            own |= 1 << cell;
+            if (hasLine(own)) {
+                return ply % 2 == 0 ? CROSS_WINS : CIRCLE_WINS;
+            }
+            final int mover = own;
+            own = other;
+            other = mover;
+        }
+        return TIE;
+    }
+
+    private static int randomCell(int taken, SplittableRandom random) {
+        int cell;
+        do {
+            cell = random.nextInt(9);
+        } while ((taken & (1 << cell)) != 0);
+        return cell;
+    }
+
+    private static boolean hasLine(int cells) {
+        for (final int line : LINES) {
+            if ((cells & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,266 @@
+package ttt_backend.domain.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Wins along every direction, at the edges of the boards and across the
+ * 64-bit words of the cells, on square and non-square boards, compared on
+ * random games with a check of every line of the board; games restored
+ * from their cells.
+ */
+class GameTest {
+    private static final BoardSize LARGE = new BoardSize(15, 15, 5);
+    private static final User CROSS = new User("user-1", "cross");
+    private static final User CIRCLE = new User("user-2", "circle");
+
+    @Test
+    void winsOnEveryLineOfTicTacToe() throws Exception {
+        final int[][][] lines = {
+            {{0, 0}, {1, 0}, {2, 0}}, {{0, 1}, {1, 1}, {2, 1}}, {{0, 2}, {1, 2}, {2, 2}},
+            {{0, 0}, {0, 1}, {0, 2}}, {{1, 0}, {1, 1}, {1, 2}}, {{2, 0}, {2, 1}, {2, 2}},
+            {{0, 0}, {1, 1}, {2, 2}}, {{2, 0}, {1, 1}, {0, 2}}
+        };
+        for (final int[][] line : lines) {
+            assertCrossWinsOn(BoardSize.CLASSIC, line);
+            assertCrossWinsOn(BoardSize.CLASSIC, reversed(line));
+        }
+    }
+
+    @Test
+    void endsInATieWhenTheBoardIsFull() throws Exception {
+        final Game game = started(BoardSize.CLASSIC);
+        final int[][] moves = {{0, 0}, {1, 0}, {2, 0}, {1, 1}, {0, 1}, {2, 1}, {1, 2}, {0, 2}, {2, 2}};
+        for (final int[] move : moves) {
+            assertFalse(game.isGameEnd());
+            play(game, move[0], move[1]);
+        }
+
+        assertTrue(game.isTie());
+        assertEquals(Optional.empty(), game.getWinner());
+        assertEquals(Optional.empty(), game.getCurrentTurn());
+    }
+
+    @Test
+    void winsAtTheEdgesOfALargeBoard() throws Exception {
+        assertCrossWinsOn(LARGE, line(0, 0, 1, 0, 5));
+        assertCrossWinsOn(LARGE, line(10, 14, 1, 0, 5));
+        assertCrossWinsOn(LARGE, line(14, 0, 0, 1, 5));
+        assertCrossWinsOn(LARGE, line(0, 10, 0, 1, 5));
+        assertCrossWinsOn(LARGE, line(10, 10, 1, 1, 5));
+        assertCrossWinsOn(LARGE, line(0, 0, 1, 1, 5));
+        assertCrossWinsOn(LARGE, line(14, 0, -1, 1, 5));
+        assertCrossWinsOn(LARGE, line(4, 10, -1, 1, 5));
+    }
+
+    @Test
+    void winsAcrossTheWordsOfTheCells() throws Exception {
+        /* the cells 60 to 64, 52 to 112 and 48 to 112 */
+        assertCrossWinsOn(LARGE, line(0, 4, 1, 0, 5));
+        assertCrossWinsOn(LARGE, line(7, 3, 0, 1, 5));
+        assertCrossWinsOn(LARGE, line(3, 3, 1, 1, 5));
+        assertCrossWinsOn(LARGE, line(7, 2, -1, 1, 5));
+        /* the middle cell last, joining two runs in different words */
+        assertCrossWinsOn(LARGE, new int[][] {{0, 4}, {1, 4}, {3, 4}, {4, 4}, {2, 4}});
+        assertCrossWinsOn(new BoardSize(64, 64, 64), line(0, 63, 1, 0, 64));
+    }
+
+    @Test
+    void doesNotWinAcrossTheEdgesOfTheRows() throws Exception {
+        final Game game = started(LARGE);
+        /* consecutive cells 13 to 17, wrapping from the first row to the second */
+        playWithFillers(game, new int[][] {{13, 0}, {14, 0}, {0, 1}, {1, 1}, {2, 1}});
+        assertFalse(game.isGameEnd());
+
+        final Game diagonal = started(LARGE);
+        /* cells 16 apart wrapping around the right edge */
+        playWithFillers(diagonal, new int[][] {{12, 0}, {13, 1}, {14, 2}, {0, 4}, {1, 5}});
+        assertFalse(diagonal.isGameEnd());
+    }
+
+    @Test
+    void winsOnNonSquareBoards() throws Exception {
+        assertCrossWinsOn(new BoardSize(7, 4, 4), line(0, 0, 0, 1, 4));
+        assertCrossWinsOn(new BoardSize(7, 4, 4), line(3, 3, 1, -1, 4));
+        assertCrossWinsOn(new BoardSize(4, 9, 4), line(0, 5, 0, 1, 4));
+        assertCrossWinsOn(new BoardSize(4, 9, 4), line(0, 8, 1, 0, 4));
+        assertCrossWinsOn(new BoardSize(6, 2, 5), line(1, 1, 1, 0, 5));
+        assertCrossWinsOn(new BoardSize(1, 64, 5), line(0, 59, 0, 1, 5));
+    }
+
+    @Test
+    void winsWithLessThanASideInARow() throws Exception {
+        assertCrossWinsOn(new BoardSize(5, 5, 3), line(2, 2, 1, 1, 3));
+        assertCrossWinsOn(new BoardSize(5, 5, 3), line(4, 2, -1, 1, 3));
+        assertCrossWinsOn(new BoardSize(3, 3, 2), line(1, 0, 0, 1, 2));
+    }
+
+    @Test
+    void agreesWithEveryLineOnRandomGames() throws Exception {
+        final BoardSize[] boards = {
+            BoardSize.CLASSIC, new BoardSize(3, 3, 2), new BoardSize(4, 4, 3), new BoardSize(5, 7, 4),
+            new BoardSize(9, 8, 9), LARGE, new BoardSize(64, 1, 5), new BoardSize(11, 13, 4)
+        };
+        final Random random = new Random(42);
+        for (int round = 0; round < 400; round++) {
+            final BoardSize board = boards[round % boards.length];
+            final Game game = started(board);
+            while (!game.isGameEnd()) {
+                int cell;
+                do {
+                    cell = random.nextInt(board.cells());
+                } while (game.getCell(cell % board.width(), cell / board.width()) != Game.GameSymbolType.EMPTY);
+                final Game.GameSymbolType moved = game.getCurrentTurn().orElseThrow();
+                play(game, cell % board.width(), cell / board.width());
+
+                final boolean won = hasLine(game, moved);
+                assertEquals(won ? Optional.of(moved) : Optional.empty(), game.getWinner(), board.toString());
+                assertEquals(won || isFull(game), game.isGameEnd(), board.toString());
+                assertSameState(game, restored(game));
+            }
+        }
+    }
+
+    @Test
+    void restoresFinishedGames() throws Exception {
+        final Game won = started(LARGE);
+        playWithFillers(won, line(7, 3, 0, 1, 5));
+        final Game restoredWin = restored(won);
+        assertTrue(restoredWin.isGameEnd());
+        assertEquals(Optional.of(Game.GameSymbolType.CROSS), restoredWin.getWinner());
+        assertEquals(won.getVersion(), restoredWin.getVersion());
+
+        final Game tie = Game.restore("game-1", CROSS, CIRCLE, true, 0b110_001_101, 0b001_110_010);
+        assertTrue(tie.isTie());
+        assertEquals(Optional.empty(), tie.getCurrentTurn());
+        assertEquals(12, tie.getVersion());
+
+        final Game circleWon = Game.restore("game-2", CROSS, CIRCLE, true, 0b000_011_001, 0b111_000_000);
+        assertEquals(Optional.of(Game.GameSymbolType.CIRCLE), circleWon.getWinner());
+
+        final Game waiting = Game.restore("game-3", LARGE, CROSS, null, false, new long[4], new long[4]);
+        assertEquals(Game.GameState.WAITING_PLAYER, waiting.getState());
+        assertEquals(1, waiting.getVersion());
+    }
+
+    /* cross takes the cells of the line in order, circle the first free cells off it, and wins at the last one */
+    private static void assertCrossWinsOn(BoardSize board, int[][] line) throws Exception {
+        final Game game = started(board);
+        playWithFillers(game, line);
+        assertTrue(game.isGameEnd(), board + " " + List.of(line));
+        assertEquals(Optional.of(Game.GameSymbolType.CROSS), game.getWinner());
+        assertSameState(game, restored(game));
+    }
+
+    /* cross takes the cells in order, circle the first free cells off them */
+    private static void playWithFillers(Game game, int[][] cells) throws Exception {
+        final BoardSize board = game.getBoardSize();
+        for (int i = 0; i < cells.length; i++) {
+            assertFalse(game.isGameEnd(), board + " " + List.of(cells));
+            play(game, cells[i][0], cells[i][1]);
+            if (i < cells.length - 1) {
+                for (int cell = 0; ; cell++) {
+                    final int x = cell % board.width();
+                    final int y = cell / board.width();
+                    if (game.getCell(x, y) == Game.GameSymbolType.EMPTY && !contains(cells, x, y)) {
+                        play(game, x, y);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static Game started(BoardSize board) throws Exception {
+        final Game game = new Game("game-0", board);
+        game.joinGame(CROSS, Game.GameSymbolType.CROSS);
+        game.joinGame(CIRCLE, Game.GameSymbolType.CIRCLE);
+        game.start();
+        return game;
+    }
+
+    private static void play(Game game, int x, int y) throws Exception {
+        final Game.GameSymbolType symbol = game.getCurrentTurn().orElseThrow();
+        game.makeAmove(symbol == Game.GameSymbolType.CROSS ? CROSS : CIRCLE, symbol, x, y);
+    }
+
+    private static Game restored(Game game) {
+        final long[] cross = new long[game.getCellWords()];
+        final long[] circle = new long[game.getCellWords()];
+        for (int word = 0; word < cross.length; word++) {
+            cross[word] = game.getCells(Game.GameSymbolType.CROSS, word);
+            circle[word] = game.getCells(Game.GameSymbolType.CIRCLE, word);
+        }
+        return Game.restore(game.getId(), game.getBoardSize(), CROSS, CIRCLE, true, cross, circle);
+    }
+
+    private static void assertSameState(Game expected, Game actual) {
+        assertEquals(expected.getState(), actual.getState());
+        assertEquals(expected.getWinner(), actual.getWinner());
+        assertEquals(expected.getCurrentTurn(), actual.getCurrentTurn());
+        assertEquals(expected.getVersion(), actual.getVersion());
+    }
+
+    /* any winLength cells in a row of the symbol, checked on every line of the board */
+    private static boolean hasLine(Game game, Game.GameSymbolType symbol) {
+        final BoardSize board = game.getBoardSize();
+        final int[][] directions = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+        for (int y = 0; y < board.height(); y++) {
+            for (int x = 0; x < board.width(); x++) {
+                for (final int[] d : directions) {
+                    int run = 0;
+                    for (int cx = x, cy = y; run < board.winLength() && cx >= 0 && cx < board.width()
+                            && cy >= 0 && cy < board.height() && game.getCell(cx, cy) == symbol; cx += d[0], cy += d[1]) {
+                        run++;
+                    }
+                    if (run == board.winLength()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFull(Game game) {
+        final BoardSize board = game.getBoardSize();
+        for (int cell = 0; cell < board.cells(); cell++) {
+            if (game.getCell(cell % board.width(), cell / board.width()) == Game.GameSymbolType.EMPTY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[][] line(int x, int y, int dx, int dy, int length) {
+        final int[][] cells = new int[length][];
+        for (int i = 0; i < length; i++) {
+            cells[i] = new int[] {x + i * dx, y + i * dy};
+        }
+        return cells;
+    }
+
+    private static int[][] reversed(int[][] cells) {
+        final List<int[]> list = new ArrayList<>(List.of(cells));
+        Collections.reverse(list);
+        return list.toArray(int[][]::new);
+    }
+
+    private static boolean contains(int[][] cells, int x, int y) {
+        for (final int[] cell : cells) {
+            if (cell[0] == x && cell[1] == y) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,98 @@
+package ttt_backend.infrastucture.apis;
+
+import org.junit.jupiter.api.Test;
+import ttt_backend.infrastucture.metrics.Gauge;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitTest {
+    private static final int MIN_LIMIT = 8;
+    private static final long LAG_TARGET = 1_000_000;
+    private static final long LATENCY_TARGET = 10_000_000;
+
+    private final Gauge inFlight = new Gauge();
+    private final Gauge limits = new Gauge();
+
+    @Test
+    void admitsUpToTheLimitAndCountsTheRequestsInFlight() {
+        final var limit = new ConcurrencyLimit(10, LAG_TARGET, LATENCY_TARGET, this.inFlight, this.limits);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        assertFalse(limit.tryAcquire());
+        assertEquals(10, this.inFlight.getAsLong());
+
+        limit.release(1_000);
+        assertEquals(9, this.inFlight.getAsLong());
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void decreasesByATenthWhenOverloadedDownToTheMin() {
+        final var limit = new ConcurrencyLimit(100, LAG_TARGET, LATENCY_TARGET, this.inFlight, this.limits);
+        assertEquals(100, this.limits.getAsLong());
+
+        limit.adapt(2 * LAG_TARGET);
+        assertEquals(90, limit.limit());
+        assertEquals(90, this.limits.getAsLong());
+
+        assertTrue(limit.tryAcquire());
+        limit.release(2 * LATENCY_TARGET);
+        limit.adapt(0);
+        assertEquals(81, limit.limit());
+
+        for (int i = 0; i < 100; i++) {
+            limit.adapt(2 * LAG_TARGET);
+        }
+        assertEquals(MIN_LIMIT, limit.limit());
+        assertEquals(MIN_LIMIT, this.limits.getAsLong());
+    }
+
+    @Test
+    void increasesByItsSquareRootWhenReachedUpToTheMax() {
+        final var limit = new ConcurrencyLimit(100, LAG_TARGET, LATENCY_TARGET, this.inFlight, this.limits);
+        for (int i = 0; i < 30; i++) {
+            limit.adapt(2 * LAG_TARGET);
+        }
+        assertEquals(MIN_LIMIT, limit.limit());
+
+        limit.adapt(0);
+        assertEquals(MIN_LIMIT, limit.limit());
+
+        reach(limit);
+        limit.adapt(0);
+        assertEquals((int) (MIN_LIMIT + Math.sqrt(MIN_LIMIT)), limit.limit());
+
+        for (int i = 0; i < 100; i++) {
+            reach(limit);
+            limit.adapt(0);
+        }
+        assertEquals(100, limit.limit());
+        assertEquals(100, this.limits.getAsLong());
+        assertEquals(0, this.inFlight.getAsLong());
+    }
+
+    @Test
+    void raisesTheMaxToTheMinAndNeverAdaptsWithoutAMax() {
+        final var small = new ConcurrencyLimit(2, LAG_TARGET, LATENCY_TARGET, this.inFlight, this.limits);
+        assertEquals(MIN_LIMIT, small.limit());
+
+        final var unlimited = new ConcurrencyLimit(0, LAG_TARGET, LATENCY_TARGET, this.inFlight, new Gauge());
+        unlimited.adapt(2 * LAG_TARGET);
+        assertEquals(Integer.MAX_VALUE, unlimited.limit());
+        assertEquals(MIN_LIMIT, this.limits.getAsLong());
+    }
+
+    /* fill the limit, be refused once, then release all the requests quickly */
+    private void reach(ConcurrencyLimit limit) {
+        int admitted = 0;
+        while (limit.tryAcquire()) {
+            admitted++;
+        }
+        for (int i = 0; i < admitted; i++) {
+            limit.release(1_000);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ttt_backend.infrastucture.apis;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+import ttt_backend.domain.events.GameEnded;
+import ttt_backend.domain.events.GameEvent;
+import ttt_backend.domain.events.GameStarted;
+import ttt_backend.domain.events.NewMove;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameEventCodecTest {
+    private final GameEventCodec codec = new GameEventCodec();
+
+    @Test
+    void decodesTheEventsEncoded() {
+        final List<GameEventMessage> messages = List.of(
+                new GameEventMessage(new NewMove("game-1", 63, 0, Game.GameSymbolType.CIRCLE)),
+                new GameEventMessage(new GameEnded("game-é", Game.GameSymbolType.EMPTY)),
+                new GameEventMessage(new GameStarted("game-2", new BoardSize(64, 15, 5))));
+        for (final GameEventMessage message : messages) {
+            final Buffer buffer = Buffer.buffer().appendString("prefix");
+            this.codec.encodeToWire(buffer, message);
+
+            assertEquals(message.event(), this.codec.decodeFromWire(6, buffer).event());
+        }
+    }
+
+    @Test
+    void rejectsTheSymbolsOutOfRange() {
+        for (final byte symbol : new byte[] {-1, 3, Byte.MAX_VALUE, Byte.MIN_VALUE}) {
+            final Buffer move = encoded(new NewMove("game-1", 1, 2, Game.GameSymbolType.CROSS));
+            move.setByte(move.length() - 1, symbol);
+            assertThrows(IllegalArgumentException.class, () -> this.codec.decodeFromWire(0, move));
+
+            final Buffer end = encoded(new GameEnded("game-1", Game.GameSymbolType.CROSS));
+            end.setByte(end.length() - 1, symbol);
+            assertThrows(IllegalArgumentException.class, () -> this.codec.decodeFromWire(0, end));
+        }
+    }
+
+    @Test
+    void rejectsTheUnknownTypes() {
+        final Buffer buffer = encoded(new GameEnded("game-1", Game.GameSymbolType.CROSS));
+        buffer.setByte(0, (byte) 42);
+        assertThrows(IllegalArgumentException.class, () -> this.codec.decodeFromWire(0, buffer));
+    }
+
+    private Buffer encoded(GameEvent event) {
+        final Buffer buffer = Buffer.buffer();
+        this.codec.encodeToWire(buffer, new GameEventMessage(event));
+        return buffer;
+    }
+}
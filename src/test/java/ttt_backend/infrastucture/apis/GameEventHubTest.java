@@ -0,0 +1,51 @@
+package ttt_backend.infrastucture.apis;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.WebSocketClient;
+import org.junit.jupiter.api.Test;
+import ttt_backend.infrastucture.metrics.Gauge;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GameEventHubTest {
+
+    @Test
+    void closesTheSocketSubscribingToMoreGamesThanSlots() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final Gauge openSockets = new Gauge();
+            final Gauge consumers = new Gauge();
+            final GameEventHub hub = new GameEventHub(vertx.eventBus(), openSockets, consumers);
+            final int[] slots = new int[GameEventHub.MAX_SLOTS + 1];
+            final CompletableFuture<Void> subscribed = new CompletableFuture<>();
+            final HttpServer server = vertx.createHttpServer().webSocketHandler(socket -> {
+                for (int i = 0; i < slots.length; i++) {
+                    slots[i] = hub.subscribe("game-" + i, "ttt-events-game-" + i, socket);
+                }
+                subscribed.complete(null);
+            }).listen(0).await();
+
+            final WebSocketClient client = vertx.createWebSocketClient();
+            final CompletableFuture<Short> status = new CompletableFuture<>();
+            client.connect(server.actualPort(), "localhost", "/")
+                    .onSuccess(ws -> ws.closeHandler(v -> status.complete(ws.closeStatusCode())));
+
+            subscribed.get(30, TimeUnit.SECONDS);
+            for (int i = 0; i < GameEventHub.MAX_SLOTS; i++) {
+                assertEquals(i, slots[i]);
+            }
+            assertEquals(-1, slots[GameEventHub.MAX_SLOTS]);
+            assertEquals((short) 1002, status.get(30, TimeUnit.SECONDS));
+            assertEquals(0, hub.sockets());
+            assertEquals(0, hub.consumers());
+            assertEquals(0, openSockets.getAsLong());
+            assertEquals(0, consumers.getAsLong());
+        } finally {
+            vertx.close().await();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ttt_backend.infrastucture.apis;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.WebSocketClient;
+import org.junit.jupiter.api.Test;
+import ttt_backend.domain.events.NewMove;
+import ttt_backend.domain.models.Game;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameEventMessageTest {
+
+    @Test
+    void sendsTheSameTextFrameToEverySocket() throws Exception {
+        final var event = new GameEventMessage(new NewMove("game-1", 1, 2, Game.GameSymbolType.CROSS));
+        final String expected = "{\"event\":\"new-move\",\"x\":1,\"y\":2,\"symbol\":\"cross\"}";
+        assertEquals(expected, event.json());
+
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final int sockets = 3;
+            final CountDownLatch received = new CountDownLatch(2 * sockets);
+            final List<String> messages = new CopyOnWriteArrayList<>();
+            final HttpServer server = vertx.createHttpServer().webSocketHandler(socket -> {
+                socket.writeFrame(event.textFrame());
+                socket.writeFrame(event.textFrame());
+            }).listen(0).await();
+            final WebSocketClient client = vertx.createWebSocketClient();
+            for (int i = 0; i < sockets; i++) {
+                client.connect(server.actualPort(), "localhost", "/").onSuccess(ws -> ws.textMessageHandler(text -> {
+                    messages.add(text);
+                    received.countDown();
+                }));
+            }
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+            assertEquals(List.of(expected, expected, expected, expected, expected, expected), messages);
+        } finally {
+            vertx.close().await();
+        }
+    }
+}
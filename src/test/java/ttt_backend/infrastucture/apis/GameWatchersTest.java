@@ -0,0 +1,105 @@
+package ttt_backend.infrastucture.apis;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ttt_backend.infrastucture.metrics.Gauge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameWatchersTest {
+    private Vertx vertx;
+    private Context context;
+    private Gauge waiting;
+    private GameWatchers watchers;
+
+    @BeforeEach
+    void startVertx() {
+        this.vertx = Vertx.vertx();
+        this.context = this.vertx.getOrCreateContext();
+        this.waiting = new Gauge();
+        this.watchers = new GameWatchers(this.vertx, this.waiting);
+    }
+
+    @AfterEach
+    void closeVertx() {
+        this.vertx.close().await();
+    }
+
+    @Test
+    void notifiesEveryRequestWaitingForTheGameChanged() throws Exception {
+        final List<String> notified = Collections.synchronizedList(new ArrayList<>());
+        final CompletableFuture<Void> both = new CompletableFuture<>();
+        onEventLoop(() -> {
+            for (final String name : List.of("first", "second")) {
+                this.watchers.watch("game-1", 30_000, changed -> {
+                    notified.add(name + " " + changed);
+                    if (notified.size() == 2) {
+                        both.complete(null);
+                    }
+                });
+            }
+            this.watchers.watch("game-2", 30_000, changed -> notified.add("other " + changed));
+            assertEquals(3, this.waiting.getAsLong());
+        });
+
+        GameWatchers.publishChange(this.vertx.eventBus(), "game-1");
+        both.get(10, TimeUnit.SECONDS);
+        onEventLoop(() -> { });
+
+        assertEquals(List.of("first true", "second true"), notified);
+        assertEquals(1, this.waiting.getAsLong());
+    }
+
+    @Test
+    void endsTheWaitAtTheTimeout() throws Exception {
+        final CompletableFuture<Boolean> notified = new CompletableFuture<>();
+        final long start = System.nanoTime();
+        onEventLoop(() -> this.watchers.watch("game-1", 200, notified::complete));
+
+        assertFalse(notified.get(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(0, this.waiting.getAsLong());
+    }
+
+    @Test
+    void doesNotNotifyTheWaitsCancelled() throws Exception {
+        final List<Boolean> notified = Collections.synchronizedList(new ArrayList<>());
+        onEventLoop(() -> {
+            final GameWatchers.Watch watch = this.watchers.watch("game-1", 100, notified::add);
+            assertTrue(watch.cancel());
+            assertFalse(watch.cancel());
+            assertEquals(0, this.waiting.getAsLong());
+        });
+
+        GameWatchers.publishChange(this.vertx.eventBus(), "game-1");
+        Thread.sleep(300);
+        onEventLoop(() -> { });
+
+        assertEquals(List.of(), notified);
+    }
+
+    /* run on the event loop of the context, as the verticles do, and wait for it */
+    private void onEventLoop(Runnable action) throws Exception {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        this.context.runOnContext(v -> {
+            try {
+                action.run();
+                done.complete(null);
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+            }
+        });
+        done.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,175 @@
+package ttt_backend.infrastucture.apis;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.PoolOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ttt_backend.application.GameApplication;
+import ttt_backend.domain.models.User;
+import ttt_backend.domain.ports.UserRepository;
+import ttt_backend.infrastucture.databases.MapGameRepository;
+import ttt_backend.infrastucture.execution.DirectGameExecutor;
+import ttt_backend.infrastucture.metrics.Gauge;
+import ttt_backend.infrastucture.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The reads of a game waiting for its next version, through the API:
+ * woken up by a change, ended by a 304 at the timeout, cancelled when the
+ * connection closes, and not holding a place under the concurrency limit
+ * while waiting.
+ */
+class LongPollTest {
+    private static final int MAX_CONCURRENCY = 8;
+
+    private Vertx vertx;
+    private GameApplication application;
+    private MetricsRegistry metrics;
+    private HttpClient client;
+    private int port;
+
+    /* the users kept in a map */
+    private static final class MapUserRepository implements UserRepository {
+        private final Map<String, User> users = new ConcurrentHashMap<>();
+
+        @Override
+        public User save(User user) {
+            this.users.put(user.id(), user);
+            return user;
+        }
+
+        @Override
+        public Optional<User> getUserById(String id) {
+            return Optional.ofNullable(this.users.get(id));
+        }
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        this.vertx = Vertx.vertx();
+        this.application = new GameApplication(new MapUserRepository(), new MapGameRepository());
+        this.metrics = new MetricsRegistry();
+        try (ServerSocket socket = new ServerSocket(0)) {
+            this.port = socket.getLocalPort();
+        }
+        final AdmissionControl admission = new AdmissionControl(RateLimiter.unlimited(), RateLimiter.unlimited(),
+                MAX_CONCURRENCY, Duration.ofSeconds(10), Duration.ofSeconds(10));
+        this.vertx.deployVerticle(new GameAPI(this.application, new DirectGameExecutor(), this.metrics,
+                admission, this.port)).await();
+        this.client = newClient();
+    }
+
+    @AfterEach
+    void closeServer() {
+        this.vertx.close().await();
+    }
+
+    @Test
+    void repliesWithTheNextVersionOnceTheGameChanges() throws Exception {
+        final String gameId = this.application.createNewGame().toCompletableFuture().get().getId();
+        final User user = this.application.registerUser("cross").toCompletableFuture().get();
+        final String etag = read(this.client, gameId, null, 0).await().getHeader(HttpHeaders.ETAG);
+
+        final Future<HttpClientResponse> poll = read(this.client, gameId, etag, 30);
+        awaitValue(watchers(), 1);
+        assertFalse(poll.isComplete());
+        post("/api/joinGame", "{\"userId\":\"" + user.id() + "\",\"gameId\":\"" + gameId + "\",\"symbol\":\"cross\"}");
+
+        final HttpClientResponse response = poll.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertEquals(200, response.statusCode());
+        assertNotEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        awaitValue(watchers(), 0);
+    }
+
+    @Test
+    void repliesNotModifiedIfTheGameDidNotChangeInTime() throws Exception {
+        final String gameId = this.application.createNewGame().toCompletableFuture().get().getId();
+        final String etag = read(this.client, gameId, null, 0).await().getHeader(HttpHeaders.ETAG);
+
+        final long start = System.nanoTime();
+        final HttpClientResponse response = read(this.client, gameId, etag, 1).await();
+
+        assertEquals(304, response.statusCode());
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+        assertEquals(0, watchers().getAsLong());
+    }
+
+    @Test
+    void waitsWithoutHoldingAPlaceUnderTheLimitAndStopsOnClose() throws Exception {
+        final String gameId = this.application.createNewGame().toCompletableFuture().get().getId();
+        final String etag = read(this.client, gameId, null, 0).await().getHeader(HttpHeaders.ETAG);
+
+        final HttpClient pollers = newClient();
+        final List<Future<HttpClientResponse>> polls = new ArrayList<>();
+        for (int i = 0; i < 4 * MAX_CONCURRENCY; i++) {
+            polls.add(read(pollers, gameId, etag, 30));
+        }
+        awaitValue(watchers(), polls.size());
+        awaitValue(this.metrics.gauge("ttt_admission_in_flight", ""), 0);
+
+        assertEquals(200, read(this.client, gameId, null, 0).await().statusCode());
+        assertEquals(0, this.metrics.gauge("ttt_admission_shed", "").getAsLong());
+
+        pollers.close().await();
+        awaitValue(watchers(), 0);
+        polls.forEach(poll -> assertFalse(poll.succeeded()));
+    }
+
+    private Gauge watchers() {
+        return this.metrics.gauge("ttt_game_watchers", "");
+    }
+
+    private HttpClient newClient() {
+        return this.vertx.createHttpClient(new HttpClientOptions(), new PoolOptions().setHttp1MaxSize(64));
+    }
+
+    private Future<HttpClientResponse> read(HttpClient client, String gameId, String etag, long waitSeconds) {
+        final String uri = "/api/games/" + gameId + (waitSeconds > 0 ? "?wait=" + waitSeconds : "");
+        return client.request(HttpMethod.GET, this.port, "localhost", uri).compose(request -> {
+            if (etag != null) {
+                request.putHeader(HttpHeaders.IF_NONE_MATCH, etag);
+            }
+            return request.send();
+        }).compose(response -> response.body().map(body -> response));
+    }
+
+    private void post(String uri, String body) {
+        final HttpClientResponse response = this.client.request(HttpMethod.POST, this.port, "localhost", uri)
+                .compose(request -> request.send(body))
+                .compose(r -> r.body().map(b -> r))
+                .await();
+        assertEquals(200, response.statusCode());
+    }
+
+    /* the gauges are updated on the event loop of the API */
+    private static void awaitValue(LongSupplier gauge, long expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (gauge.getAsLong() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, gauge.getAsLong());
+    }
+}
@@ -0,0 +1,69 @@
+package ttt_backend.infrastucture.apis;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    @Test
+    void refusesThePermitsBeyondTheBurst() {
+        final var limiter = new RateLimiter(1, Duration.ofHours(1), 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.acquire("user-1"));
+        }
+        final long wait = limiter.acquire("user-1");
+        assertTrue(wait > 0 && wait <= Duration.ofHours(1).toNanos(), "wait " + wait);
+        assertEquals(0, limiter.acquire("user-2"));
+        assertEquals(2, limiter.keys());
+    }
+
+    @Test
+    void refillsAfterAnInterval() throws InterruptedException {
+        final var limiter = new RateLimiter(100, Duration.ofSeconds(1), 1);
+        assertEquals(0, limiter.acquire("user-1"));
+        assertTrue(limiter.acquire("user-1") > 0);
+        Thread.sleep(20);
+        assertEquals(0, limiter.acquire("user-1"));
+    }
+
+    @Test
+    void takesSeveralPermitsAllOrNone() {
+        final var limiter = new RateLimiter(1, Duration.ofHours(1), 5);
+        assertEquals(0, limiter.acquire("user-1", 3));
+        assertTrue(limiter.acquire("user-1", 3) > 0);
+        assertEquals(0, limiter.acquire("user-1", 2));
+        assertTrue(limiter.acquire("user-1") > 0);
+        assertTrue(limiter.acquire("user-2", 6) > 0);
+        assertEquals(0, limiter.acquire("user-2", 5));
+    }
+
+    @Test
+    void givesBackThePermitsRefunded() {
+        final var limiter = new RateLimiter(1, Duration.ofHours(1), 4);
+        assertEquals(0, limiter.acquire("user-1", 4));
+        limiter.refund("user-1", 3);
+        assertEquals(0, limiter.acquire("user-1", 3));
+        assertTrue(limiter.acquire("user-1") > 0);
+    }
+
+    @Test
+    void letsEveryPermitInWhenUnlimited() {
+        final var limiter = RateLimiter.unlimited();
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(0, limiter.acquire("user-1"));
+        }
+        assertEquals(0, limiter.keys());
+    }
+
+    @Test
+    void refusesAnInvalidRate() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(-1, Duration.ofSeconds(1), 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(1, Duration.ZERO, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(1, Duration.ofSeconds(1), 0));
+    }
+}
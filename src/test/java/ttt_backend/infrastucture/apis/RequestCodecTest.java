@@ -0,0 +1,130 @@
+package ttt_backend.infrastucture.apis;
+
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.internal.buffer.BufferInternal;
+import org.junit.jupiter.api.Test;
+import ttt_backend.application.BotLevel;
+import ttt_backend.application.Command;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestCodecTest {
+
+    @Test
+    void readsTheCommands() {
+        assertEquals(new Command.RegisterUser("alice"), RequestCodec.readRegisterUser(body("{\"userName\":\"alice\"}")));
+        assertEquals(new Command.JoinGame("user-1", "game-2", Game.GameSymbolType.CIRCLE),
+                RequestCodec.readJoinGame(body("{\"userId\":\"user-1\",\"gameId\":\"game-2\",\"symbol\":\"circle\"}")));
+        assertEquals(new Command.MakeMove("user-1", "game-2", Game.GameSymbolType.CROSS, 1, 2),
+                RequestCodec.readMakeMove(body("{\"userId\":\"user-1\",\"gameId\":\"game-2\",\"symbol\":\"cross\","
+                        + "\"x\":1,\"y\":2,\"extra\":{\"ignored\":[1,2]}}")));
+    }
+
+    @Test
+    void readsAnUnknownSymbolAsEmpty() {
+        assertEquals(Game.GameSymbolType.EMPTY,
+                RequestCodec.readJoinGame(body("{\"userId\":\"user-1\",\"gameId\":\"game-2\",\"symbol\":\"square\"}"))
+                        .symbol());
+    }
+
+    @Test
+    void readsTheBoards() {
+        assertEquals(BoardSize.CLASSIC, RequestCodec.readCreateGame(Buffer.buffer()).board());
+        assertEquals(BoardSize.CLASSIC, RequestCodec.readCreateGame(body("{}")).board());
+        assertEquals(new BoardSize(15, 15, 15), RequestCodec.readCreateGame(body("{\"width\":15}")).board());
+        assertEquals(new BoardSize(15, 10, 5),
+                RequestCodec.readCreateGame(body("{\"width\":15,\"height\":10,\"winLength\":5}")).board());
+    }
+
+    @Test
+    void refusesAnInvalidBoard() {
+        assertThrows(IllegalArgumentException.class, () -> RequestCodec.readCreateGame(body("{\"width\":0}")));
+        assertThrows(IllegalArgumentException.class, () -> RequestCodec.readCreateGame(body("{\"width\":65}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> RequestCodec.readCreateGame(body("{\"width\":3,\"winLength\":4}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> RequestCodec.readFindMatch(body("{\"userId\":\"user-1\",\"height\":100}")));
+    }
+
+    @Test
+    void refusesALongUserName() {
+        final String longest = "é".repeat(RequestCodec.MAX_USER_NAME_BYTES / 2);
+        assertEquals(new Command.RegisterUser(longest),
+                RequestCodec.readRegisterUser(body("{\"userName\":\"" + longest + "\"}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> RequestCodec.readRegisterUser(body("{\"userName\":\"" + longest + "x\"}")));
+    }
+
+    @Test
+    void refusesTheMissingIds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RequestCodec.readJoinGame(body("{\"gameId\":\"game-2\",\"symbol\":\"cross\"}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> RequestCodec.readJoinGame(body("{\"userId\":\"user-1\",\"symbol\":\"cross\"}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> RequestCodec.readMakeMove(body("{\"gameId\":\"game-2\",\"symbol\":\"cross\",\"x\":0,\"y\":0}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> RequestCodec.readMakeMove(body("{\"userId\":\"user-1\",\"symbol\":\"cross\",\"x\":0,\"y\":0}")));
+        assertThrows(IllegalArgumentException.class, () -> RequestCodec.readJoinBot(body("{\"level\":\"easy\"}")));
+        assertThrows(IllegalArgumentException.class, () -> RequestCodec.readFindMatch(body("{\"width\":3}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> RequestCodec.readBatch(body("[{\"op\":\"joinGame\",\"gameId\":\"game-2\"}]")));
+    }
+
+    @Test
+    void refusesMalformedBodies() {
+        assertThrows(IllegalArgumentException.class, () -> RequestCodec.readJoinGame(body("[]")));
+        assertThrows(IllegalArgumentException.class, () -> RequestCodec.readJoinGame(body("{\"userId\":")));
+        assertThrows(IllegalArgumentException.class, () -> RequestCodec.readBatch(body("{}")));
+        assertThrows(IllegalArgumentException.class, () -> RequestCodec.readBatch(body("[{\"userId\":\"user-1\"}]")));
+        assertThrows(IllegalArgumentException.class, () -> RequestCodec.readBatch(body("[{\"op\":\"dropTable\"}]")));
+        assertThrows(IllegalArgumentException.class,
+                () -> RequestCodec.readBatch(body("[{\"op\":\"createGame\"},5,{\"op\":\"createGame\"}]")));
+        assertThrows(IllegalArgumentException.class,
+                () -> RequestCodec.readBatch(body("[{\"op\":\"createGame\"}] {\"op\":\"createGame\"}")));
+        assertThrows(IllegalArgumentException.class, () -> RequestCodec.readBatch(body("[{\"op\":\"createGame\"}")));
+    }
+
+    @Test
+    void readsTheBytesOfSlicedAndDirectBuffers() {
+        final String json = "{\"userId\":\"user-1\",\"gameId\":\"game-2\",\"symbol\":\"cross\"}";
+        final var expected = new Command.JoinGame("user-1", "game-2", Game.GameSymbolType.CROSS);
+        assertEquals(expected, RequestCodec.readJoinGame(body("--" + json + "--").slice(2, 2 + json.length())));
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected, RequestCodec.readJoinGame(
+                BufferInternal.buffer(Unpooled.directBuffer(bytes.length).writeBytes(bytes))));
+    }
+
+    @Test
+    void readsTheBotsAndTheMatches() {
+        assertEquals(new RequestCodec.JoinBot("game-2", BotLevel.PERFECT),
+                RequestCodec.readJoinBot(body("{\"gameId\":\"game-2\"}")));
+        assertEquals(new RequestCodec.JoinBot("game-2", BotLevel.EASY),
+                RequestCodec.readJoinBot(body("{\"gameId\":\"game-2\",\"level\":\"easy\"}")));
+        assertEquals(new RequestCodec.FindMatch("user-1", BoardSize.CLASSIC),
+                RequestCodec.readFindMatch(body("{\"userId\":\"user-1\"}")));
+    }
+
+    @Test
+    void readsABatchInOrder() {
+        assertEquals(List.of(
+                        new Command.CreateGame(BoardSize.CLASSIC),
+                        new Command.JoinGame("user-1", "$0", Game.GameSymbolType.CROSS),
+                        new Command.MakeMove("user-1", "$0", Game.GameSymbolType.CROSS, 2, 1)),
+                RequestCodec.readBatch(body("[{\"op\":\"createGame\"},"
+                        + "{\"op\":\"joinGame\",\"userId\":\"user-1\",\"gameId\":\"$0\",\"symbol\":\"cross\"},"
+                        + "{\"userId\":\"user-1\",\"op\":\"makeAMove\",\"gameId\":\"$0\",\"symbol\":\"cross\","
+                        + "\"x\":2,\"y\":1}]")));
+    }
+
+    private static Buffer body(String json) {
+        return Buffer.buffer(json);
+    }
+}
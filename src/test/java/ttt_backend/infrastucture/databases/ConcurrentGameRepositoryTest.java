@@ -0,0 +1,66 @@
+package ttt_backend.infrastucture.databases;
+
+import org.junit.jupiter.api.Test;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fills a {@link ConcurrentGameRepository} with games being played: at
+ * capacity, the finished and the waiting games are evicted before them,
+ * however recently used.
+ */
+class ConcurrentGameRepositoryTest {
+    /* one game evicted per batch */
+    private static final int MAX_GAMES = 64;
+    private static final User CROSS = new User("user-1", "cross");
+    private static final User CIRCLE = new User("user-2", "circle");
+
+    @Test
+    void evictsTheGamesBeingPlayedLast() throws Exception {
+        try (var repository = new ConcurrentGameRepository(Duration.ofHours(1), Duration.ofHours(1), MAX_GAMES)) {
+            for (int i = 0; i < MAX_GAMES - 2; i++) {
+                repository.save(playing("playing-" + i));
+            }
+            repository.save(new Game("waiting", BoardSize.CLASSIC));
+            repository.save(finished("finished"));
+
+            repository.save(playing("new-1"));
+            assertFalse(repository.getGameById("finished").isPresent());
+            repository.save(playing("new-2"));
+            assertFalse(repository.getGameById("waiting").isPresent());
+            assertEquals(new ConcurrentGameRepository.Evictions(0, 0, 2, 0), repository.getEvictions());
+
+            repository.save(playing("new-3"));
+            assertFalse(repository.getGameById("playing-0").isPresent());
+            assertTrue(repository.getGameById("playing-1").isPresent());
+            assertEquals(new ConcurrentGameRepository.Evictions(0, 0, 3, 1), repository.getEvictions());
+        }
+    }
+
+    private static Game playing(String id) throws Exception {
+        final Game game = new Game(id, BoardSize.CLASSIC);
+        game.joinGame(CROSS, Game.GameSymbolType.CROSS);
+        game.joinGame(CIRCLE, Game.GameSymbolType.CIRCLE);
+        game.start();
+        return game;
+    }
+
+    private static Game finished(String id) throws Exception {
+        final Game game = playing(id);
+        for (int x = 0; x < 3; x++) {
+            game.makeAmove(CROSS, Game.GameSymbolType.CROSS, x, 0);
+            if (x < 2) {
+                game.makeAmove(CIRCLE, Game.GameSymbolType.CIRCLE, x, 1);
+            }
+        }
+        assertTrue(game.isGameEnd());
+        return game;
+    }
+}
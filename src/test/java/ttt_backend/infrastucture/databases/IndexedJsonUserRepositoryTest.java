@@ -0,0 +1,38 @@
+package ttt_backend.infrastucture.databases;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ttt_backend.domain.models.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IndexedJsonUserRepositoryTest {
+    private static final long FLUSH_PERIOD_MS = 3_600_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsTheUsersQueuedWhenTheFlushFails() throws IOException {
+        final Path file = this.directory.resolve("users.json");
+        try (var repository = new IndexedJsonUserRepository(file, FLUSH_PERIOD_MS)) {
+            repository.save(new User("user-1", "alice"));
+            repository.save(new User("user-2", "bob"));
+            /* a directory in place of the file makes the write fail */
+            Files.createDirectory(file);
+            assertThrows(IOException.class, repository::flush);
+            Files.delete(file);
+        }
+        try (var repository = new IndexedJsonUserRepository(file, FLUSH_PERIOD_MS)) {
+            assertEquals(Optional.of(new User("user-1", "alice")), repository.getUserById("user-1"));
+            assertEquals(Optional.of(new User("user-2", "bob")), repository.getUserById("user-2"));
+        }
+        assertEquals(2, new JsonRepository().getJsonContent(file).size());
+    }
+}
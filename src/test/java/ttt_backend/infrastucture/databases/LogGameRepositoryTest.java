@@ -0,0 +1,143 @@
+package ttt_backend.infrastucture.databases;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays games through a {@link LogGameRepository}, saving each game after
+ * each command as the application does, takes a snapshot halfway, appends
+ * a torn record to the log, then reopens the repository: every game is
+ * recovered as it was. One game in ten is played on a 20 x 20 board.
+ */
+class LogGameRepositoryTest {
+    private static final int GAMES = 2_000;
+    private static final BoardSize LARGE = new BoardSize(20, 20, 5);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversTheGamesAfterATornWrite() throws Exception {
+        final Random random = new Random(42);
+        final List<Game> games = new ArrayList<>(GAMES);
+        try (var repository = new LogGameRepository(this.directory, Duration.ofHours(1), Long.MAX_VALUE, false)) {
+            for (int i = 0; i < GAMES; i++) {
+                if (i == GAMES / 2) {
+                    repository.snapshot();
+                }
+                games.add(play(repository, i, random));
+            }
+        }
+        tearLog();
+
+        try (var repository = new LogGameRepository(this.directory, Duration.ofHours(1), Long.MAX_VALUE, false)) {
+            assertEquals(GAMES, repository.size());
+            for (final Game expected : games) {
+                assertSameGame(expected, repository.getGameById(expected.getId()).orElseThrow());
+            }
+        }
+    }
+
+    @Test
+    void keepsNamesUpToTheLimitAndRefusesLongerOnes() throws Exception {
+        final User longName = new User("user-0", "x".repeat(40_000));
+        final User tooLong = new User("user-1", "x".repeat(70_000));
+        try (var repository = new LogGameRepository(this.directory, Duration.ofHours(1), Long.MAX_VALUE, false)) {
+            final Game game = new Game("game-0", BoardSize.CLASSIC);
+            game.joinGame(longName, Game.GameSymbolType.CROSS);
+            repository.saveAsync(game).toCompletableFuture().join();
+
+            final Game refused = new Game("game-1", BoardSize.CLASSIC);
+            refused.joinGame(tooLong, Game.GameSymbolType.CROSS);
+            final var error = assertThrows(CompletionException.class,
+                    () -> repository.saveAsync(refused).toCompletableFuture().join());
+            assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        }
+
+        try (var repository = new LogGameRepository(this.directory, Duration.ofHours(1), Long.MAX_VALUE, false)) {
+            assertEquals(longName, repository.getGameById("game-0").orElseThrow()
+                    .getUser(Game.GameSymbolType.CROSS).orElseThrow());
+        }
+    }
+
+    /* the game i, played up to a random point, saved after each command */
+    private static Game play(LogGameRepository repository, int i, Random random) throws Exception {
+        final BoardSize board = i % 10 == 9 ? LARGE : BoardSize.CLASSIC;
+        final Game game = new Game("game-" + i, board);
+        final User cross = new User("user-" + 2 * i, "cross");
+        final User circle = new User("user-" + (2 * i + 1), "circle");
+        final int commands = random.nextInt(board.cells() + 4);
+        repository.saveAsync(game);
+        for (int c = 0; c < commands && !game.isGameEnd(); c++) {
+            switch (c) {
+                case 0 -> game.joinGame(cross, Game.GameSymbolType.CROSS);
+                case 1 -> game.joinGame(circle, Game.GameSymbolType.CIRCLE);
+                case 2 -> game.start();
+                default -> move(game, cross, circle, random);
+            }
+            repository.saveAsync(game);
+        }
+        return game;
+    }
+
+    /* a move of the player in turn on a random free cell */
+    private static void move(Game game, User cross, User circle, Random random) throws Exception {
+        final BoardSize board = game.getBoardSize();
+        final boolean crossTurn = game.getCurrentTurn().orElseThrow() == Game.GameSymbolType.CROSS;
+        int cell;
+        do {
+            cell = random.nextInt(board.cells());
+        } while (game.getCell(cell % board.width(), cell / board.width()) != Game.GameSymbolType.EMPTY);
+        game.makeAmove(crossTurn ? cross : circle, crossTurn ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE,
+                cell % board.width(), cell / board.width());
+    }
+
+    private static void assertSameGame(Game expected, Game actual) {
+        assertEquals(expected.getBoardSize(), actual.getBoardSize(), expected.getId());
+        for (int word = 0; word < expected.getCellWords(); word++) {
+            assertEquals(expected.getCells(Game.GameSymbolType.CROSS, word),
+                    actual.getCells(Game.GameSymbolType.CROSS, word), expected.getId());
+            assertEquals(expected.getCells(Game.GameSymbolType.CIRCLE, word),
+                    actual.getCells(Game.GameSymbolType.CIRCLE, word), expected.getId());
+        }
+        assertEquals(expected.getState(), actual.getState(), expected.getId());
+        assertEquals(expected.getWinner(), actual.getWinner(), expected.getId());
+        assertEquals(expected.getCurrentTurn(), actual.getCurrentTurn(), expected.getId());
+        assertEquals(expected.getUser(Game.GameSymbolType.CROSS), actual.getUser(Game.GameSymbolType.CROSS));
+        assertEquals(expected.getUser(Game.GameSymbolType.CIRCLE), actual.getUser(Game.GameSymbolType.CIRCLE));
+    }
+
+    /* a record cut by a crash in the middle of a write */
+    private void tearLog() throws IOException {
+        final Path last;
+        try (Stream<Path> files = Files.list(this.directory)) {
+            last = files.filter(p -> p.getFileName().toString().endsWith(".log")).max(Comparator.naturalOrder())
+                    .orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            assertTrue(channel.write(ByteBuffer.allocate(12).putInt(40).putInt(0x12345678).putInt(7).flip()) > 0);
+        }
+    }
+}
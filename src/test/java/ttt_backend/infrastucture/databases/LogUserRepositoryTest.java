@@ -0,0 +1,173 @@
+package ttt_backend.infrastucture.databases;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ttt_backend.domain.models.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogUserRepositoryTest {
+    private static final int USERS = 2_000;
+    private static final long SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsTheUsersSaved() {
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            assertTrue(repository.isEmpty());
+            repository.save(new User("user-1", "alice"));
+            repository.saveAsync(new User("user-2", "bob")).toCompletableFuture().join();
+            repository.saveAllAsync(List.of(new User("user-3", "carol"), new User("user-4", "dave")))
+                    .toCompletableFuture().join();
+
+            assertFalse(repository.isEmpty());
+            assertEquals(Optional.of(new User("user-1", "alice")), repository.getUserById("user-1"));
+            assertEquals(Optional.of(new User("user-2", "bob")),
+                    repository.getUserByIdAsync("user-2").toCompletableFuture().join());
+            assertEquals(Optional.empty(), repository.getUserByIdAsync("user-5").toCompletableFuture().join());
+            assertEquals(Map.of("user-3", new User("user-3", "carol"), "user-4", new User("user-4", "dave")),
+                    repository.getUsersByIdAsync(List.of("user-3", "user-4", "user-5")).toCompletableFuture().join());
+        }
+    }
+
+    @Test
+    void recoversTheUsersWhenReopened() {
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            saveAll(repository);
+        }
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            assertLatest(repository);
+            assertEquals(USERS, repository.ids().size());
+        }
+    }
+
+    @Test
+    void keepsNamesUpToTheLimitAndRefusesLongerOnes() {
+        final User longName = new User("user-1", "x".repeat(40_000));
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            repository.saveAsync(longName).toCompletableFuture().join();
+            final var error = assertThrows(CompletionException.class, () -> repository
+                    .saveAsync(new User("user-2", "x".repeat(70_000))).toCompletableFuture().join());
+            assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        }
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            assertEquals(Optional.of(longName), repository.getUserById("user-1"));
+            assertEquals(Optional.empty(), repository.getUserById("user-2"));
+        }
+    }
+
+    @Test
+    void keepsTheLatestRecordsWhenCompacted() throws IOException {
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            saveAll(repository);
+            final long before = segments();
+            repository.compact();
+
+            assertTrue(segments() < before, "segments " + before + " -> " + segments());
+            assertLatest(repository);
+        }
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            assertLatest(repository);
+        }
+    }
+
+    @Test
+    void leavesTheSegmentsWithoutReplacedRecords() throws IOException {
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            for (int i = 0; i < USERS; i++) {
+                repository.saveAsync(new User("user-" + i, "player " + i)).toCompletableFuture().join();
+            }
+            final long before = segments();
+            repository.compact();
+
+            assertEquals(before, segments());
+            assertEquals(USERS, repository.ids().size());
+        }
+    }
+
+    @Test
+    void rebuildsTheIndexAfterAnInterruptedCompaction() throws IOException {
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            saveAll(repository);
+            repository.compact();
+        }
+        /* the process stopped while the index was being relocated */
+        Files.createFile(this.directory.resolve("compaction.marker"));
+        Files.write(this.directory.resolve("users.idx"), new byte[64]);
+
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            assertLatest(repository);
+        }
+        assertFalse(Files.exists(this.directory.resolve("compaction.marker")));
+    }
+
+    @Test
+    void indexesAgainTheRecordsPastTheDurableWatermark() throws IOException {
+        final Path index = this.directory.resolve("users.idx");
+        final byte[] checkpoint;
+        try (var repository = new LogUserRepository(this.directory, 1L << 20)) {
+            checkpoint = Files.readAllBytes(index);
+            saveAll(repository);
+            /* the process crashes: the header reached the disk, the slots written since did not */
+            final byte[] header = Files.readAllBytes(index);
+            System.arraycopy(header, 0, checkpoint, 0, 32);
+        }
+        Files.write(index, checkpoint);
+
+        try (var repository = new LogUserRepository(this.directory, 1L << 20)) {
+            assertLatest(repository);
+        }
+    }
+
+    @Test
+    void compactsTheRecordsReplacedBeforeTheLastStart() throws IOException {
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            saveAll(repository);
+        }
+        try (var repository = new LogUserRepository(this.directory, SEGMENT_BYTES)) {
+            final long before = segments();
+            repository.compact();
+
+            assertTrue(segments() < before, "segments " + before + " -> " + segments());
+            assertLatest(repository);
+        }
+    }
+
+    /* every user, then every other user again with a new name */
+    private static void saveAll(LogUserRepository repository) {
+        for (int i = 0; i < USERS; i++) {
+            repository.save(new User("user-" + i, "player " + i));
+        }
+        for (int i = 0; i < USERS; i += 2) {
+            repository.save(new User("user-" + i, "renamed " + i));
+        }
+    }
+
+    private static void assertLatest(LogUserRepository repository) {
+        for (int i = 0; i < USERS; i++) {
+            final String name = (i % 2 == 0 ? "renamed " : "player ") + i;
+            assertEquals(Optional.of(new User("user-" + i, name)), repository.getUserById("user-" + i));
+        }
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+}
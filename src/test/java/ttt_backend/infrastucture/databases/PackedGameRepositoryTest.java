@@ -0,0 +1,122 @@
+package ttt_backend.infrastucture.databases;
+
+import org.junit.jupiter.api.Test;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stores games played up to a random point, saving each game after each
+ * command as the application does: every game is read back as played,
+ * and reading and saving the games again leaves them unchanged.
+ */
+class PackedGameRepositoryTest {
+    private static final int GAMES = 20_000;
+    private static final User[] USERS = new User[100];
+
+    static {
+        for (int i = 0; i < USERS.length; i++) {
+            USERS[i] = new User("user-" + i, "player " + i);
+        }
+    }
+
+    @Test
+    void storesTheGamesAsPlayed() throws Exception {
+        final var repository = new PackedGameRepository();
+        for (int i = 0; i < GAMES; i++) {
+            play(repository, i);
+        }
+        assertEquals(GAMES, repository.size());
+
+        final Random random = new Random(7);
+        for (int i = 0; i < GAMES; i++) {
+            repository.save(repository.getGameById("game-" + random.nextInt(GAMES)).orElseThrow());
+        }
+        for (int i = 0; i < GAMES; i++) {
+            final Game expected = play(null, i);
+            assertSameGame(expected, repository.getGameById(expected.getId()).orElseThrow());
+        }
+        assertEquals(Optional.empty(), repository.getGameById("game-" + GAMES));
+    }
+
+    @Test
+    void packsTheGames() throws Exception {
+        final var repository = new PackedGameRepository();
+        for (int i = 0; i < GAMES; i++) {
+            play(repository, i);
+        }
+        assertTrue(repository.bytesPerGame() > 0 && repository.bytesPerGame() < 128,
+                "bytes per game: " + repository.bytesPerGame());
+    }
+
+    @Test
+    void keepsTheLargeBoards() throws Exception {
+        final var repository = new PackedGameRepository();
+        final Game game = new Game("game-1000000", new BoardSize(20, 20, 5));
+        game.joinGame(USERS[0], Game.GameSymbolType.CROSS);
+        game.joinGame(USERS[1], Game.GameSymbolType.CIRCLE);
+        game.start();
+        game.makeAmove(USERS[0], Game.GameSymbolType.CROSS, 19, 19);
+        repository.save(game);
+
+        assertSameGame(game, repository.getGameById("game-1000000").orElseThrow());
+    }
+
+    /* the game i, played up to a random point, saved after each command if a repository is given */
+    private static Game play(PackedGameRepository repository, int i) throws Exception {
+        final Random random = new Random(i);
+        final Game game = new Game("game-" + i);
+        final User cross = USERS[random.nextInt(USERS.length)];
+        final User circle = USERS[random.nextInt(USERS.length)];
+        final int commands = random.nextInt(13);
+        if (repository != null) {
+            repository.save(game);
+        }
+        for (int c = 0; c < commands && !game.isGameEnd(); c++) {
+            switch (c) {
+                case 0 -> game.joinGame(cross, Game.GameSymbolType.CROSS);
+                case 1 -> game.joinGame(circle, Game.GameSymbolType.CIRCLE);
+                case 2 -> game.start();
+                default -> move(game, cross, circle, random);
+            }
+            if (repository != null) {
+                repository.save(game);
+            }
+        }
+        return game;
+    }
+
+    /* a move of the player in turn on a random free cell */
+    private static void move(Game game, User cross, User circle, Random random) throws Exception {
+        final long taken = game.getCells(Game.GameSymbolType.CROSS, 0) | game.getCells(Game.GameSymbolType.CIRCLE, 0);
+        final boolean crossTurn = game.getCurrentTurn().orElseThrow() == Game.GameSymbolType.CROSS;
+        int cell;
+        do {
+            cell = random.nextInt(9);
+        } while ((taken & (1L << cell)) != 0);
+        game.makeAmove(crossTurn ? cross : circle, crossTurn ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE,
+                cell % 3, cell / 3);
+    }
+
+    private static void assertSameGame(Game expected, Game actual) {
+        assertEquals(expected.getBoardSize(), actual.getBoardSize(), expected.getId());
+        assertEquals(expected.getState(), actual.getState(), expected.getId());
+        assertEquals(expected.getVersion(), actual.getVersion(), expected.getId());
+        assertEquals(expected.getCurrentTurn(), actual.getCurrentTurn(), expected.getId());
+        assertEquals(expected.getWinner(), actual.getWinner(), expected.getId());
+        assertEquals(expected.getUser(Game.GameSymbolType.CROSS), actual.getUser(Game.GameSymbolType.CROSS));
+        assertEquals(expected.getUser(Game.GameSymbolType.CIRCLE), actual.getUser(Game.GameSymbolType.CIRCLE));
+        for (int word = 0; word < expected.getCellWords(); word++) {
+            assertEquals(expected.getCells(Game.GameSymbolType.CROSS, word),
+                    actual.getCells(Game.GameSymbolType.CROSS, word), expected.getId());
+            assertEquals(expected.getCells(Game.GameSymbolType.CIRCLE, word),
+                    actual.getCells(Game.GameSymbolType.CIRCLE, word), expected.getId());
+        }
+    }
+}
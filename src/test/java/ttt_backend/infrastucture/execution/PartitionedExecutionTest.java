@@ -0,0 +1,195 @@
+package ttt_backend.infrastucture.execution;
+
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ttt_backend.application.Command;
+import ttt_backend.application.GameApplication;
+import ttt_backend.domain.models.BoardSize;
+import ttt_backend.domain.models.Game;
+import ttt_backend.domain.models.User;
+import ttt_backend.domain.ports.GameRepository;
+import ttt_backend.domain.ports.IdAllocator;
+import ttt_backend.infrastucture.databases.IndexedJsonUserRepository;
+import ttt_backend.infrastucture.databases.LogGameRepository;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays the same games with batches of moves and single moves at once, on a
+ * {@link PartitionedGameExecutor} over a {@link LogGameRepository} not locking
+ * the games, each batch moving on two games: every game is only saved by its
+ * owner, every move accepted takes its own cell, and the games reopened from
+ * the log are the ones played.
+ */
+class PartitionedExecutionTest {
+    private static final int GAMES = 8;
+    private static final int ROUNDS = 400;
+    private static final int BATCH_MOVES = 8;
+    private static final BoardSize BOARD = new BoardSize(16, 16, 16);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void savesTheGamesOfBatchesAndSingleMovesOnTheirOwner() throws Exception {
+        final Vertx vertx = Vertx.vertx();
+        final List<Game> games = new ArrayList<>();
+        final AtomicIntegerArray moves = new AtomicIntegerArray(GAMES);
+        try (var userRepository = new IndexedJsonUserRepository(this.directory.resolve("users.json"), 100);
+             var log = new LogGameRepository(this.directory.resolve("games"), Duration.ofHours(1),
+                     Long.MAX_VALUE, false, false)) {
+            final OwnerCheckingRepository gameRepository = new OwnerCheckingRepository(log);
+            final PartitionedGameExecutor executor = PartitionedGameExecutor.deploy(vertx, 4).await();
+            final GameApplication application = new GameApplication(userRepository, gameRepository,
+                    IdAllocator.inMemory(1), IdAllocator.inMemory(1), false);
+            final List<User[]> players = new ArrayList<>();
+            for (int i = 0; i < GAMES; i++) {
+                final User cross = application.registerUser("cross").toCompletableFuture().join();
+                final User circle = application.registerUser("circle").toCompletableFuture().join();
+                final Game game = application.createNewGame(BOARD).toCompletableFuture().join();
+                application.joinGame(cross.id(), game.getId(), Game.GameSymbolType.CROSS).toCompletableFuture().join();
+                application.joinGame(circle.id(), game.getId(), Game.GameSymbolType.CIRCLE).toCompletableFuture().join();
+                application.startGame(game.getId()).toCompletableFuture().join();
+                games.add(game);
+                players.add(new User[] { cross, circle });
+            }
+
+            /* each round sends a batch and a single move to every game, without waiting */
+            gameRepository.checking = true;
+            final List<CompletableFuture<?>> pending = new ArrayList<>();
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int g = 0; g < GAMES; g++) {
+                    final int index = g;
+                    final String gameId = games.get(g).getId();
+                    final List<Command> batch = new ArrayList<>();
+                    for (int m = 0; m < BATCH_MOVES; m++) {
+                        final int target = (g + m % 2) % GAMES;
+                        batch.add(randomMove(players.get(target), games.get(target).getId(), random));
+                    }
+                    pending.add(application.newBatch(batch).execute(executor).thenAccept(results -> {
+                        for (int m = 0; m < results.size(); m++) {
+                            if (results.get(m).succeeded()) {
+                                moves.incrementAndGet((index + m % 2) % GAMES);
+                            }
+                        }
+                    }).toCompletableFuture());
+
+                    final Command.MakeMove single = randomMove(players.get(g), gameId, random);
+                    pending.add(executor.execute(gameId, () -> application.makeMove(single.userId(), gameId,
+                                    single.symbol(), single.x(), single.y()))
+                            .handle((result, error) -> {
+                                if (error == null) {
+                                    moves.incrementAndGet(index);
+                                }
+                                return null;
+                            }).toCompletableFuture());
+                }
+            }
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+
+            assertEquals(0, gameRepository.foreignSaves.get());
+            for (int g = 0; g < GAMES; g++) {
+                assertTrue(moves.get(g) > 0);
+                assertEquals(moves.get(g), takenCells(games.get(g)), games.get(g).getId());
+            }
+        } finally {
+            vertx.close().await();
+        }
+
+        try (var gameRepository = new LogGameRepository(this.directory.resolve("games"), Duration.ofHours(1),
+                Long.MAX_VALUE, false)) {
+            for (final Game expected : games) {
+                final Game actual = gameRepository.getGameById(expected.getId()).orElseThrow();
+                for (int word = 0; word < expected.getCellWords(); word++) {
+                    assertEquals(expected.getCells(Game.GameSymbolType.CROSS, word),
+                            actual.getCells(Game.GameSymbolType.CROSS, word), expected.getId());
+                    assertEquals(expected.getCells(Game.GameSymbolType.CIRCLE, word),
+                            actual.getCells(Game.GameSymbolType.CIRCLE, word), expected.getId());
+                }
+                assertEquals(expected.getCurrentTurn(), actual.getCurrentTurn(), expected.getId());
+            }
+        }
+    }
+
+    /* a move on a random cell, by a random player of the game */
+    private static Command.MakeMove randomMove(User[] players, String gameId, ThreadLocalRandom random) {
+        final int cell = random.nextInt(BOARD.cells());
+        final boolean cross = random.nextBoolean();
+        return new Command.MakeMove(players[cross ? 0 : 1].id(), gameId,
+                cross ? Game.GameSymbolType.CROSS : Game.GameSymbolType.CIRCLE,
+                cell % BOARD.width(), cell / BOARD.width());
+    }
+
+    /* a repository counting the saves of a game on another thread than its first one */
+    private static final class OwnerCheckingRepository implements GameRepository {
+        private final GameRepository repository;
+        private final Map<String, Thread> owners = new ConcurrentHashMap<>();
+        private final AtomicInteger foreignSaves = new AtomicInteger();
+        private volatile boolean checking;
+
+        OwnerCheckingRepository(GameRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Game save(Game game) {
+            check(game);
+            return this.repository.save(game);
+        }
+
+        @Override
+        public CompletionStage<Game> saveAsync(Game game) {
+            check(game);
+            return this.repository.saveAsync(game);
+        }
+
+        @Override
+        public CompletionStage<List<Game>> saveAllAsync(List<Game> games) {
+            games.forEach(this::check);
+            return this.repository.saveAllAsync(games);
+        }
+
+        @Override
+        public Optional<Game> getGameById(String id) {
+            return this.repository.getGameById(id);
+        }
+
+        @Override
+        public CompletionStage<Map<String, Game>> getGamesByIdAsync(Collection<String> ids) {
+            return this.repository.getGamesByIdAsync(ids);
+        }
+
+        private void check(Game game) {
+            if (this.checking && this.owners.computeIfAbsent(game.getId(), id -> Thread.currentThread())
+                    != Thread.currentThread()) {
+                this.foreignSaves.incrementAndGet();
+            }
+        }
+    }
+
+    private static int takenCells(Game game) {
+        int taken = 0;
+        for (int word = 0; word < game.getCellWords(); word++) {
+            taken += Long.bitCount(game.getCells(Game.GameSymbolType.CROSS, word))
+                    + Long.bitCount(game.getCells(Game.GameSymbolType.CIRCLE, word));
+        }
+        return taken;
+    }
+}
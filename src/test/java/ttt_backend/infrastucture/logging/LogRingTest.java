@@ -0,0 +1,155 @@
+package ttt_backend.infrastucture.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The ring of the log records, drained by the test instead of a writer
+ * thread: records formatted in order, dropped when the ring is full, and
+ * not lost nor reordered by concurrent producers.
+ */
+class LogRingTest {
+    private static final String CATEGORY = "test-ring";
+
+    private final List<LogRecord> published = Collections.synchronizedList(new ArrayList<>());
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            if (CATEGORY.equals(record.getSourceClassName()) || "logging".equals(record.getSourceClassName())) {
+                LogRingTest.this.published.add(record);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @BeforeEach
+    void captureRecords() {
+        Logger.getLogger("[TicTacToe Backend]").addHandler(this.handler);
+    }
+
+    @AfterEach
+    void releaseRecords() {
+        Logger.getLogger("[TicTacToe Backend]").removeHandler(this.handler);
+    }
+
+    @Test
+    void formatsTheRecordsInOrder() {
+        final LogRing ring = new LogRing(16);
+        final IllegalStateException error = new IllegalStateException("broken");
+        assertTrue(ring.offer(Level.INFO, CATEGORY, "no argument", null, null, null, null));
+        assertTrue(ring.offer(Level.INFO, CATEGORY, "{} and {} then {}", 1, "two", 3L, null));
+        assertTrue(ring.offer(Level.WARNING, CATEGORY, "failed in {}", "game-1", null, null, error));
+
+        assertTrue(ring.drain());
+        assertFalse(ring.drain());
+
+        assertEquals(List.of("no argument", "1 and two then 3", "failed in game-1"), messages());
+        assertEquals(Level.WARNING, this.published.get(2).getLevel());
+        assertSame(error, this.published.get(2).getThrown());
+    }
+
+    @Test
+    void dropsTheRecordsWhenFullAndReportsThem() {
+        final LogRing ring = new LogRing(8);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ring.offer(Level.INFO, CATEGORY, "record {}", i, null, null, null));
+        }
+        assertFalse(ring.offer(Level.INFO, CATEGORY, "record {}", 8, null, null, null));
+        assertFalse(ring.offer(Level.INFO, CATEGORY, "record {}", 9, null, null, null));
+
+        ring.drain();
+        assertTrue(ring.offer(Level.INFO, CATEGORY, "record {}", 10, null, null, null));
+        ring.drain();
+
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            expected.add("record " + i);
+        }
+        expected.add("2 log records dropped, the log buffer was full");
+        expected.add("record 10");
+        assertEquals(expected, messages());
+    }
+
+    @Test
+    void keepsTheOrderOfEachProducerAcrossTheLaps() throws InterruptedException {
+        final LogRing ring = new LogRing(64);
+        final int producers = 4;
+        final int records = 20_000;
+        final AtomicLong offered = new AtomicLong();
+        final AtomicBoolean producing = new AtomicBoolean(true);
+        final Thread writer = new Thread(() -> {
+            while (producing.get()) {
+                ring.drain();
+            }
+            ring.drain();
+        });
+        writer.start();
+        final List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < records; i++) {
+                    if (ring.offer(Level.INFO, CATEGORY, "{} {}", producer, i, null, null)) {
+                        offered.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        producing.set(false);
+        writer.join();
+
+        final int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        long kept = 0;
+        long dropped = 0;
+        for (final String message : messages()) {
+            if (message.endsWith("the log buffer was full")) {
+                dropped += Long.parseLong(message.substring(0, message.indexOf(' ')));
+                continue;
+            }
+            final String[] fields = message.split(" ");
+            final int producer = Integer.parseInt(fields[0]);
+            final int record = Integer.parseInt(fields[1]);
+            assertTrue(record > last[producer], message + " after " + last[producer]);
+            last[producer] = record;
+            kept++;
+        }
+        assertEquals(offered.get(), kept);
+        assertEquals((long) producers * records, kept + dropped);
+    }
+
+    private List<String> messages() {
+        synchronized (this.published) {
+            return this.published.stream().map(LogRecord::getMessage).toList();
+        }
+    }
+}
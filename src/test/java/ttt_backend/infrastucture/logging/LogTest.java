@@ -0,0 +1,92 @@
+package ttt_backend.infrastucture.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogTest {
+    private static final String CATEGORY = "test-log";
+
+    private final List<LogRecord> published = Collections.synchronizedList(new ArrayList<>());
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            if (CATEGORY.equals(record.getSourceClassName())) {
+                LogTest.this.published.add(record);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @BeforeEach
+    void captureRecords() {
+        Logger.getLogger("[TicTacToe Backend]").addHandler(this.handler);
+    }
+
+    @AfterEach
+    void releaseRecords() {
+        Logger.getLogger("[TicTacToe Backend]").removeHandler(this.handler);
+    }
+
+    @Test
+    void keepsOneRecordInSamplingBelowWarning() {
+        final LogRing ring = new LogRing(1 << 15);
+        final Log log = new Log(CATEGORY, Level.INFO, 10, ring);
+        for (int i = 0; i < 20_000; i++) {
+            log.info("move {}", i);
+        }
+        ring.drain();
+
+        final int kept = this.published.size();
+        assertTrue(kept > 1_600 && kept < 2_400, kept + " records kept");
+    }
+
+    @Test
+    void keepsEveryWarning() {
+        final LogRing ring = new LogRing(1 << 12);
+        final Log log = new Log(CATEGORY, Level.INFO, 1_000, ring);
+        final IllegalStateException error = new IllegalStateException("broken");
+        for (int i = 0; i < 1_000; i++) {
+            log.warning("Cannot start {}", "game-" + i, error);
+        }
+        ring.drain();
+
+        assertEquals(1_000, this.published.size());
+        assertEquals("Cannot start game-999", this.published.get(999).getMessage());
+        assertEquals(error, this.published.get(999).getThrown());
+    }
+
+    @Test
+    void dropsTheRecordsBelowTheLevel() {
+        final LogRing ring = new LogRing(16);
+        final Log log = new Log(CATEGORY, Level.WARNING, 1, ring);
+        log.info("{} {}", 1, 2);
+        assertFalse(log.isEnabled(Level.INFO));
+
+        log.setLevel(Level.INFO);
+        log.info("{} {}", 3, 4);
+        log.fine("{} {}", 5, 6);
+        ring.drain();
+
+        assertEquals(List.of("3 4"), this.published.stream().map(LogRecord::getMessage).toList());
+    }
+}
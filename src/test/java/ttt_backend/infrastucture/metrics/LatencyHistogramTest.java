@@ -0,0 +1,94 @@
+package ttt_backend.infrastucture.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    private static final int THREADS = 16;
+    private static final int VALUES_PER_THREAD = 100_000;
+
+    @Test
+    void countsTheSmallValuesExactly() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 8; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(9, snapshot.count());
+        assertEquals(28, snapshot.sum());
+        assertEquals(0, snapshot.percentile(0.2));
+        assertEquals(7, snapshot.percentile(1));
+        assertEquals(2, snapshot.countAtMost(0));
+        assertEquals(9, snapshot.countAtMost(7));
+    }
+
+    @Test
+    void boundsEachValueWithinAnEighth() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            final long value = 8 + (random.nextLong() >>> (24 + random.nextInt(40)));
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            final long bound = histogram.snapshot().percentile(0.5);
+
+            assertTrue(bound >= value && bound <= value + value / 8, value + " -> " + bound);
+        }
+    }
+
+    @Test
+    void putsTheBucketEdgesOnThePowersOfTwo() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int exponent = 3; exponent < 40; exponent++) {
+            histogram.record((1L << exponent) - 1);
+            histogram.record(1L << exponent);
+        }
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        for (int exponent = 4; exponent < 40; exponent++) {
+            assertEquals(2L * exponent - 5, snapshot.countAtMost((1L << exponent) - 1), "2^" + exponent);
+        }
+    }
+
+    @Test
+    void clampsTheValuesPastTheLastBucket() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1, snapshot.count());
+        assertEquals((1L << 41) - 1, snapshot.percentile(1));
+        assertEquals(0, snapshot.countAtMost((1L << 40) - 1));
+    }
+
+    @Test
+    void sumsTheStripesOfAllTheThreads() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final long value = 1_000L * (t + 1);
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < VALUES_PER_THREAD; i++) {
+                    histogram.record(value);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals((long) THREADS * VALUES_PER_THREAD, snapshot.count());
+        assertEquals(1_000L * THREADS * (THREADS + 1) / 2 * VALUES_PER_THREAD, snapshot.sum());
+        assertEquals(VALUES_PER_THREAD, snapshot.countAtMost(1023));
+    }
+}
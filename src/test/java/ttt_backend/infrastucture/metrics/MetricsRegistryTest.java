@@ -0,0 +1,43 @@
+package ttt_backend.infrastucture.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+
+    @Test
+    void refusesAGaugeRegisteredAsTheOtherKind() {
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final Gauge updated = metrics.gauge("updated", "Updated");
+        metrics.gauge("sampled", "Sampled", () -> 7);
+
+        assertSame(updated, metrics.gauge("updated", "Updated"));
+        metrics.gauge("sampled", "Sampled", () -> 8);
+        assertThrows(IllegalArgumentException.class, () -> metrics.gauge("sampled", "Sampled"));
+        assertThrows(IllegalArgumentException.class, () -> metrics.gauge("updated", "Updated", () -> 1));
+        assertTrue(metrics.scrape().contains("\nsampled 7\n"));
+    }
+
+    @Test
+    void rendersCumulativeHistograms() {
+        final MetricsRegistry metrics = new MetricsRegistry();
+        final Timer timer = metrics.timer("ttt_ops", "Operations", "op", "read");
+        timer.latencies().record(500);
+        timer.latencies().record(2_000);
+        timer.latencies().record(3_000_000_000L);
+        final String scrape = metrics.scrape();
+
+        assertTrue(scrape.contains("# TYPE ttt_ops_duration_seconds histogram\n"), scrape);
+        assertTrue(scrape.contains("ttt_ops_duration_seconds_bucket{op=\"read\",le=\"1.023E-6\"} 1\n"), scrape);
+        assertTrue(scrape.contains("ttt_ops_duration_seconds_bucket{op=\"read\",le=\"4.095E-6\"} 2\n"), scrape);
+        assertTrue(scrape.contains("ttt_ops_duration_seconds_bucket{op=\"read\",le=\"1.073741823\"} 2\n"), scrape);
+        assertTrue(scrape.contains("ttt_ops_duration_seconds_bucket{op=\"read\",le=\"4.294967295\"} 3\n"), scrape);
+        assertTrue(scrape.contains("ttt_ops_duration_seconds_bucket{op=\"read\",le=\"+Inf\"} 3\n"), scrape);
+        assertTrue(scrape.contains("ttt_ops_duration_seconds_count{op=\"read\"} 3\n"), scrape);
+        assertEquals(-1, scrape.indexOf("quantile"));
+    }
+}